@@ -0,0 +1,15 @@
+#!/bin/bash
+# Clones the primary with pg_basebackup on first start, then runs as a hot standby.
+set -e
+
+if [ ! -s "$PGDATA/PG_VERSION" ]; then
+    until PGPASSWORD="$REPLICATION_PASSWORD" pg_basebackup -h "$PRIMARY_HOST" -U "$REPLICATION_USER" \
+            -D "$PGDATA" -Fp -Xs -R; do
+        echo "Waiting for primary $PRIMARY_HOST..."
+        sleep 2
+    done
+    chown -R postgres:postgres "$PGDATA"
+    chmod 700 "$PGDATA"
+fi
+
+exec gosu postgres postgres -c hot_standby=on
@@ -48,4 +48,5 @@ cat /app/application.properties
 
 # Start the Spring Boot application
 echo "Starting application..."
-exec java $JAVA_OPTS -jar app.jar
\ No newline at end of file
+# STARTUP_OPTS and APP_JAR are set by the fast-startup image (AppCDS archive, AOT)
+exec java $JAVA_OPTS $STARTUP_OPTS -jar "${APP_JAR:-app.jar}"
\ No newline at end of file
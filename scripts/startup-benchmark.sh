@@ -0,0 +1,93 @@
+#!/usr/bin/env bash
+#
+# Time to first served request and resident memory of each startup variant:
+#   jar      plain executable jar
+#   aot-cds  extracted jar with Spring AOT initialization and an AppCDS archive
+#   native   GraalVM native image (only if target/restapi exists: mvn -Pnative native:compile)
+#
+# Build first with:  mvn -Pfast-startup clean package -DskipTests
+# The application needs its usual database settings, e.g. SPRING_DATASOURCE_URL/USERNAME/PASSWORD.
+#
+# Usage: scripts/startup-benchmark.sh [runs]    (Linux: uses date +%N and ps)
+
+set -euo pipefail
+
+RUNS=${1:-3}
+URL=${BENCH_URL:-http://localhost:8080/api/v1/products?size=1}
+TIMEOUT_SECONDS=${BENCH_TIMEOUT_SECONDS:-120}
+JAR=target/restapi-0.0.1-SNAPSHOT.jar
+CDS_DIR=target/fast-startup
+NATIVE=target/restapi
+
+cd "$(dirname "$0")/.."
+
+if [ ! -f "$JAR" ]; then
+    echo "Missing $JAR, run: mvn -Pfast-startup clean package -DskipTests" >&2
+    exit 1
+fi
+
+now_ms() {
+    echo $(($(date +%s%N) / 1000000))
+}
+
+prepare_cds() {
+    if [ -f "$CDS_DIR/app.jsa" ] && [ "$CDS_DIR/app.jar" -nt "$JAR" ]; then
+        return
+    fi
+    echo "Recording AppCDS archive in $CDS_DIR ..."
+    rm -rf "$CDS_DIR"
+    cp "$JAR" target/app.jar
+    java -Djarmode=tools -jar target/app.jar extract --destination "$CDS_DIR" > /dev/null
+    rm target/app.jar
+    java -XX:ArchiveClassesAtExit="$CDS_DIR/app.jsa" -Dspring.context.exit=onRefresh \
+        -Dspring.aot.enabled=true -jar "$CDS_DIR/app.jar" > "$CDS_DIR/training.log" 2>&1
+}
+
+# Starts the command, waits for the first successful response and prints "<millis> <rss KiB>"
+measure() {
+    local start pid elapsed rss
+    start=$(now_ms)
+    "$@" > target/startup-benchmark.log 2>&1 &
+    pid=$!
+    until [ "$(curl -s -o /dev/null -w '%{http_code}' "$URL" || true)" = "200" ]; do
+        if ! kill -0 "$pid" 2> /dev/null; then
+            echo "Application exited during startup, see target/startup-benchmark.log" >&2
+            exit 1
+        fi
+        if [ $(($(now_ms) - start)) -gt $((TIMEOUT_SECONDS * 1000)) ]; then
+            kill "$pid"
+            echo "No successful response from $URL within ${TIMEOUT_SECONDS}s" >&2
+            exit 1
+        fi
+        sleep 0.05
+    done
+    elapsed=$(($(now_ms) - start))
+    rss=$(ps -o rss= -p "$pid" | tr -d ' ')
+    kill "$pid"
+    wait "$pid" 2> /dev/null || true
+    echo "$elapsed $rss"
+}
+
+run_variant() {
+    local name=$1
+    shift
+    local total_ms=0 total_rss=0 result ms rss
+    for run in $(seq 1 "$RUNS"); do
+        result=$(measure "$@")
+        ms=${result% *}
+        rss=${result#* }
+        total_ms=$((total_ms + ms))
+        total_rss=$((total_rss + rss))
+        printf '  %-8s run %d: %6d ms  %7d KiB\n' "$name" "$run" "$ms" "$rss"
+    done
+    printf '%-8s avg:   %6d ms  %7d KiB RSS\n' "$name" $((total_ms / RUNS)) $((total_rss / RUNS))
+}
+
+prepare_cds
+
+echo "Time to first response from $URL ($RUNS runs each)"
+run_variant jar java -jar "$JAR"
+run_variant aot-cds java -XX:SharedArchiveFile="$CDS_DIR/app.jsa" -Dspring.aot.enabled=true -jar "$CDS_DIR/app.jar"
+if [ -x "$NATIVE" ]; then
+    run_variant native "$NATIVE"
+fi
@@ -0,0 +1,32 @@
+package com.dinidu.restapi.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "app.orders.async")
+public class AsyncOrderProperties {
+    /**
+     * When enabled, POST /orders with "Prefer: respond-async" is queued and answered with 202.
+     */
+    private boolean enabled = false;
+
+    private int queueCapacity = 10_000;
+
+    /**
+     * Maximum number of orders committed in one transaction.
+     */
+    private int batchSize = 100;
+
+    /**
+     * How long the worker waits for more orders before committing a partial batch.
+     */
+    private Duration maxBatchDelay = Duration.ofMillis(20);
+
+    /**
+     * How long finished tickets stay available for polling.
+     */
+    private Duration ticketRetention = Duration.ofMinutes(10);
+}
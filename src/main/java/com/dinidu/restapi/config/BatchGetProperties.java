@@ -0,0 +1,13 @@
+package com.dinidu.restapi.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "app.batch-get")
+public class BatchGetProperties {
+    /**
+     * Maximum distinct ids per multi-get request ({@code GET /products/batch?ids=...} and friends).
+     */
+    private int maxIds = 100;
+}
@@ -0,0 +1,13 @@
+package com.dinidu.restapi.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "app.orders.bulk")
+public class BulkOrderProperties {
+    /**
+     * Maximum ids per bulk request, and maximum rows a filter-based request touches per call.
+     */
+    private int maxBatchSize = 5_000;
+}
@@ -0,0 +1,40 @@
+package com.dinidu.restapi.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "app.cache-invalidation")
+public class CacheInvalidationProperties {
+    /**
+     * Share cache invalidations with the other instances through Postgres NOTIFY/LISTEN.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Notification channel; all instances must use the same one.
+     */
+    private String channel = "cache_invalidation";
+
+    /**
+     * Changes committed within this interval go out as one notification.
+     */
+    private Duration flushInterval = Duration.ofMillis(100);
+
+    /**
+     * Ids per notification, keeping payloads well below Postgres' 8000 byte limit.
+     */
+    private int maxIdsPerMessage = 400;
+
+    /**
+     * How long the listener waits for notifications before checking that its connection is alive.
+     */
+    private Duration pollTimeout = Duration.ofSeconds(5);
+
+    /**
+     * Pause before reconnecting after the listener connection failed.
+     */
+    private Duration reconnectDelay = Duration.ofSeconds(5);
+}
@@ -0,0 +1,57 @@
+package com.dinidu.restapi.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "app.concurrency-limit")
+public class ConcurrencyLimitProperties {
+    private boolean enabled = false;
+
+    /**
+     * Bounds for GET/HEAD requests to the order, product and user endpoints.
+     */
+    private Limit read = new Limit(40, 8, 200);
+
+    /**
+     * Bounds for all other requests; the initial value matches the connection pool size.
+     */
+    private Limit write = new Limit(10, 2, 50);
+
+    /**
+     * Minimum length of a latency sample window; a window also needs {@code minSamples} requests.
+     */
+    private Duration sampleWindow = Duration.ofSeconds(1);
+
+    private int minSamples = 20;
+
+    /**
+     * How far the recent average latency may rise above the long-term average before the limit shrinks.
+     */
+    private double rttTolerance = 1.5;
+
+    /**
+     * Weight of each new estimate in the limit (0-1); lower values react more slowly.
+     */
+    private double smoothing = 0.2;
+
+    /**
+     * Factor applied to the limit after a window that contained server errors.
+     */
+    private double backoffRatio = 0.9;
+
+    private Duration retryAfter = Duration.ofSeconds(1);
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Limit {
+        private int initial;
+        private int min;
+        private int max;
+    }
+}
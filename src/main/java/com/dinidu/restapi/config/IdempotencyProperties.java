@@ -0,0 +1,25 @@
+package com.dinidu.restapi.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "app.idempotency")
+public class IdempotencyProperties {
+    /**
+     * How long a stored response is replayed for a repeated Idempotency-Key.
+     */
+    private Duration ttl = Duration.ofHours(24);
+
+    /**
+     * Upper bound on responses kept in memory; evicted keys are looked up in the database.
+     */
+    private int maxCachedKeys = 100_000;
+
+    /**
+     * Rows removed per DELETE statement by the expiry job.
+     */
+    private int cleanupBatchSize = 1_000;
+}
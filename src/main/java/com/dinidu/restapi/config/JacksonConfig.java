@@ -0,0 +1,45 @@
+package com.dinidu.restapi.config;
+
+import com.dinidu.restapi.web.SparseFieldsets;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+@Configuration
+public class JacksonConfig {
+
+    /**
+     * DTOs carrying the sparse fieldset filter serialize every property unless a request
+     * selects fields.
+     */
+    @Bean
+    public Jackson2ObjectMapperBuilderCustomizer sparseFieldsetDefaults() {
+        return builder -> builder.filters(new SimpleFilterProvider()
+                .addFilter(SparseFieldsets.FILTER_ID, SimpleBeanPropertyFilter.serializeAll()));
+    }
+
+    /**
+     * {@code Accept: application/cbor}. Built from Boot's builder so it shares the JSON
+     * mapper's inclusion, date and filter settings; replaces the converter Spring MVC would
+     * otherwise register with plain defaults.
+     */
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+
+    /**
+     * {@code Accept: application/x-jackson-smile}, configured like the CBOR converter.
+     */
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+    }
+}
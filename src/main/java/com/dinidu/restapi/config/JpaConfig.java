@@ -1,7 +1,131 @@
 package com.dinidu.restapi.config;
 
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
 
 @Configuration
 public class JpaConfig {
+
+    /**
+     * Re-checks {@code spring.flyway.enabled} at run time. With AOT the Flyway beans are fixed
+     * at build time, so the property alone cannot keep the image's training run (which has no
+     * database) from migrating.
+     */
+    @Bean
+    FlywayMigrationStrategy flywayMigrationStrategy(Environment environment) {
+        return flyway -> {
+            if (environment.getProperty("spring.flyway.enabled", Boolean.class, true)) {
+                flyway.migrate();
+            }
+        };
+    }
+
+    /**
+     * Read/write splitting ({@code app.datasource.routing.enabled=true}) and per-workload pools
+     * ({@code app.datasource.workloads.enabled=true}). Workload pools sit in front of the
+     * primary, so read-only transactions still go to a replica when both are enabled. The
+     * default primary pool is still configured through {@code spring.datasource.*}.
+     */
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnExpression("${app.datasource.routing.enabled:false} or ${app.datasource.workloads.enabled:false}")
+    static class RoutingDataSourceConfiguration {
+
+        @Bean
+        @ConfigurationProperties("spring.datasource.hikari")
+        HikariDataSource primaryDataSource(DataSourceProperties dataSourceProperties) {
+            return dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        }
+
+        @Bean
+        @ConditionalOnProperty(prefix = "app.datasource.workloads", name = "enabled", havingValue = "true")
+        WorkloadRoutingDataSource workloadRoutingDataSource(HikariDataSource primaryDataSource,
+                                                            WorkloadPoolProperties properties,
+                                                            MeterRegistry meterRegistry) {
+            Map<Workload.Type, HikariDataSource> pools = new EnumMap<>(Workload.Type.class);
+            for (Workload.Type type : Workload.Type.values()) {
+                WorkloadPoolProperties.Pool settings = properties.pool(type);
+                HikariDataSource pool = new HikariDataSource();
+                pool.setPoolName(type.name().toLowerCase().replace('_', '-'));
+                pool.setJdbcUrl(primaryDataSource.getJdbcUrl());
+                pool.setUsername(primaryDataSource.getUsername());
+                pool.setPassword(primaryDataSource.getPassword());
+                pool.setMaximumPoolSize(settings.getMaximumPoolSize());
+                pool.setConnectionTimeout(settings.getConnectionTimeout().toMillis());
+                pool.setMetricRegistry(meterRegistry);
+                pools.put(type, pool);
+            }
+            return new WorkloadRoutingDataSource(primaryDataSource, pools);
+        }
+
+        @Bean
+        @ConditionalOnProperty(prefix = "app.datasource.routing", name = "enabled", havingValue = "true")
+        ReplicaRoutingDataSource replicaRoutingDataSource(HikariDataSource primaryDataSource,
+                                                          ObjectProvider<WorkloadRoutingDataSource> workloadRouting,
+                                                          ReplicaRoutingProperties properties,
+                                                          MeterRegistry meterRegistry) {
+            List<HikariDataSource> replicaPools = new ArrayList<>();
+            for (int i = 0; i < properties.getReplicas().size(); i++) {
+                ReplicaRoutingProperties.Replica replica = properties.getReplicas().get(i);
+                HikariDataSource pool = new HikariDataSource();
+                pool.setPoolName("replica-" + (i + 1));
+                pool.setJdbcUrl(replica.getUrl());
+                pool.setUsername(replica.getUsername() != null ? replica.getUsername() : primaryDataSource.getUsername());
+                pool.setPassword(replica.getPassword() != null ? replica.getPassword() : primaryDataSource.getPassword());
+                pool.setMaximumPoolSize(replica.getMaximumPoolSize() != null
+                        ? replica.getMaximumPoolSize() : primaryDataSource.getMaximumPoolSize());
+                pool.setReadOnly(true);
+                pool.setMetricRegistry(meterRegistry);
+                replicaPools.add(pool);
+            }
+            return new ReplicaRoutingDataSource(writeTarget(primaryDataSource, workloadRouting),
+                    replicaPools, properties, meterRegistry);
+        }
+
+        @Bean
+        @Primary
+        DataSource dataSource(HikariDataSource primaryDataSource,
+                              ObjectProvider<ReplicaRoutingDataSource> replicaRouting,
+                              ObjectProvider<WorkloadRoutingDataSource> workloadRouting) {
+            ReplicaRoutingDataSource replicas = replicaRouting.getIfAvailable();
+            return new LazyConnectionDataSourceProxy(replicas != null
+                    ? replicas : writeTarget(primaryDataSource, workloadRouting));
+        }
+
+        private static DataSource writeTarget(HikariDataSource primaryDataSource,
+                                              ObjectProvider<WorkloadRoutingDataSource> workloadRouting) {
+            WorkloadRoutingDataSource workloads = workloadRouting.getIfAvailable();
+            return workloads != null ? workloads : primaryDataSource;
+        }
+
+        /**
+         * With open-in-view the session would otherwise keep the connection of the first
+         * transaction for the whole request, so a write after a read would reach the replica
+         * or the pool of another workload.
+         */
+        @Bean
+        HibernatePropertiesCustomizer releaseConnectionAfterTransaction() {
+            return hibernateProperties -> hibernateProperties.put(AvailableSettings.CONNECTION_HANDLING,
+                    PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+        }
+    }
 }
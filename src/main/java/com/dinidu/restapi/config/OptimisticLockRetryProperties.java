@@ -0,0 +1,22 @@
+package com.dinidu.restapi.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "app.optimistic-lock.retry")
+public class OptimisticLockRetryProperties {
+    /**
+     * Total attempts including the first one.
+     */
+    private int maxAttempts = 3;
+
+    /**
+     * Upper bound of the jittered sleep before the first retry; doubles per retry.
+     */
+    private Duration initialBackoff = Duration.ofMillis(10);
+
+    private Duration maxBackoff = Duration.ofMillis(200);
+}
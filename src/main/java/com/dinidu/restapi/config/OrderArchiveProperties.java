@@ -0,0 +1,27 @@
+package com.dinidu.restapi.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "app.orders.archive")
+public class OrderArchiveProperties {
+    /**
+     * Requires the partitioned schema from the {@code db/partitioning} Flyway migration.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Number of future monthly partitions kept in place ahead of the current month.
+     */
+    private int partitionsAhead = 3;
+
+    /**
+     * Delivered and cancelled orders older than this are moved to the archive tables.
+     */
+    private Duration retention = Duration.ofDays(180);
+
+    private int batchSize = 1000;
+}
@@ -0,0 +1,27 @@
+package com.dinidu.restapi.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "app.orders.events")
+public class OrderEventProperties {
+    private int maxBatchSize = 1_000;
+
+    /**
+     * Keep below spring.mvc.async.request-timeout so polls end with an empty batch, not a 503.
+     */
+    private Duration longPollTimeout = Duration.ofSeconds(25);
+
+    /**
+     * How often the events held back by running transactions are measured.
+     */
+    private Duration horizonCheckInterval = Duration.ofSeconds(10);
+
+    /**
+     * Events held back by a transaction running longer than this are logged as a warning.
+     */
+    private Duration horizonWarnAfter = Duration.ofSeconds(30);
+}
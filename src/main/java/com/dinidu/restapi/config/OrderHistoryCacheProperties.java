@@ -0,0 +1,29 @@
+package com.dinidu.restapi.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "app.orders.history-cache")
+public class OrderHistoryCacheProperties {
+    private boolean enabled = false;
+
+    /**
+     * Most recent orders kept per user; first pages up to this size are served from memory.
+     */
+    private int recentOrders = 20;
+
+    /**
+     * Approximate memory budget across all users; the least valuable histories are evicted beyond it.
+     */
+    private DataSize maxSize = DataSize.ofMegabytes(32);
+
+    /**
+     * Upper bound on how long a history is served before it is reloaded, covering changes
+     * made by other instances or by archiving.
+     */
+    private Duration ttl = Duration.ofMinutes(10);
+}
@@ -0,0 +1,73 @@
+package com.dinidu.restapi.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "app.pricing")
+public class PricingProperties {
+    /**
+     * Currency of all stored prices and totals; amounts are computed in its minor units.
+     */
+    private Currency currency = Currency.getInstance("USD");
+
+    /**
+     * Tax on the order total after discounts, in percent (e.g. 8.25).
+     */
+    private BigDecimal taxRate = BigDecimal.ZERO;
+
+    /**
+     * Applied to each order line in order, each on what the previous ones left.
+     */
+    private List<Rule> lineRules = new ArrayList<>();
+
+    /**
+     * Applied to the sum of the discounted lines, in order.
+     */
+    private List<Rule> orderRules = new ArrayList<>();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Rule {
+        private Type type;
+
+        /**
+         * Percent off for PERCENTAGE, amount off (in currency units) for FIXED.
+         */
+        private BigDecimal value;
+
+        /**
+         * Rule only applies from this line quantity (line rules) or order subtotal (order rules).
+         */
+        private BigDecimal minimum = BigDecimal.ZERO;
+
+        /**
+         * TIERED only: the tier with the highest minimum that is reached applies.
+         */
+        private List<Tier> tiers = new ArrayList<>();
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Tier {
+        private BigDecimal minimum;
+
+        /**
+         * Percent off.
+         */
+        private BigDecimal percent;
+    }
+
+    public enum Type {
+        PERCENTAGE, FIXED, TIERED
+    }
+}
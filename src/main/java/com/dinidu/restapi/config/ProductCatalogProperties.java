@@ -0,0 +1,37 @@
+package com.dinidu.restapi.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "app.products.catalog")
+public class ProductCatalogProperties {
+    /**
+     * When enabled, product reads are served from an in-memory snapshot of the whole catalog.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Full reload interval; picks up changes made by other instances or outside the application.
+     */
+    private Duration refreshInterval = Duration.ofSeconds(30);
+
+    /**
+     * How often committed product changes are patched into the snapshot.
+     */
+    private Duration applyInterval = Duration.ofMillis(100);
+
+    /**
+     * How long reads may still be served from a snapshot that lacks committed changes; after
+     * that they go to the database until the changes are patched in. Zero sends them there
+     * straight away.
+     */
+    private Duration maxChangeLag = Duration.ofSeconds(1);
+
+    /**
+     * Reads go back to the database when the last full reload is older than this.
+     */
+    private Duration maxStaleness = Duration.ofMinutes(2);
+}
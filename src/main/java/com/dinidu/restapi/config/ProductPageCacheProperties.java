@@ -0,0 +1,29 @@
+package com.dinidu.restapi.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "app.products.page-cache")
+public class ProductPageCacheProperties {
+    private boolean enabled = false;
+
+    /**
+     * Only the first {@code maxPages} pages of {@code GET /products} are cached.
+     */
+    private int maxPages = 3;
+
+    private int maxPageSize = 100;
+
+    /**
+     * Pages at least this large are also kept gzip-compressed for clients that accept it.
+     */
+    private int gzipMinBytes = 1024;
+
+    /**
+     * Upper bound on how long a page is served, covering invalidations that never arrived.
+     */
+    private Duration ttl = Duration.ofMinutes(1);
+}
@@ -0,0 +1,182 @@
+package com.dinidu.restapi.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Sends connections requested inside read-only transactions to a replica and everything else
+ * to the primary. Replicas that cannot be reached or lag more than {@code maxLag} are skipped;
+ * with no usable replica, reads fall back to the primary.
+ * <p>
+ * The transaction's read-only flag is only known once Spring has started the transaction, so
+ * this data source must sit behind a {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}.
+ * Reads whose results are cached go through {@link #readFromPrimary}, since a lagging replica
+ * could otherwise hand the cache data that no invalidation will ever replace. Clients that
+ * just wrote are kept on the primary by {@link com.dinidu.restapi.web.ReadYourWritesInterceptor}.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractDataSource implements DisposableBean {
+    private static final String LAG_QUERY = "SELECT CASE WHEN NOT pg_is_in_recovery() "
+            + "OR pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 "
+            + "ELSE EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) END";
+
+    private static final ThreadLocal<Boolean> PRIMARY_READS = new ThreadLocal<>();
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final ReplicaRoutingProperties properties;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+
+    public ReplicaRoutingDataSource(DataSource primary, List<HikariDataSource> replicaPools,
+                                    ReplicaRoutingProperties properties, MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.properties = properties;
+        this.replicas = replicaPools.stream().map(Replica::new).toList();
+        for (Replica replica : replicas) {
+            Gauge.builder("datasource.replica.lag", replica, r -> r.lagSeconds)
+                    .tag("pool", replica.pool.getPoolName())
+                    .baseUnit("seconds")
+                    .register(meterRegistry);
+            Gauge.builder("datasource.replica.available", replica, r -> r.available ? 1 : 0)
+                    .tag("pool", replica.pool.getPoolName())
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Runs {@code action} with every connection it opens taken from the primary. Connections
+     * already held by the surrounding transaction are not affected.
+     */
+    public static <T> T readFromPrimary(Supplier<T> action) {
+        Boolean previous = PRIMARY_READS.get();
+        PRIMARY_READS.set(Boolean.TRUE);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                PRIMARY_READS.remove();
+            } else {
+                PRIMARY_READS.set(previous);
+            }
+        }
+    }
+
+    /**
+     * Sends every connection the current thread opens to the primary until {@link #endPrimaryReads},
+     * for callers that cannot wrap their work in {@link #readFromPrimary}.
+     */
+    public static void startPrimaryReads() {
+        PRIMARY_READS.set(Boolean.TRUE);
+    }
+
+    public static void endPrimaryReads() {
+        PRIMARY_READS.remove();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        boolean replicaAllowed = TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                && PRIMARY_READS.get() == null;
+        Replica replica = replicaAllowed ? selectReplica() : null;
+        if (replica == null) {
+            return primary.getConnection();
+        }
+        try {
+            return replica.pool.getConnection();
+        } catch (SQLException e) {
+            replica.markUnavailable(e.getMessage());
+            return primary.getConnection();
+        }
+    }
+
+    /**
+     * Replica pools are configured with their own credentials, so connections for other
+     * credentials always come from the primary.
+     */
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return primary.getConnection(username, password);
+    }
+
+    @Scheduled(fixedDelayString = "${app.datasource.routing.lag-check-interval:PT1S}")
+    public void checkReplicas() {
+        double maxLagSeconds = properties.getMaxLag().toMillis() / 1000.0;
+        for (Replica replica : replicas) {
+            try (Connection connection = replica.pool.getConnection();
+                 Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery(LAG_QUERY)) {
+                resultSet.next();
+                replica.lagSeconds = resultSet.getDouble(1);
+                if (replica.lagSeconds > maxLagSeconds) {
+                    replica.markUnavailable("lag of " + replica.lagSeconds + "s exceeds " + maxLagSeconds + "s");
+                } else {
+                    replica.markAvailable();
+                }
+            } catch (SQLException e) {
+                replica.markUnavailable(e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        replicas.forEach(replica -> replica.pool.close());
+    }
+
+    private Replica selectReplica() {
+        List<Replica> available = replicas.stream().filter(replica -> replica.available).toList();
+        if (available.isEmpty()) {
+            return null;
+        }
+        if (properties.getSelection() == ReplicaRoutingProperties.Selection.LEAST_LOADED) {
+            return available.stream()
+                    .min(Comparator.comparingInt(Replica::activeConnections))
+                    .orElseThrow();
+        }
+        return available.get(Math.floorMod(nextReplica.getAndIncrement(), available.size()));
+    }
+
+    private static final class Replica {
+        private final HikariDataSource pool;
+        private volatile boolean available = true;
+        private volatile double lagSeconds;
+
+        private Replica(HikariDataSource pool) {
+            this.pool = pool;
+        }
+
+        private int activeConnections() {
+            return pool.getHikariPoolMXBean() != null ? pool.getHikariPoolMXBean().getActiveConnections() : 0;
+        }
+
+        private void markAvailable() {
+            if (!available) {
+                log.info("Replica {} is back in rotation", pool.getPoolName());
+            }
+            available = true;
+        }
+
+        private void markUnavailable(String reason) {
+            if (available) {
+                log.warn("Taking replica {} out of rotation: {}", pool.getPoolName(), reason);
+            }
+            available = false;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.dinidu.restapi.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "app.datasource.routing")
+public class ReplicaRoutingProperties {
+    /**
+     * When enabled, read-only transactions are served by the configured replicas.
+     */
+    private boolean enabled = false;
+
+    private Selection selection = Selection.ROUND_ROBIN;
+
+    /**
+     * Replicas lagging further behind the primary than this are skipped until they catch up.
+     */
+    private Duration maxLag = Duration.ofSeconds(5);
+
+    private Duration lagCheckInterval = Duration.ofSeconds(1);
+
+    private List<Replica> replicas = new ArrayList<>();
+
+    @Data
+    public static class Replica {
+        private String url;
+
+        /**
+         * Defaults to the primary's credentials and pool size when not set.
+         */
+        private String username;
+        private String password;
+        private Integer maximumPoolSize;
+    }
+
+    public enum Selection {
+        ROUND_ROBIN, LEAST_LOADED
+    }
+}
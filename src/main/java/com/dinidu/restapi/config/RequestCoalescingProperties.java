@@ -0,0 +1,17 @@
+package com.dinidu.restapi.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "app.coalescing")
+public class RequestCoalescingProperties {
+    private boolean enabled = true;
+
+    /**
+     * How long a caller waits for an identical in-flight load before running its own.
+     */
+    private Duration maxWait = Duration.ofSeconds(2);
+}
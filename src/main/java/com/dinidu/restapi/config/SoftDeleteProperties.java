@@ -0,0 +1,25 @@
+package com.dinidu.restapi.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "app.soft-delete")
+public class SoftDeleteProperties {
+    /**
+     * How long deleted users, orders and products are kept before they are purged.
+     */
+    private Duration retention = Duration.ofDays(30);
+
+    /**
+     * Rows removed per DELETE statement by the purge job; each batch commits on its own.
+     */
+    private int purgeBatchSize = 500;
+
+    /**
+     * Batches deleted per table and run; a backlog beyond that is left to the following runs.
+     */
+    private int maxPurgeBatchesPerRun = 20;
+}
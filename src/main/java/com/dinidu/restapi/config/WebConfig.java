@@ -0,0 +1,23 @@
+package com.dinidu.restapi.config;
+
+import com.dinidu.restapi.web.ConcurrencyLimitInterceptor;
+import com.dinidu.restapi.web.ReadYourWritesInterceptor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+@RequiredArgsConstructor
+public class WebConfig implements WebMvcConfigurer {
+    private final ConcurrencyLimitInterceptor concurrencyLimitInterceptor;
+    private final ReadYourWritesInterceptor readYourWritesInterceptor;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(concurrencyLimitInterceptor)
+                .addPathPatterns("/orders/**", "/products/**", "/users/**");
+        registry.addInterceptor(readYourWritesInterceptor)
+                .addPathPatterns("/orders/**", "/products/**", "/users/**");
+    }
+}
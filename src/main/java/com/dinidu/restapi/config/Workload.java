@@ -0,0 +1,37 @@
+package com.dinidu.restapi.config;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Runs a service method in the connection pool and bulkhead of the given workload when
+ * {@code app.datasource.workloads.enabled=true}. Unannotated methods use the default pool;
+ * methods called from inside another workload stay in the outer one.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Workload {
+
+    Type value();
+
+    enum Type {
+        /**
+         * Creating, transitioning and cancelling orders.
+         */
+        ORDER_WRITES,
+
+        /**
+         * Short transactional reads: lookups by id and first pages.
+         */
+        READS,
+
+        /**
+         * Listings, searches and range scans that may run long.
+         */
+        REPORTING
+    }
+}
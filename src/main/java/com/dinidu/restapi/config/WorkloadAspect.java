@@ -0,0 +1,33 @@
+package com.dinidu.restapi.config;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Runs methods annotated with {@link Workload} inside their workload's bulkhead, so the
+ * workload is known to {@link WorkloadRoutingDataSource} before a connection is requested.
+ * Runs outside the transaction interceptor for the same reason, but inside Spring's
+ * {@code ExposeInvocationInterceptor} (at {@code HIGHEST_PRECEDENCE + 1}), without which the
+ * {@code workload} argument cannot be bound.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class WorkloadAspect {
+    private final WorkloadBulkheads bulkheads;
+
+    public WorkloadAspect(WorkloadBulkheads bulkheads) {
+        this.bulkheads = bulkheads;
+    }
+
+    @Around("@annotation(workload)")
+    public Object runInWorkload(ProceedingJoinPoint joinPoint, Workload workload) throws Throwable {
+        try (WorkloadBulkheads.Permit permit = bulkheads.enter(workload.value())) {
+            return joinPoint.proceed();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.dinidu.restapi.config;
+
+import com.dinidu.restapi.exceptions.ServiceUnavailableException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounds how many callers run in each {@link Workload} at once and marks the thread with the
+ * workload for {@link WorkloadRoutingDataSource}. Used by {@link WorkloadAspect} for annotated
+ * methods, and directly by code that has to give its permit back in between, such as retries
+ * waiting out a backoff.
+ * <p>
+ * The bulkheads are semaphores rather than executor pools: service methods run on the
+ * request thread, and handing them to another thread would not free that thread.
+ */
+@Component
+public class WorkloadBulkheads {
+    private static final Permit NESTED = () -> {
+    };
+
+    private final WorkloadPoolProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Map<Workload.Type, Semaphore> bulkheads = new EnumMap<>(Workload.Type.class);
+    private final Map<Workload.Type, Timer> waitTimers = new EnumMap<>(Workload.Type.class);
+
+    public WorkloadBulkheads(WorkloadPoolProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        for (Workload.Type type : Workload.Type.values()) {
+            int maxConcurrentCalls = properties.pool(type).getMaxConcurrentCalls();
+            Semaphore bulkhead = new Semaphore(maxConcurrentCalls, true);
+            bulkheads.put(type, bulkhead);
+            waitTimers.put(type, Timer.builder("workload.bulkhead.wait")
+                    .tag("workload", workloadTag(type))
+                    .register(meterRegistry));
+            Gauge.builder("workload.bulkhead.active", bulkhead,
+                            semaphore -> maxConcurrentCalls - semaphore.availablePermits())
+                    .tag("workload", workloadTag(type))
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Waits up to the workload's {@code maxWait} for a permit and fails with 503 when none
+     * frees up. Callers already inside a workload (or with workloads disabled) stay where they
+     * are and get a permit that releases nothing.
+     */
+    public Permit enter(Workload.Type type) {
+        if (!properties.isEnabled() || WorkloadContext.current() != null) {
+            return NESTED;
+        }
+        Semaphore bulkhead = bulkheads.get(type);
+        long start = System.nanoTime();
+        boolean admitted;
+        try {
+            admitted = bulkhead.tryAcquire(properties.pool(type).getMaxWait().toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException("Interrupted while waiting for a " + workloadTag(type) + " slot", 1);
+        }
+        waitTimers.get(type).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        if (!admitted) {
+            meterRegistry.counter("workload.bulkhead.rejected", "workload", workloadTag(type)).increment();
+            throw new ServiceUnavailableException(
+                    "Too many concurrent " + workloadTag(type) + " requests, please retry later", 1);
+        }
+
+        WorkloadContext.set(type);
+        return () -> {
+            WorkloadContext.clear();
+            bulkhead.release();
+        };
+    }
+
+    private static String workloadTag(Workload.Type type) {
+        return type.name().toLowerCase().replace('_', '-');
+    }
+
+    /**
+     * A slot in a workload; closing it leaves the workload.
+     */
+    @FunctionalInterface
+    public interface Permit extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
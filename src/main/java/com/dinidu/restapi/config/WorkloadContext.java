@@ -0,0 +1,23 @@
+package com.dinidu.restapi.config;
+
+/**
+ * The workload the current thread is running in, set by {@link WorkloadAspect}.
+ */
+final class WorkloadContext {
+    private static final ThreadLocal<Workload.Type> CURRENT = new ThreadLocal<>();
+
+    private WorkloadContext() {
+    }
+
+    static Workload.Type current() {
+        return CURRENT.get();
+    }
+
+    static void set(Workload.Type type) {
+        CURRENT.set(type);
+    }
+
+    static void clear() {
+        CURRENT.remove();
+    }
+}
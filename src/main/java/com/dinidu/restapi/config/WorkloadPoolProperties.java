@@ -0,0 +1,52 @@
+package com.dinidu.restapi.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "app.datasource.workloads")
+public class WorkloadPoolProperties {
+    /**
+     * When enabled, methods annotated with {@link Workload} get their own connection pool on the
+     * primary and a bounded number of concurrent callers.
+     */
+    private boolean enabled = false;
+
+    private Pool orderWrites = new Pool(6, Duration.ofSeconds(2), 12, Duration.ofMillis(500));
+
+    private Pool reads = new Pool(6, Duration.ofSeconds(1), 24, Duration.ofMillis(200));
+
+    private Pool reporting = new Pool(3, Duration.ofSeconds(5), 6, Duration.ofMillis(100));
+
+    public Pool pool(Workload.Type type) {
+        return switch (type) {
+            case ORDER_WRITES -> orderWrites;
+            case READS -> reads;
+            case REPORTING -> reporting;
+        };
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Pool {
+        private int maximumPoolSize;
+
+        /**
+         * How long a caller waits for a connection of this pool before the call fails.
+         */
+        private Duration connectionTimeout;
+
+        /**
+         * Callers allowed in the workload at once; further callers wait up to {@code maxWait}
+         * and are then rejected with 503.
+         */
+        private int maxConcurrentCalls;
+
+        private Duration maxWait;
+    }
+}
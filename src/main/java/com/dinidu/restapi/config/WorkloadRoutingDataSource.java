@@ -0,0 +1,34 @@
+package com.dinidu.restapi.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Hands out connections from the pool of the current {@link Workload}, or from the default
+ * pool outside of annotated methods, so a burst in one workload cannot drain the connections
+ * another depends on.
+ */
+public class WorkloadRoutingDataSource extends AbstractRoutingDataSource implements DisposableBean {
+    private final Map<Workload.Type, HikariDataSource> pools;
+
+    public WorkloadRoutingDataSource(DataSource defaultPool, Map<Workload.Type, HikariDataSource> pools) {
+        this.pools = pools;
+        setDefaultTargetDataSource(defaultPool);
+        setTargetDataSources(new HashMap<>(pools));
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return WorkloadContext.current();
+    }
+
+    @Override
+    public void destroy() {
+        pools.values().forEach(HikariDataSource::close);
+    }
+}
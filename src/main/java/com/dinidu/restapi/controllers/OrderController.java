@@ -1,9 +1,21 @@
 package com.dinidu.restapi.controllers;
 
 import com.dinidu.restapi.dtos.ApiResponse;
+import com.dinidu.restapi.dtos.BulkCancelDTO;
+import com.dinidu.restapi.dtos.BulkOrderResultDTO;
+import com.dinidu.restapi.dtos.BulkStatusUpdateDTO;
 import com.dinidu.restapi.dtos.OrderDTO;
+import com.dinidu.restapi.dtos.OrderEventDTO;
+import com.dinidu.restapi.dtos.OrderTicketDTO;
+import com.dinidu.restapi.exceptions.ResourceNotFoundException;
 import com.dinidu.restapi.models.Order;
+import com.dinidu.restapi.services.BatchGets;
+import com.dinidu.restapi.services.AsyncOrderService;
+import com.dinidu.restapi.services.IdempotencyService;
+import com.dinidu.restapi.services.OrderEventService;
 import com.dinidu.restapi.services.OrderService;
+import com.dinidu.restapi.web.ETags;
+import com.dinidu.restapi.web.SparseFieldsets;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -11,26 +23,40 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/orders")
 @RequiredArgsConstructor
 @Slf4j
 public class OrderController {
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    private static final long TICKET_SUBSCRIPTION_TIMEOUT_MILLIS = 60_000;
+
     private final OrderService orderService;
+    private final IdempotencyService idempotencyService;
+    private final AsyncOrderService asyncOrderService;
+    private final OrderEventService orderEventService;
 
     @GetMapping
     public ResponseEntity<ApiResponse<List<OrderDTO>>> getAllOrders(
+            @RequestParam(value = SparseFieldsets.PARAM, required = false) String fields,
             @PageableDefault(size = 10, sort = "createdAt", direction = Sort.Direction.DESC) Pageable pageable) {
         log.info("GET /orders - Fetching all orders");
-        Page<OrderDTO> page = orderService.getAllOrders(pageable);
+        Page<OrderDTO> page = orderService.getAllOrders(pageable, includesItems(fields));
 
         Map<String, Object> metadata = paginationMetadata(page);
 
@@ -44,35 +70,154 @@ public class OrderController {
         );
     }
 
+    @GetMapping("/batch")
+    public ResponseEntity<ApiResponse<List<OrderDTO>>> getOrdersByIds(
+            @RequestParam List<Long> ids,
+            @RequestParam(value = SparseFieldsets.PARAM, required = false) String fields) {
+        log.info("GET /orders/batch - Fetching {} orders by id", ids.size());
+        List<OrderDTO> orders = orderService.getOrdersByIds(ids, includesItems(fields));
+
+        return ResponseEntity.ok(
+                ApiResponse.<List<OrderDTO>>builder()
+                        .success(true)
+                        .message("Orders fetched successfully")
+                        .data(orders)
+                        .metadata(BatchGets.metadata(ids, orders, OrderDTO::getId))
+                        .build()
+        );
+    }
+
     @GetMapping("/{id}")
-    public ResponseEntity<ApiResponse<OrderDTO>> getOrderById(@PathVariable Long id) {
+    public ResponseEntity<ApiResponse<OrderDTO>> getOrderById(
+            @PathVariable Long id,
+            @RequestParam(value = SparseFieldsets.PARAM, required = false) String fields,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         log.info("GET /orders/{} - Fetching order by id", id);
-        OrderDTO order = orderService.getOrderById(id);
-        return ResponseEntity.ok(ApiResponse.success(order, "Order fetched successfully"));
+        if (ifNoneMatch != null) {
+            String currentETag = ETags.forFields(orderService.getOrderETag(id, includesItems(fields)), fields);
+            if (ETags.matchesAny(ifNoneMatch, currentETag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(currentETag).build();
+            }
+        }
+        OrderDTO order = orderService.getOrderById(id, includesItems(fields));
+        return ResponseEntity.ok()
+                .eTag(ETags.forFields(ETags.of(order), fields))
+                .body(ApiResponse.success(order, "Order fetched successfully"));
     }
 
     @GetMapping("/order-number/{orderNumber}")
-    public ResponseEntity<ApiResponse<OrderDTO>> getOrderByOrderNumber(@PathVariable String orderNumber) {
+    public ResponseEntity<ApiResponse<OrderDTO>> getOrderByOrderNumber(
+            @PathVariable String orderNumber,
+            @RequestParam(value = SparseFieldsets.PARAM, required = false) String fields) {
         log.info("GET /orders/order-number/{} - Fetching order by order number", orderNumber);
-        OrderDTO order = orderService.getOrderByOrderNumber(orderNumber);
+        OrderDTO order = orderService.getOrderByOrderNumber(orderNumber, includesItems(fields));
         return ResponseEntity.ok(ApiResponse.success(order, "Order fetched successfully"));
     }
 
     @PostMapping
-    public ResponseEntity<ApiResponse<OrderDTO>> createOrder(@Valid @RequestBody OrderDTO orderDTO) {
+    public ResponseEntity<ApiResponse<OrderDTO>> createOrder(
+            @Valid @RequestBody OrderDTO orderDTO,
+            @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+            @RequestHeader(value = "Prefer", required = false) String prefer) {
         log.info("POST /orders - Creating new order");
-        OrderDTO createdOrder = orderService.createOrder(orderDTO);
+        if (idempotencyKey != null) {
+            Optional<OrderDTO> previousOrder = idempotencyService.findCompletedOrder(idempotencyKey, orderDTO);
+            if (previousOrder.isPresent()) {
+                log.info("POST /orders - Replaying response for Idempotency-Key {}", idempotencyKey);
+                return ResponseEntity.status(HttpStatus.CREATED)
+                        .header("Idempotent-Replayed", "true")
+                        .body(ApiResponse.success(previousOrder.get(), "Order created successfully"));
+            }
+        }
+        if (prefer != null && prefer.contains("respond-async") && asyncOrderService.isEnabled()) {
+            OrderTicketDTO ticket = asyncOrderService.submit(orderDTO, idempotencyKey);
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .location(ServletUriComponentsBuilder.fromCurrentContextPath()
+                            .path("/orders/tracking/{trackingId}")
+                            .buildAndExpand(ticket.getTrackingId())
+                            .toUri())
+                    .header("Preference-Applied", "respond-async")
+                    .body(ApiResponse.<OrderDTO>builder()
+                            .success(true)
+                            .message("Order accepted for processing")
+                            .metadata(ticket)
+                            .build());
+        }
+        OrderDTO createdOrder = orderService.createOrder(orderDTO, idempotencyKey);
         return ResponseEntity.status(HttpStatus.CREATED)
                 .body(ApiResponse.success(createdOrder, "Order created successfully"));
     }
 
+    @GetMapping("/events")
+    public ResponseEntity<ApiResponse<List<OrderEventDTO>>> getOrderEvents(
+            @RequestParam(defaultValue = "0") long after,
+            @RequestParam(defaultValue = "500") int limit) {
+        log.info("GET /orders/events?after={} - Fetching order events", after);
+        List<OrderEventDTO> events = orderEventService.getEventsAfter(after, limit);
+        return ResponseEntity.ok(eventFeedResponse(events, after));
+    }
+
+    @GetMapping("/events/poll")
+    public CompletableFuture<ResponseEntity<ApiResponse<List<OrderEventDTO>>>> pollOrderEvents(
+            @RequestParam(defaultValue = "0") long after,
+            @RequestParam(defaultValue = "500") int limit) {
+        log.info("GET /orders/events/poll?after={} - Long-polling order events", after);
+        return orderEventService.pollEventsAfter(after, limit)
+                .thenApply(events -> ResponseEntity.ok(eventFeedResponse(events, after)));
+    }
+
+    @GetMapping("/tracking/{trackingId}")
+    public ResponseEntity<ApiResponse<OrderTicketDTO>> getOrderTicket(@PathVariable String trackingId) {
+        log.info("GET /orders/tracking/{} - Fetching order ticket", trackingId);
+        OrderTicketDTO ticket = asyncOrderService.getTicket(trackingId)
+                .orElseThrow(() -> new ResourceNotFoundException("Order ticket not found: " + trackingId));
+        return ResponseEntity.ok(ApiResponse.success(ticket, "Order ticket fetched successfully"));
+    }
+
+    @GetMapping(value = "/tracking/{trackingId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribeToOrderTicket(@PathVariable String trackingId) {
+        log.info("GET /orders/tracking/{}/events - Subscribing to order ticket", trackingId);
+        CompletableFuture<OrderTicketDTO> completion = asyncOrderService.awaitTicket(trackingId)
+                .orElseThrow(() -> new ResourceNotFoundException("Order ticket not found: " + trackingId));
+
+        SseEmitter emitter = new SseEmitter(TICKET_SUBSCRIPTION_TIMEOUT_MILLIS);
+        completion.whenComplete((ticket, failure) -> {
+            try {
+                emitter.send(SseEmitter.event().name("order").data(ticket));
+                emitter.complete();
+            } catch (IOException | IllegalStateException e) {
+                emitter.completeWithError(e);
+            }
+        });
+        return emitter;
+    }
+
     @PutMapping("/{id}/status")
     public ResponseEntity<ApiResponse<OrderDTO>> updateOrderStatus(
             @PathVariable Long id,
-            @RequestParam Order.OrderStatus status) {
+            @RequestParam Order.OrderStatus status,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         log.info("PUT /orders/{}/status - Updating order status to {}", id, status);
-        OrderDTO updatedOrder = orderService.updateOrderStatus(id, status);
-        return ResponseEntity.ok(ApiResponse.success(updatedOrder, "Order status updated successfully"));
+        OrderDTO updatedOrder = orderService.updateOrderStatus(id, status, ifMatch);
+        return ResponseEntity.ok()
+                .eTag(ETags.of(updatedOrder))
+                .body(ApiResponse.success(updatedOrder, "Order status updated successfully"));
+    }
+
+    @PutMapping("/status")
+    public ResponseEntity<ApiResponse<List<BulkOrderResultDTO>>> bulkUpdateOrderStatus(
+            @Valid @RequestBody BulkStatusUpdateDTO request) {
+        log.info("PUT /orders/status - Bulk updating order status to {}", request.getStatus());
+        List<BulkOrderResultDTO> results = orderService.bulkUpdateStatus(request);
+        return ResponseEntity.ok(bulkResponse(results, "Order statuses updated"));
+    }
+
+    @PostMapping("/cancel")
+    public ResponseEntity<ApiResponse<List<BulkOrderResultDTO>>> cancelOrders(
+            @Valid @RequestBody BulkCancelDTO request) {
+        log.info("POST /orders/cancel - Cancelling {} orders", request.getOrderIds().size());
+        List<BulkOrderResultDTO> results = orderService.cancelOrders(request.getOrderIds());
+        return ResponseEntity.ok(bulkResponse(results, "Orders cancelled"));
     }
 
     @DeleteMapping("/{id}")
@@ -85,9 +230,10 @@ public class OrderController {
     @GetMapping("/user/{userId}")
     public ResponseEntity<ApiResponse<List<OrderDTO>>> getOrdersByUserId(
             @PathVariable Long userId,
+            @RequestParam(value = SparseFieldsets.PARAM, required = false) String fields,
             @PageableDefault(size = 10, sort = "createdAt", direction = Sort.Direction.DESC) Pageable pageable) {
         log.info("GET /orders/user/{} - Fetching orders for user", userId);
-        Page<OrderDTO> page = orderService.getOrdersByUserId(userId, pageable);
+        Page<OrderDTO> page = orderService.getOrdersByUserId(userId, pageable, includesItems(fields));
 
         Map<String, Object> metadata = paginationMetadata(page);
 
@@ -104,9 +250,10 @@ public class OrderController {
     @GetMapping("/status/{status}")
     public ResponseEntity<ApiResponse<List<OrderDTO>>> getOrdersByStatus(
             @PathVariable Order.OrderStatus status,
+            @RequestParam(value = SparseFieldsets.PARAM, required = false) String fields,
             @PageableDefault(size = 10, sort = "createdAt", direction = Sort.Direction.DESC) Pageable pageable) {
         log.info("GET /orders/status/{} - Fetching orders by status", status);
-        Page<OrderDTO> page = orderService.getOrdersByStatus(status, pageable);
+        Page<OrderDTO> page = orderService.getOrdersByStatus(status, pageable, includesItems(fields));
 
         Map<String, Object> metadata = paginationMetadata(page);
 
@@ -120,6 +267,41 @@ public class OrderController {
         );
     }
 
+    /**
+     * Order lines are only loaded when the response will contain them.
+     */
+    private boolean includesItems(String fields) {
+        return SparseFieldsets.includes(fields, "orderItems");
+    }
+
+    private ApiResponse<List<BulkOrderResultDTO>> bulkResponse(List<BulkOrderResultDTO> results, String message) {
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put("requested", results.size());
+        metadata.put("updated", results.stream()
+                .filter(result -> result.getOutcome() == BulkOrderResultDTO.Outcome.UPDATED)
+                .count());
+
+        return ApiResponse.<List<BulkOrderResultDTO>>builder()
+                .success(true)
+                .message(message)
+                .data(results)
+                .metadata(metadata)
+                .build();
+    }
+
+    private ApiResponse<List<OrderEventDTO>> eventFeedResponse(List<OrderEventDTO> events, long after) {
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put("count", events.size());
+        metadata.put("nextCursor", events.isEmpty() ? after : events.get(events.size() - 1).getId());
+
+        return ApiResponse.<List<OrderEventDTO>>builder()
+                .success(true)
+                .message("Order events fetched successfully")
+                .data(events)
+                .metadata(metadata)
+                .build();
+    }
+
     private Map<String, Object> paginationMetadata(Page<?> page) {
         Map<String, Object> metadata = new HashMap<>();
         metadata.put("currentPage", page.getNumber());
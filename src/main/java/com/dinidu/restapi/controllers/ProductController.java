@@ -1,8 +1,14 @@
 package com.dinidu.restapi.controllers;
 
+import com.dinidu.restapi.config.ReplicaRoutingDataSource;
 import com.dinidu.restapi.dtos.ApiResponse;
 import com.dinidu.restapi.dtos.ProductDTO;
+import com.dinidu.restapi.models.Product;
+import com.dinidu.restapi.services.BatchGets;
 import com.dinidu.restapi.services.ProductService;
+import com.dinidu.restapi.web.ETags;
+import com.dinidu.restapi.web.ProductPageCache;
+import com.dinidu.restapi.web.SparseFieldsets;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -10,6 +16,7 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -18,6 +25,7 @@ import java.math.BigDecimal;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/products")
@@ -25,34 +33,77 @@ import java.util.Map;
 @Slf4j
 public class ProductController {
     private final ProductService productService;
+    private final ProductPageCache productPageCache;
 
     @GetMapping
-    public ResponseEntity<ApiResponse<List<ProductDTO>>> getAllProducts(
+    public ResponseEntity<?> getAllProducts(
+            @RequestParam(value = SparseFieldsets.PARAM, required = false) String fields,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
             @PageableDefault(size = 10, sort = "createdAt", direction = Sort.Direction.DESC) Pageable pageable) {
         log.info("GET /products - Fetching all products");
 
-        Page<ProductDTO> page = productService.getAllProducts(pageable);
+        boolean cacheable = fields == null && productPageCache.isCacheable(pageable, accept);
+        if (cacheable) {
+            Optional<ProductPageCache.CachedPage> cached = productPageCache.get(pageable);
+            if (cached.isPresent()) {
+                return productPageCache.toResponse(cached.get(), acceptEncoding);
+            }
+        }
+        long generation = productPageCache.generation();
+
+        Page<ProductDTO> page = cacheable
+                ? ReplicaRoutingDataSource.readFromPrimary(() -> productService.getAllProducts(pageable))
+                : productService.getAllProducts(pageable);
 
         Map<String, Object> metadata = new HashMap<>();
         metadata.put("currentPage", page.getNumber());
         metadata.put("totalPages", page.getTotalPages());
         metadata.put("totalItems", page.getTotalElements());
 
+        ApiResponse<List<ProductDTO>> response = ApiResponse.<List<ProductDTO>>builder()
+                .success(true)
+                .message("Products fetched successfully")
+                .data(page.getContent())
+                .metadata(metadata)
+                .build();
+        if (cacheable) {
+            return productPageCache.toResponse(productPageCache.put(pageable, generation, response), acceptEncoding);
+        }
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/batch")
+    public ResponseEntity<ApiResponse<List<ProductDTO>>> getProductsByIds(@RequestParam List<Long> ids) {
+        log.info("GET /products/batch - Fetching {} products by id", ids.size());
+        List<ProductDTO> products = productService.getProductsByIds(ids);
+
         return ResponseEntity.ok(
                 ApiResponse.<List<ProductDTO>>builder()
                         .success(true)
                         .message("Products fetched successfully")
-                        .data(page.getContent())
-                        .metadata(metadata)
+                        .data(products)
+                        .metadata(BatchGets.metadata(ids, products, ProductDTO::getId))
                         .build()
         );
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<ApiResponse<ProductDTO>> getProductById(@PathVariable Long id) {
+    public ResponseEntity<ApiResponse<ProductDTO>> getProductById(
+            @PathVariable Long id,
+            @RequestParam(value = SparseFieldsets.PARAM, required = false) String fields,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         log.info("GET /products/{} - Fetching product by id", id);
+        if (ifNoneMatch != null) {
+            String currentETag = ETags.forFields(ETags.of(id, productService.getProductVersion(id)), fields);
+            if (ETags.matchesAny(ifNoneMatch, currentETag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(currentETag).build();
+            }
+        }
         ProductDTO product = productService.getProductById(id);
-        return ResponseEntity.ok(ApiResponse.success(product, "Product found"));
+        return ResponseEntity.ok()
+                .eTag(ETags.forFields(ETags.of(product.getId(), product.getUpdatedAt(), product.getCreatedAt()), fields))
+                .body(ApiResponse.success(product, "Product found"));
     }
 
     @PostMapping
@@ -64,10 +115,15 @@ public class ProductController {
     }
 
     @PutMapping("/{id}")
-    public ResponseEntity<ApiResponse<ProductDTO>> updateProduct(@PathVariable Long id, @Valid @RequestBody ProductDTO productDTO) {
+    public ResponseEntity<ApiResponse<ProductDTO>> updateProduct(
+            @PathVariable Long id,
+            @Valid @RequestBody ProductDTO productDTO,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         log.info("PUT /products/{} - Updating product", id);
-        ProductDTO updatedProduct = productService.updateProduct(id, productDTO);
-        return ResponseEntity.ok(ApiResponse.success(updatedProduct, "Product updated successfully"));
+        ProductDTO updatedProduct = productService.updateProduct(id, productDTO, ifMatch);
+        return ResponseEntity.ok()
+                .eTag(ETags.of(updatedProduct.getId(), updatedProduct.getUpdatedAt(), updatedProduct.getCreatedAt()))
+                .body(ApiResponse.success(updatedProduct, "Product updated successfully"));
     }
 
     @DeleteMapping("/{id}")
@@ -124,6 +180,29 @@ public class ProductController {
         );
     }
 
+    @GetMapping("/status/{status}")
+    public ResponseEntity<ApiResponse<List<ProductDTO>>> getProductsByStatus(
+            @PathVariable Product.ProductStatus status,
+            @PageableDefault(size = 10, sort = "createdAt", direction = Sort.Direction.DESC) Pageable pageable) {
+        log.info("GET /products/status/{} - Fetching products by status", status);
+
+        Page<ProductDTO> page = productService.getProductsByStatus(status, pageable);
+
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put("currentPage", page.getNumber());
+        metadata.put("totalPages", page.getTotalPages());
+        metadata.put("totalItems", page.getTotalElements());
+
+        return ResponseEntity.ok(
+                ApiResponse.<List<ProductDTO>>builder()
+                        .success(true)
+                        .message("Products fetched successfully")
+                        .data(page.getContent())
+                        .metadata(metadata)
+                        .build()
+        );
+    }
+
     @GetMapping("/low-stock")
     public ResponseEntity<ApiResponse<List<ProductDTO>>> getLowStockProducts(
             @RequestParam(defaultValue = "10") Integer threshold) {
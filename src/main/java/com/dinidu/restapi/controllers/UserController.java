@@ -2,7 +2,10 @@ package com.dinidu.restapi.controllers;
 
 import com.dinidu.restapi.dtos.ApiResponse;
 import com.dinidu.restapi.dtos.UserDTO;
+import com.dinidu.restapi.services.BatchGets;
 import com.dinidu.restapi.services.UserService;
+import com.dinidu.restapi.web.ETags;
+import com.dinidu.restapi.web.SparseFieldsets;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -10,6 +13,7 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -41,11 +45,37 @@ public class UserController {
         );
     }
 
+    @GetMapping("/batch")
+    public ResponseEntity<ApiResponse<List<UserDTO>>> getUsersByIds(@RequestParam List<Long> ids) {
+        log.info("GET /users/batch - Fetching {} users by id", ids.size());
+        List<UserDTO> users = userService.getUsersByIds(ids);
+
+        return ResponseEntity.ok(
+                ApiResponse.<List<UserDTO>>builder()
+                        .success(true)
+                        .message("Users fetched successfully")
+                        .data(users)
+                        .metadata(BatchGets.metadata(ids, users, UserDTO::getId))
+                        .build()
+        );
+    }
+
     @GetMapping("/{id}")
-    public ResponseEntity<ApiResponse<UserDTO>> getUserById(@PathVariable Long id) {
+    public ResponseEntity<ApiResponse<UserDTO>> getUserById(
+            @PathVariable Long id,
+            @RequestParam(value = SparseFieldsets.PARAM, required = false) String fields,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         log.info("GET /users/{} - Fetching user by id", id);
+        if (ifNoneMatch != null) {
+            String currentETag = ETags.forFields(ETags.of(id, userService.getUserVersion(id)), fields);
+            if (ETags.matchesAny(ifNoneMatch, currentETag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(currentETag).build();
+            }
+        }
         UserDTO user = userService.getUserById(id);
-        return ResponseEntity.ok(ApiResponse.success(user, "User fetched successfully"));
+        return ResponseEntity.ok()
+                .eTag(ETags.forFields(ETags.of(user.getId(), user.getUpdatedAt(), user.getCreatedAt()), fields))
+                .body(ApiResponse.success(user, "User fetched successfully"));
     }
 
     @GetMapping("/username/{username}")
@@ -64,10 +94,15 @@ public class UserController {
     }
 
     @PutMapping("/{id}")
-    public ResponseEntity<ApiResponse<UserDTO>> updateUser(@PathVariable Long id, @Valid @RequestBody UserDTO userDTO) {
+    public ResponseEntity<ApiResponse<UserDTO>> updateUser(
+            @PathVariable Long id,
+            @Valid @RequestBody UserDTO userDTO,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         log.info("PUT /users/{} - Updating user", id);
-        UserDTO updatedUser = userService.updateUser(id, userDTO);
-        return ResponseEntity.ok(ApiResponse.success(updatedUser, "User updated successfully"));
+        UserDTO updatedUser = userService.updateUser(id, userDTO, ifMatch);
+        return ResponseEntity.ok()
+                .eTag(ETags.of(updatedUser.getId(), updatedUser.getUpdatedAt(), updatedUser.getCreatedAt()))
+                .body(ApiResponse.success(updatedUser, "User updated successfully"));
     }
 
     @DeleteMapping("/{id}")
@@ -0,0 +1,18 @@
+package com.dinidu.restapi.dtos;
+
+import jakarta.validation.constraints.NotEmpty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BulkCancelDTO {
+    @NotEmpty(message = "At least one order id is required")
+    private List<Long> orderIds;
+}
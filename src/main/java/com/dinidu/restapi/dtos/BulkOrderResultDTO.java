@@ -0,0 +1,21 @@
+package com.dinidu.restapi.dtos;
+
+import com.dinidu.restapi.models.Order;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BulkOrderResultDTO {
+    private Long orderId;
+    private Outcome outcome;
+    private Order.OrderStatus currentStatus;
+
+    public enum Outcome {
+        UPDATED, NOT_FOUND, INVALID_TRANSITION
+    }
+}
@@ -0,0 +1,29 @@
+package com.dinidu.restapi.dtos;
+
+import com.dinidu.restapi.models.Order;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Either {@code orderIds} or the {@code fromStatus}/{@code createdBefore} filter selects the
+ * orders to move to {@code status}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BulkStatusUpdateDTO {
+    private List<Long> orderIds;
+
+    @NotNull(message = "Target status is required")
+    private Order.OrderStatus status;
+
+    private Order.OrderStatus fromStatus;
+    private LocalDateTime createdBefore;
+}
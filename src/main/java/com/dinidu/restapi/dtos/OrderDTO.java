@@ -1,6 +1,8 @@
 package com.dinidu.restapi.dtos;
 
 import com.dinidu.restapi.models.Order;
+import com.dinidu.restapi.web.SparseFieldsets;
+import com.fasterxml.jackson.annotation.JsonFilter;
 import jakarta.validation.constraints.NotNull;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -12,6 +14,7 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Data
+@JsonFilter(SparseFieldsets.FILTER_ID)
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
@@ -28,4 +31,12 @@ public class OrderDTO {
     private Order.OrderStatus status;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
+
+    /**
+     * Used by the JPQL projections in {@code OrderRepository}; items are filled in separately.
+     */
+    public OrderDTO(Long id, String orderNumber, Long userId, String userFullName, BigDecimal totalAmount,
+                    Order.OrderStatus status, LocalDateTime createdAt, LocalDateTime updatedAt) {
+        this(id, orderNumber, userId, userFullName, null, totalAmount, status, createdAt, updatedAt);
+    }
 }
@@ -0,0 +1,26 @@
+package com.dinidu.restapi.dtos;
+
+import com.dinidu.restapi.models.Order;
+import com.dinidu.restapi.models.OrderEvent;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OrderEventDTO {
+    private Long id;
+    private Long orderId;
+    private String orderNumber;
+    private Long userId;
+    private OrderEvent.EventType eventType;
+    private Order.OrderStatus status;
+    private BigDecimal totalAmount;
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,26 @@
+package com.dinidu.restapi.dtos;
+
+import com.dinidu.restapi.exceptions.ErrorResponse;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OrderTicketDTO {
+    private String trackingId;
+    private TicketStatus status;
+    private OrderDTO order;
+    private ErrorResponse error;
+    private LocalDateTime acceptedAt;
+    private LocalDateTime completedAt;
+
+    public enum TicketStatus {
+        ACCEPTED, COMPLETED, FAILED
+    }
+}
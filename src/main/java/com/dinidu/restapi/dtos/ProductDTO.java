@@ -1,6 +1,8 @@
 package com.dinidu.restapi.dtos;
 
 import com.dinidu.restapi.models.Product;
+import com.dinidu.restapi.web.SparseFieldsets;
+import com.fasterxml.jackson.annotation.JsonFilter;
 import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
@@ -14,6 +16,7 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Data
+@JsonFilter(SparseFieldsets.FILTER_ID)
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
@@ -1,6 +1,8 @@
 package com.dinidu.restapi.dtos;
 
 import com.dinidu.restapi.models.User;
+import com.dinidu.restapi.web.SparseFieldsets;
+import com.fasterxml.jackson.annotation.JsonFilter;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
@@ -13,6 +15,7 @@ import lombok.Builder;
 import java.time.LocalDateTime;
 
 @Data
+@JsonFilter(SparseFieldsets.FILTER_ID)
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
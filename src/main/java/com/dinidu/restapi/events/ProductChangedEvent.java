@@ -0,0 +1,44 @@
+package com.dinidu.restapi.events;
+
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Published inside the transaction that changes product rows; listeners run after commit.
+ * An empty {@code productIds} means the affected products are not known individually.
+ * {@code renamed} marks changes to product names, which order histories copy into their lines.
+ * {@code remote} events report changes committed by another instance and are published
+ * outside any transaction.
+ */
+public record ProductChangedEvent(Set<Long> productIds, boolean membershipChanged, boolean renamed,
+                                  boolean remote) {
+
+    public static ProductChangedEvent updated(Collection<Long> productIds) {
+        return new ProductChangedEvent(Set.copyOf(productIds), false, false, false);
+    }
+
+    public static ProductChangedEvent renamed(Long productId) {
+        return new ProductChangedEvent(Set.of(productId), false, true, false);
+    }
+
+    public static ProductChangedEvent added(Long productId) {
+        return new ProductChangedEvent(Set.of(productId), true, false, false);
+    }
+
+    public static ProductChangedEvent removed(Long productId) {
+        return new ProductChangedEvent(Set.of(productId), true, false, false);
+    }
+
+    public static ProductChangedEvent unspecified() {
+        return new ProductChangedEvent(Set.of(), false, true, false);
+    }
+
+    public static ProductChangedEvent remote(Collection<Long> productIds, boolean membershipChanged,
+                                             boolean renamed) {
+        return new ProductChangedEvent(Set.copyOf(productIds), membershipChanged, renamed, true);
+    }
+
+    public boolean affectsAll() {
+        return productIds.isEmpty();
+    }
+}
@@ -0,0 +1,23 @@
+package com.dinidu.restapi.events;
+
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Published when another instance committed changes to these users or their orders, so data
+ * cached per user must be dropped. An empty {@code userIds} means any user may be affected.
+ */
+public record UsersChangedEvent(Set<Long> userIds) {
+
+    public static UsersChangedEvent of(Collection<Long> userIds) {
+        return new UsersChangedEvent(Set.copyOf(userIds));
+    }
+
+    public static UsersChangedEvent unspecified() {
+        return new UsersChangedEvent(Set.of());
+    }
+
+    public boolean affectsAll() {
+        return userIds.isEmpty();
+    }
+}
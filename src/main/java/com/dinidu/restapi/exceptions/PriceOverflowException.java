@@ -0,0 +1,7 @@
+package com.dinidu.restapi.exceptions;
+
+public class PriceOverflowException extends RuntimeException {
+    public PriceOverflowException(String message) {
+        super(message);
+    }
+}
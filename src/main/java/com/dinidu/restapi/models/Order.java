@@ -13,7 +13,11 @@ import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Entity
 @Table(name = "orders")
@@ -23,6 +27,10 @@ import java.util.List;
 @Builder
 @EntityListeners(AuditingEntityListener.class)
 public class Order {
+    private static final String ORDER_NUMBER_NODE =
+            String.format("%03X", ThreadLocalRandom.current().nextInt(0x1000));
+    private static final AtomicInteger ORDER_NUMBER_SEQUENCE = new AtomicInteger();
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -47,6 +55,10 @@ public class Order {
     @Builder.Default
     private OrderStatus status = OrderStatus.PENDING;
 
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private Long version;
+
     @CreatedDate
     @Column(nullable = false, updatable = false)
     private LocalDateTime createdAt;
@@ -54,14 +66,40 @@ public class Order {
     @LastModifiedDate
     private LocalDateTime updatedAt;
 
+    /**
+     * Soft-delete marker, set when the owning user is deleted.
+     */
+    @Column(insertable = false, updatable = false)
+    private LocalDateTime deletedAt;
+
     @PrePersist
     public void generateOrderNumber() {
         if (orderNumber == null) {
-            orderNumber = "ORD-" + System.currentTimeMillis();
+            // Millisecond timestamps alone collide when several orders are created at once
+            int sequence = ORDER_NUMBER_SEQUENCE.getAndIncrement() & 0xFFFFF;
+            orderNumber = "ORD-" + System.currentTimeMillis() + "-" + ORDER_NUMBER_NODE
+                    + String.format("%05X", sequence);
         }
     }
 
     public enum OrderStatus {
-        PENDING, CONFIRMED, SHIPPED, DELIVERED, CANCELLED
+        PENDING, CONFIRMED, SHIPPED, DELIVERED, CANCELLED;
+
+        /**
+         * Statuses an order may be moved to this status from by a bulk transition.
+         * Cancellation is excluded because it also has to restore stock.
+         */
+        public Set<OrderStatus> allowedPredecessors() {
+            return switch (this) {
+                case CONFIRMED -> EnumSet.of(PENDING);
+                case SHIPPED -> EnumSet.of(PENDING, CONFIRMED);
+                case DELIVERED -> EnumSet.of(SHIPPED);
+                case PENDING, CANCELLED -> EnumSet.noneOf(OrderStatus.class);
+            };
+        }
+
+        public static Set<OrderStatus> cancellable() {
+            return EnumSet.of(PENDING, CONFIRMED, SHIPPED);
+        }
     }
 }
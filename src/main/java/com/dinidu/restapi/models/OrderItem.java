@@ -11,6 +11,7 @@ import lombok.Builder;
 
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "order_items")
@@ -47,8 +48,26 @@ public class OrderItem {
     @Column(nullable = false, precision = 10, scale = 2)
     private BigDecimal subtotal;
 
+    /**
+     * Copy of the order's creation time; {@code order_items} is partitioned on it alongside
+     * {@code orders}.
+     */
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
     @PrePersist
-    @PreUpdate
+    public void onCreate() {
+        if (createdAt == null && order != null) {
+            createdAt = order.getCreatedAt() != null ? order.getCreatedAt() : LocalDateTime.now();
+        }
+        if (subtotal == null) {
+            calculateSubtotal();
+        }
+    }
+
+    /**
+     * Undiscounted line amount; orders created through OrderService get theirs from PricingEngine.
+     */
     public void calculateSubtotal() {
         if (quantity != null && unitPrice != null) {
             subtotal = unitPrice.multiply(BigDecimal.valueOf(quantity));
@@ -52,7 +52,11 @@ public class Product {
     @Builder.Default
     private ProductStatus status = ProductStatus.AVAILABLE;
 
-    @OneToMany(mappedBy = "product", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private Long version;
+
+    @OneToMany(mappedBy = "product", fetch = FetchType.LAZY)
     @Builder.Default
     private List<OrderItem> orderItems = new ArrayList<>();
 
@@ -63,6 +67,12 @@ public class Product {
     @LastModifiedDate
     private LocalDateTime updatedAt;
 
+    /**
+     * Soft-delete marker. The row is only purged once no order line references it.
+     */
+    @Column(insertable = false, updatable = false)
+    private LocalDateTime deletedAt;
+
     public enum ProductStatus {
         AVAILABLE, OUT_OF_STOCK, DISCONTINUED
     }
@@ -30,12 +30,12 @@ public class User {
 
     @NotBlank(message = "Username is required")
     @Size(min = 3, max = 50, message = "Username must be between 3 and 50 characters")
-    @Column(unique = true, nullable = false)
+    @Column(nullable = false)
     private String username;
 
     @NotBlank(message = "Email is required")
     @Email(message = "Email should be valid")
-    @Column(unique = true, nullable = false)
+    @Column(nullable = false)
     private String email;
 
     @NotBlank(message = "Full name is required")
@@ -46,7 +46,11 @@ public class User {
     @Builder.Default
     private UserStatus status = UserStatus.ACTIVE;
 
-    @OneToMany(mappedBy = "user", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private Long version;
+
+    @OneToMany(mappedBy = "user", fetch = FetchType.LAZY)
     @Builder.Default
     private List<Order> orders = new ArrayList<>();
 
@@ -57,6 +61,13 @@ public class User {
     @LastModifiedDate
     private LocalDateTime updatedAt;
 
+    /**
+     * Soft-delete marker; the user's orders are marked in the same statement. Only written by
+     * set-based statements, so saving a stale entity cannot bring the row back.
+     */
+    @Column(insertable = false, updatable = false)
+    private LocalDateTime deletedAt;
+
     public enum UserStatus {
         ACTIVE, INACTIVE, SUSPENDED
     }
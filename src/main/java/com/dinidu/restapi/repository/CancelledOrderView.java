@@ -0,0 +1,26 @@
+package com.dinidu.restapi.repository;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * An order cancelled by {@link OrderRepository#cancelAndRestock}, plus the products whose stock
+ * the statement restored.
+ */
+public interface CancelledOrderView extends OrderOwnerView {
+    /**
+     * Comma-separated ids of every product the statement restocked; the same on each row.
+     */
+    String getRestockedProductIds();
+
+    static Set<Long> restockedProductIds(List<? extends CancelledOrderView> cancelled) {
+        if (cancelled.isEmpty() || cancelled.get(0).getRestockedProductIds() == null) {
+            return Set.of();
+        }
+        return Arrays.stream(cancelled.get(0).getRestockedProductIds().split(","))
+                .map(Long::valueOf)
+                .collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,124 @@
+package com.dinidu.restapi.repository;
+
+import com.dinidu.restapi.dtos.OrderDTO;
+import com.dinidu.restapi.dtos.OrderItemDTO;
+import com.dinidu.restapi.models.Order;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Partition maintenance and access to {@code orders_archive}/{@code order_items_archive}. These
+ * tables are not mapped as entities, so everything here is plain SQL.
+ */
+@Repository
+@RequiredArgsConstructor
+public class OrderArchiveRepository {
+    private final JdbcClient jdbcClient;
+
+    public void createMonthlyPartition(String table, YearMonth month) {
+        String partition = String.format("%s_y%dm%02d", table, month.getYear(), month.getMonthValue());
+        jdbcClient.sql("CREATE TABLE IF NOT EXISTS " + partition + " PARTITION OF " + table
+                        + " FOR VALUES FROM ('" + month.atDay(1) + "') TO ('" + month.plusMonths(1).atDay(1) + "')")
+                .update();
+    }
+
+    /**
+     * Moves up to {@code batchSize} finished orders created before {@code cutoff}, with their
+     * lines, into the archive tables in one statement and returns the number of orders moved.
+     */
+    public int archiveBatch(LocalDateTime cutoff, int batchSize) {
+        return jdbcClient.sql("""
+                        WITH batch AS (
+                          SELECT id, created_at FROM orders
+                          WHERE status IN ('DELIVERED', 'CANCELLED') AND created_at < :cutoff AND deleted_at IS NULL
+                          ORDER BY created_at LIMIT :batchSize FOR UPDATE SKIP LOCKED
+                        ), moved AS (
+                          DELETE FROM orders o USING batch b WHERE o.id = b.id AND o.created_at = b.created_at
+                          RETURNING o.id, o.order_number, o.user_id, o.total_amount, o.status, o.version,
+                                    o.created_at, o.updated_at
+                        ), moved_items AS (
+                          DELETE FROM order_items oi USING moved m
+                          WHERE oi.order_id = m.id AND oi.created_at = m.created_at
+                          RETURNING oi.id, oi.order_id, oi.product_id, oi.quantity, oi.unit_price, oi.subtotal,
+                                    oi.created_at
+                        ), archived_items AS (
+                          INSERT INTO order_items_archive (id, order_id, product_id, quantity, unit_price, subtotal,
+                                                           created_at)
+                          SELECT * FROM moved_items
+                        )
+                        INSERT INTO orders_archive (id, order_number, user_id, total_amount, status, version,
+                                                    created_at, updated_at)
+                        SELECT * FROM moved
+                        """)
+                .param("cutoff", cutoff)
+                .param("batchSize", batchSize)
+                .update();
+    }
+
+    public Optional<OrderDTO> findById(Long id, boolean includeItems) {
+        return findAllByIdIn(List.of(id), includeItems).stream().findFirst();
+    }
+
+    /**
+     * Archived orders with the given ids, with their lines loaded by one more query when
+     * {@code includeItems}.
+     */
+    public List<OrderDTO> findAllByIdIn(Collection<Long> ids, boolean includeItems) {
+        List<OrderDTO> orders = jdbcClient.sql("""
+                        SELECT o.id, o.order_number, o.user_id, u.full_name, o.total_amount, o.status,
+                               o.created_at, o.updated_at
+                        FROM orders_archive o LEFT JOIN users u ON u.id = o.user_id
+                        WHERE o.id IN (:ids)
+                        """)
+                .param("ids", ids)
+                .query((rs, rowNum) -> OrderDTO.builder()
+                        .id(rs.getLong("id"))
+                        .orderNumber(rs.getString("order_number"))
+                        .userId(rs.getLong("user_id"))
+                        .userFullName(rs.getString("full_name"))
+                        .totalAmount(rs.getBigDecimal("total_amount"))
+                        .status(Order.OrderStatus.valueOf(rs.getString("status")))
+                        .createdAt(rs.getObject("created_at", LocalDateTime.class))
+                        .updatedAt(rs.getObject("updated_at", LocalDateTime.class))
+                        .build())
+                .list();
+        if (includeItems && !orders.isEmpty()) {
+            Map<Long, List<OrderItemDTO>> items = findItems(orders.stream().map(OrderDTO::getId).toList());
+            orders.forEach(order -> order.setOrderItems(items.getOrDefault(order.getId(), List.of())));
+        }
+        return orders;
+    }
+
+    private Map<Long, List<OrderItemDTO>> findItems(Collection<Long> orderIds) {
+        Map<Long, List<OrderItemDTO>> items = new HashMap<>();
+        jdbcClient.sql("""
+                        SELECT i.id, i.order_id, i.product_id, p.name, i.quantity, i.unit_price, i.subtotal
+                        FROM order_items_archive i LEFT JOIN products p ON p.id = i.product_id
+                        WHERE i.order_id IN (:orderIds)
+                        ORDER BY i.id
+                        """)
+                .param("orderIds", orderIds)
+                .query(rs -> {
+                    items.computeIfAbsent(rs.getLong("order_id"), orderId -> new ArrayList<>())
+                            .add(OrderItemDTO.builder()
+                                    .id(rs.getLong("id"))
+                                    .productId(rs.getLong("product_id"))
+                                    .productName(rs.getString("name"))
+                                    .quantity(rs.getInt("quantity"))
+                                    .unitPrice(rs.getBigDecimal("unit_price"))
+                                    .subtotal(rs.getBigDecimal("subtotal"))
+                                    .build());
+                });
+        return items;
+    }
+}
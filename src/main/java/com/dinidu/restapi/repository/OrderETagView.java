@@ -0,0 +1,20 @@
+package com.dinidu.restapi.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * What an order's ETag is computed from: its own modification time and the names of the user
+ * and products its representation embeds.
+ */
+public interface OrderETagView {
+    String PRODUCT_NAME_SEPARATOR = "\u001F";
+
+    LocalDateTime getVersion();
+
+    String getUserFullName();
+
+    /**
+     * Names of the ordered products, joined with {@link #PRODUCT_NAME_SEPARATOR}; null without lines.
+     */
+    String getProductNames();
+}
@@ -0,0 +1,79 @@
+package com.dinidu.restapi.repository;
+
+import com.dinidu.restapi.dtos.OrderEventDTO;
+import com.dinidu.restapi.models.Order;
+import com.dinidu.restapi.models.OrderEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * The order event feed, in commit order. Each event carries the id of the transaction that
+ * inserted it ({@code txid}, not mapped on {@link OrderEvent}); the feed is ordered by
+ * {@code (txid, id)} and stops before the oldest transaction that is still running. Events
+ * that become visible later therefore always sort after everything already returned, however
+ * long their transaction took and whichever instance's clock stamped them.
+ * <p>
+ * Consumers keep passing the id of the last event they saw; its {@code txid} is looked up here.
+ * <p>
+ * The price is latency: one long-running transaction that has written anything holds back every
+ * event committed after it started, until it ends. {@link #findHorizon} reports how much is
+ * held back and for how long.
+ */
+@Repository
+@RequiredArgsConstructor
+public class OrderEventFeedRepository {
+    private final JdbcClient jdbcClient;
+
+    /**
+     * Reads only columns covered by idx_order_events_feed so PostgreSQL can answer the feed
+     * with an index-only scan.
+     */
+    public List<OrderEventDTO> findFeed(long after, int limit) {
+        return jdbcClient.sql("""
+                        SELECT e.id, e.order_id, e.order_number, e.user_id, e.event_type, e.status,
+                               e.total_amount, e.created_at
+                        FROM order_events e
+                        WHERE (e.txid, e.id) > (COALESCE((SELECT c.txid FROM order_events c WHERE c.id = :after),
+                                                         CAST('0' AS xid8)), :after)
+                          AND e.txid < pg_snapshot_xmin(pg_current_snapshot())
+                        ORDER BY e.txid, e.id
+                        LIMIT :limit
+                        """)
+                .param("after", after)
+                .param("limit", limit)
+                .query((rs, rowNum) -> OrderEventDTO.builder()
+                        .id(rs.getLong("id"))
+                        .orderId(rs.getLong("order_id"))
+                        .orderNumber(rs.getString("order_number"))
+                        .userId(rs.getLong("user_id"))
+                        .eventType(OrderEvent.EventType.valueOf(rs.getString("event_type")))
+                        .status(Order.OrderStatus.valueOf(rs.getString("status")))
+                        .totalAmount(rs.getBigDecimal("total_amount"))
+                        .createdAt(rs.getObject("created_at", LocalDateTime.class))
+                        .build())
+                .list();
+    }
+
+    /**
+     * Committed events the feed does not show yet, and how long the oldest transaction holding
+     * them back has been running. Sessions of other database roles are only visible to
+     * superusers and members of pg_read_all_stats; without that their age is not reported.
+     */
+    public FeedHorizon findHorizon() {
+        return jdbcClient.sql("""
+                        SELECT (SELECT COUNT(*) FROM order_events e
+                                WHERE e.txid >= pg_snapshot_xmin(pg_current_snapshot())) AS held_back,
+                               COALESCE((SELECT EXTRACT(EPOCH FROM now() - MIN(a.xact_start)) FROM pg_stat_activity a
+                                         WHERE a.backend_xid IS NOT NULL AND a.pid <> pg_backend_pid()), 0) AS age_seconds
+                        """)
+                .query((rs, rowNum) -> new FeedHorizon(rs.getLong("held_back"), rs.getDouble("age_seconds")))
+                .single();
+    }
+
+    public record FeedHorizon(long heldBackEvents, double oldestTransactionSeconds) {
+    }
+}
@@ -0,0 +1,12 @@
+package com.dinidu.restapi.repository;
+
+import com.dinidu.restapi.models.OrderEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Appends outbox rows; the feed over them is {@link OrderEventFeedRepository}.
+ */
+@Repository
+public interface OrderEventRepository extends JpaRepository<OrderEvent, Long> {
+}
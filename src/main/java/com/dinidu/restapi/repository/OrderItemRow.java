@@ -0,0 +1,20 @@
+package com.dinidu.restapi.repository;
+
+import com.dinidu.restapi.dtos.OrderItemDTO;
+
+import java.math.BigDecimal;
+
+public record OrderItemRow(Long orderId, Long id, Long productId, String productName, Integer quantity,
+                           BigDecimal unitPrice, BigDecimal subtotal) {
+
+    public OrderItemDTO toDTO() {
+        return OrderItemDTO.builder()
+                .id(id)
+                .productId(productId)
+                .productName(productName)
+                .quantity(quantity)
+                .unitPrice(unitPrice)
+                .subtotal(subtotal)
+                .build();
+    }
+}
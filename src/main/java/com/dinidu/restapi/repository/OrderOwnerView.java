@@ -0,0 +1,7 @@
+package com.dinidu.restapi.repository;
+
+public interface OrderOwnerView {
+    Long getId();
+
+    Long getUserId();
+}
@@ -1,30 +1,160 @@
 package com.dinidu.restapi.repository;
 
+import com.dinidu.restapi.dtos.OrderDTO;
 import com.dinidu.restapi.models.Order;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long> {
-    Optional<Order> findByOrderNumber(String orderNumber);
+    String DTO_SELECT = "SELECT new com.dinidu.restapi.dtos.OrderDTO(o.id, o.orderNumber, u.id, u.fullName, "
+            + "o.totalAmount, o.status, o.createdAt, o.updatedAt) FROM Order o JOIN o.user u WHERE o.deletedAt IS NULL";
 
-    Page<Order> findByUserId(Long userId, Pageable pageable);
-    Page<Order> findByStatus(Order.OrderStatus status, Pageable pageable);
+    // Soft-deleted orders are invisible to every query below, including the inherited findById
 
-    @Query("SELECT o FROM Order o WHERE o.createdAt BETWEEN :startDate AND :endDate")
+    @Override
+    @Query("SELECT o FROM Order o WHERE o.id = :id AND o.deletedAt IS NULL")
+    Optional<Order> findById(@Param("id") Long id);
+
+    @Query(DTO_SELECT + " AND o.id = :id")
+    Optional<OrderDTO> findProjectedById(@Param("id") Long id);
+
+    @Query(DTO_SELECT + " AND o.id IN :ids")
+    List<OrderDTO> findProjectedByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query(DTO_SELECT + " AND o.orderNumber = :orderNumber")
+    Optional<OrderDTO> findProjectedByOrderNumber(@Param("orderNumber") String orderNumber);
+
+    @Query(value = "SELECT COALESCE(o.updated_at, o.created_at) AS version, u.full_name AS \"userFullName\"," +
+            " (SELECT string_agg(p.name, E'\\x1F') FROM order_items oi JOIN products p ON p.id = oi.product_id" +
+            "  WHERE oi.order_id = o.id) AS \"productNames\"" +
+            " FROM orders o JOIN users u ON u.id = o.user_id WHERE o.id = :id AND o.deleted_at IS NULL",
+            nativeQuery = true)
+    Optional<OrderETagView> findETagViewById(@Param("id") Long id);
+
+    @Query(value = DTO_SELECT, countQuery = "SELECT COUNT(o) FROM Order o WHERE o.deletedAt IS NULL")
+    Page<OrderDTO> findAllProjected(Pageable pageable);
+
+    @Query(value = DTO_SELECT + " AND u.id = :userId",
+            countQuery = "SELECT COUNT(o) FROM Order o WHERE o.user.id = :userId AND o.deletedAt IS NULL")
+    Page<OrderDTO> findByUserId(@Param("userId") Long userId, Pageable pageable);
+
+    @Query(value = DTO_SELECT + " AND o.status = :status",
+            countQuery = "SELECT COUNT(o) FROM Order o WHERE o.status = :status AND o.deletedAt IS NULL")
+    Page<OrderDTO> findByStatus(@Param("status") Order.OrderStatus status, Pageable pageable);
+
+    /**
+     * Order lines of several orders as flat rows, for assembling projected {@link OrderDTO}s.
+     */
+    @Query("SELECT new com.dinidu.restapi.repository.OrderItemRow(oi.order.id, oi.id, p.id, p.name, oi.quantity, "
+            + "oi.unitPrice, oi.subtotal) FROM OrderItem oi JOIN oi.product p WHERE oi.order.id IN :orderIds "
+            + "ORDER BY oi.id")
+    List<OrderItemRow> findItemRowsByOrderIdIn(@Param("orderIds") Collection<Long> orderIds);
+
+    @Query("SELECT o FROM Order o WHERE o.createdAt BETWEEN :startDate AND :endDate AND o.deletedAt IS NULL")
     Page<Order> findByDateRange(@Param("startDate") LocalDateTime startDate,
                                 @Param("endDate") LocalDateTime endDate,
                                 Pageable pageable);
 
-    @Query("SELECT o FROM Order o WHERE o.user.id = :userId AND o.status = :status")
+    @Query("SELECT o.id AS id, o.status AS status FROM Order o WHERE o.id IN :ids AND o.deletedAt IS NULL")
+    List<OrderStatusView> findStatusesByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Moves the given orders to {@code status} when their current status is one of
+     * {@code fromStatuses}, appends a STATUS_CHANGED outbox event per updated order and returns
+     * the updated orders with their owners, all in one statement.
+     */
+    @Query(value = "WITH updated AS (" +
+            "  UPDATE orders SET status = :status, updated_at = :now, version = version + 1" +
+            "  WHERE id IN (:ids) AND status IN (:fromStatuses) AND deleted_at IS NULL" +
+            "  RETURNING id, order_number, user_id, status, total_amount" +
+            "), events AS (" +
+            "  INSERT INTO order_events (order_id, order_number, user_id, event_type, status, total_amount, created_at)" +
+            "  SELECT id, order_number, user_id, 'STATUS_CHANGED', status, total_amount, :now FROM updated" +
+            ") SELECT id, user_id AS \"userId\" FROM updated",
+            nativeQuery = true)
+    List<OrderOwnerView> transitionStatusByIds(@Param("ids") Collection<Long> ids,
+                                               @Param("fromStatuses") Collection<String> fromStatuses,
+                                               @Param("status") String status,
+                                               @Param("now") LocalDateTime now);
+
+    /**
+     * Filter-based variant of {@link #transitionStatusByIds}; touches at most {@code maxRows}
+     * orders per call and skips rows locked by concurrent writers.
+     */
+    @Query(value = "WITH candidates AS (" +
+            "  SELECT id FROM orders WHERE status = :fromStatus AND status IN (:allowedFrom) AND deleted_at IS NULL" +
+            "  AND created_at < :createdBefore ORDER BY id LIMIT :maxRows FOR UPDATE SKIP LOCKED" +
+            "), updated AS (" +
+            "  UPDATE orders o SET status = :status, updated_at = :now, version = o.version + 1" +
+            "  FROM candidates c WHERE o.id = c.id" +
+            "  RETURNING o.id, o.order_number, o.user_id, o.status, o.total_amount" +
+            "), events AS (" +
+            "  INSERT INTO order_events (order_id, order_number, user_id, event_type, status, total_amount, created_at)" +
+            "  SELECT id, order_number, user_id, 'STATUS_CHANGED', status, total_amount, :now FROM updated" +
+            ") SELECT id, user_id AS \"userId\" FROM updated",
+            nativeQuery = true)
+    List<OrderOwnerView> transitionStatusByFilter(@Param("fromStatus") String fromStatus,
+                                                  @Param("allowedFrom") Collection<String> allowedFrom,
+                                                  @Param("createdBefore") LocalDateTime createdBefore,
+                                                  @Param("maxRows") int maxRows,
+                                                  @Param("status") String status,
+                                                  @Param("now") LocalDateTime now);
+
+    /**
+     * Cancels the given orders when their status is one of {@code cancellable}, puts the ordered
+     * quantities back on the products (one UPDATE ... FROM over the aggregated order lines),
+     * appends a CANCELLED outbox event per order and returns the cancelled orders.
+     */
+    @Query(value = "WITH cancelled AS (" +
+            "  UPDATE orders SET status = 'CANCELLED', updated_at = :now, version = version + 1" +
+            "  WHERE id IN (:ids) AND status IN (:cancellable) AND deleted_at IS NULL" +
+            "  RETURNING id, order_number, user_id, status, total_amount, created_at" +
+            "), restocked AS (" +
+            "  UPDATE products p SET stock_quantity = p.stock_quantity + lines.quantity," +
+            "    updated_at = :now, version = p.version + 1" +
+            "  FROM (SELECT oi.product_id, SUM(oi.quantity) AS quantity FROM order_items oi" +
+            "        JOIN cancelled c ON c.id = oi.order_id AND c.created_at = oi.created_at" +
+            "        GROUP BY oi.product_id) lines" +
+            "  WHERE p.id = lines.product_id" +
+            "  RETURNING p.id" +
+            "), events AS (" +
+            "  INSERT INTO order_events (order_id, order_number, user_id, event_type, status, total_amount, created_at)" +
+            "  SELECT id, order_number, user_id, 'CANCELLED', status, total_amount, :now FROM cancelled" +
+            ") SELECT c.id, c.user_id AS \"userId\", r.ids AS \"restockedProductIds\" FROM cancelled c" +
+            "  CROSS JOIN (SELECT string_agg(id::text, ',') AS ids FROM restocked) r",
+            nativeQuery = true)
+    List<CancelledOrderView> cancelAndRestock(@Param("ids") Collection<Long> ids,
+                                          @Param("cancellable") Collection<String> cancellable,
+                                          @Param("now") LocalDateTime now);
+
+    @Query("SELECT o FROM Order o WHERE o.user.id = :userId AND o.status = :status AND o.deletedAt IS NULL")
     List<Order> findByUserIdAndStatus(@Param("userId") Long userId,
                                       @Param("status") Order.OrderStatus status);
+
+    /**
+     * Hard-deletes up to {@code batchSize} orders deleted before {@code cutoff}, together with
+     * their lines, in one statement. Outbox events are kept.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "WITH batch AS (" +
+            "  SELECT id FROM orders WHERE deleted_at < :cutoff" +
+            "  ORDER BY deleted_at LIMIT :batchSize FOR UPDATE SKIP LOCKED" +
+            "), items AS (" +
+            "  DELETE FROM order_items oi USING batch b WHERE oi.order_id = b.id" +
+            ") DELETE FROM orders o USING batch b WHERE o.id = b.id",
+            nativeQuery = true)
+    int purgeDeletedBatch(@Param("cutoff") LocalDateTime cutoff, @Param("batchSize") int batchSize);
 }
@@ -0,0 +1,9 @@
+package com.dinidu.restapi.repository;
+
+import com.dinidu.restapi.models.Order;
+
+public interface OrderStatusView {
+    Long getId();
+
+    Order.OrderStatus getStatus();
+}
@@ -1,27 +1,87 @@
 package com.dinidu.restapi.repository;
 
+import com.dinidu.restapi.dtos.ProductDTO;
 import com.dinidu.restapi.models.Product;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Long> {
-    Page<Product> findByStatus(Product.ProductStatus status, Pageable pageable);
+    String DTO_SELECT = "SELECT new com.dinidu.restapi.dtos.ProductDTO(p.id, p.name, p.description, p.price, "
+            + "p.stockQuantity, p.status, p.createdAt, p.updatedAt) FROM Product p WHERE p.deletedAt IS NULL";
 
-    @Query("SELECT p FROM Product p WHERE p.name LIKE %:name% OR p.description LIKE %:name%")
-    Page<Product> findByNameContaining(@Param("name") String name, Pageable pageable);
+    // Soft-deleted products are invisible to every query below, including the inherited findById
 
-    @Query("SELECT p FROM Product p WHERE p.price BETWEEN :minPrice AND :maxPrice")
-    Page<Product> findByPriceRange(@Param("minPrice") BigDecimal minPrice,
-                                   @Param("maxPrice") BigDecimal maxPrice,
-                                   Pageable pageable);
+    @Override
+    @Query("SELECT p FROM Product p WHERE p.id = :id AND p.deletedAt IS NULL")
+    Optional<Product> findById(@Param("id") Long id);
 
-    List<Product> findByStockQuantityLessThan(Integer quantity);
+    @Query(value = DTO_SELECT, countQuery = "SELECT COUNT(p) FROM Product p WHERE p.deletedAt IS NULL")
+    Page<ProductDTO> findAllProjected(Pageable pageable);
+
+    /**
+     * The whole catalog in the database's name order, which the catalog snapshot cannot compute itself.
+     */
+    @Query(DTO_SELECT + " ORDER BY p.name, p.id")
+    List<ProductDTO> findAllProjectedByName();
+
+    @Query(DTO_SELECT + " AND p.id IN :ids")
+    List<ProductDTO> findProjectedByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT COALESCE(p.updatedAt, p.createdAt) FROM Product p WHERE p.id = :id AND p.deletedAt IS NULL")
+    Optional<LocalDateTime> findVersionById(@Param("id") Long id);
+
+    @Query(value = DTO_SELECT + " AND p.status = :status",
+            countQuery = "SELECT COUNT(p) FROM Product p WHERE p.deletedAt IS NULL AND p.status = :status")
+    Page<ProductDTO> findByStatus(@Param("status") Product.ProductStatus status, Pageable pageable);
+
+    @Query(value = DTO_SELECT + " AND (p.name LIKE %:name% OR p.description LIKE %:name%)",
+            countQuery = "SELECT COUNT(p) FROM Product p WHERE p.deletedAt IS NULL "
+                    + "AND (p.name LIKE %:name% OR p.description LIKE %:name%)")
+    Page<ProductDTO> findByNameContaining(@Param("name") String name, Pageable pageable);
+
+    @Query(value = DTO_SELECT + " AND p.price BETWEEN :minPrice AND :maxPrice",
+            countQuery = "SELECT COUNT(p) FROM Product p WHERE p.deletedAt IS NULL "
+                    + "AND p.price BETWEEN :minPrice AND :maxPrice")
+    Page<ProductDTO> findByPriceRange(@Param("minPrice") BigDecimal minPrice,
+                                      @Param("maxPrice") BigDecimal maxPrice,
+                                      Pageable pageable);
+
+    @Query(DTO_SELECT + " AND p.stockQuantity < :quantity")
+    List<ProductDTO> findByStockQuantityLessThan(@Param("quantity") Integer quantity);
+
+    /**
+     * Returns 0 when there is no live product with that id. Order lines keep pointing at the
+     * row, so past orders still show the product.
+     */
+    @Modifying
+    @Query(value = "UPDATE products SET deleted_at = :now, updated_at = :now, version = version + 1" +
+            " WHERE id = :id AND deleted_at IS NULL",
+            nativeQuery = true)
+    int softDelete(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    /**
+     * Hard-deletes up to {@code batchSize} products deleted before {@code cutoff} that no
+     * order line references any more.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM products WHERE id IN (" +
+            "  SELECT p.id FROM products p WHERE p.deleted_at < :cutoff" +
+            "  AND NOT EXISTS (SELECT 1 FROM order_items oi WHERE oi.product_id = p.id)" +
+            "  LIMIT :batchSize FOR UPDATE SKIP LOCKED)",
+            nativeQuery = true)
+    int purgeDeletedBatch(@Param("cutoff") LocalDateTime cutoff, @Param("batchSize") int batchSize);
 }
@@ -0,0 +1,31 @@
+package com.dinidu.restapi.repository;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Outcome of {@link UserRepository#softDelete}.
+ */
+public interface UserDeletionView {
+    /**
+     * 1, or 0 when there was no live user with the id.
+     */
+    long getDeletedUsers();
+
+    long getCancelledOrders();
+
+    /**
+     * Comma-separated ids of the products restocked by cancelling the user's open orders.
+     */
+    String getRestockedProductIds();
+
+    default Set<Long> restockedProductIds() {
+        if (getRestockedProductIds() == null) {
+            return Set.of();
+        }
+        return Arrays.stream(getRestockedProductIds().split(","))
+                .map(Long::valueOf)
+                .collect(Collectors.toSet());
+    }
+}
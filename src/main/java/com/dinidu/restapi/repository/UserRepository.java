@@ -1,24 +1,108 @@
 package com.dinidu.restapi.repository;
 
+import com.dinidu.restapi.dtos.UserDTO;
 import com.dinidu.restapi.models.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
-    Optional<User> findByUsername(String username);
-    Optional<User> findByEmail(String email);
-    boolean existsByUsername(String username);
-    boolean existsByEmail(String email);
+    String DTO_SELECT = "SELECT new com.dinidu.restapi.dtos.UserDTO(u.id, u.username, u.email, u.fullName, "
+            + "u.status, u.createdAt, u.updatedAt) FROM User u WHERE u.deletedAt IS NULL";
 
-    Page<User> findByStatus(User.UserStatus status, Pageable pageable);
+    // Soft-deleted users are invisible to every query below, including the inherited findById
 
-    @Query("SELECT u FROM User u WHERE u.fullName LIKE %:name% OR u.username LIKE %:name%")
-    Page<User> findByNameContaining(@Param("name") String name, Pageable pageable);
+    @Override
+    @Query("SELECT u FROM User u WHERE u.id = :id AND u.deletedAt IS NULL")
+    Optional<User> findById(@Param("id") Long id);
+
+    @Query("SELECT u FROM User u WHERE u.username = :username AND u.deletedAt IS NULL")
+    Optional<User> findByUsername(@Param("username") String username);
+
+    @Query("SELECT u FROM User u WHERE u.email = :email AND u.deletedAt IS NULL")
+    Optional<User> findByEmail(@Param("email") String email);
+
+    @Query("SELECT COUNT(u) > 0 FROM User u WHERE u.username = :username AND u.deletedAt IS NULL")
+    boolean existsByUsername(@Param("username") String username);
+
+    @Query("SELECT COUNT(u) > 0 FROM User u WHERE u.email = :email AND u.deletedAt IS NULL")
+    boolean existsByEmail(@Param("email") String email);
+
+    @Query("SELECT COALESCE(u.updatedAt, u.createdAt) FROM User u WHERE u.id = :id AND u.deletedAt IS NULL")
+    Optional<LocalDateTime> findVersionById(@Param("id") Long id);
+
+    @Query(value = "SELECT u FROM User u WHERE u.status = :status AND u.deletedAt IS NULL",
+            countQuery = "SELECT COUNT(u) FROM User u WHERE u.status = :status AND u.deletedAt IS NULL")
+    Page<User> findByStatus(@Param("status") User.UserStatus status, Pageable pageable);
+
+    @Query(value = DTO_SELECT, countQuery = "SELECT COUNT(u) FROM User u WHERE u.deletedAt IS NULL")
+    Page<UserDTO> findAllProjected(Pageable pageable);
+
+    @Query(DTO_SELECT + " AND u.id IN :ids")
+    List<UserDTO> findProjectedByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query(value = DTO_SELECT + " AND (u.fullName LIKE %:name% OR u.username LIKE %:name%)",
+            countQuery = "SELECT COUNT(u) FROM User u WHERE u.deletedAt IS NULL "
+                    + "AND (u.fullName LIKE %:name% OR u.username LIKE %:name%)")
+    Page<UserDTO> findByNameContaining(@Param("name") String name, Pageable pageable);
+
+    /**
+     * Marks the user and all of their orders deleted in one statement. Orders still in one of the
+     * {@code cancellable} statuses are cancelled on the way, as {@link OrderRepository#cancelAndRestock}
+     * does: their quantities go back on the products and a CANCELLED outbox event is appended.
+     * Every hidden order gets a new version. Reports no deleted user when there is no live user
+     * with that id.
+     */
+    @Query(value = "WITH deleted AS (" +
+            "  UPDATE users SET deleted_at = :now, updated_at = :now, version = version + 1" +
+            "  WHERE id = :id AND deleted_at IS NULL RETURNING id" +
+            "), hidden AS (" +
+            "  UPDATE orders o SET deleted_at = :now, updated_at = :now, version = o.version + 1," +
+            "    status = CASE WHEN o.status IN (:cancellable) THEN 'CANCELLED' ELSE o.status END" +
+            "  FROM orders previous" +
+            "  WHERE previous.id = o.id AND previous.created_at = o.created_at" +
+            "    AND o.user_id IN (SELECT id FROM deleted) AND o.deleted_at IS NULL" +
+            "  RETURNING o.id, o.order_number, o.user_id, o.status, o.total_amount, o.created_at," +
+            "    previous.status IN (:cancellable) AS cancelled" +
+            "), restocked AS (" +
+            "  UPDATE products p SET stock_quantity = p.stock_quantity + lines.quantity," +
+            "    updated_at = :now, version = p.version + 1" +
+            "  FROM (SELECT oi.product_id, SUM(oi.quantity) AS quantity FROM order_items oi" +
+            "        JOIN hidden h ON h.id = oi.order_id AND h.created_at = oi.created_at" +
+            "        WHERE h.cancelled GROUP BY oi.product_id) lines" +
+            "  WHERE p.id = lines.product_id" +
+            "  RETURNING p.id" +
+            "), events AS (" +
+            "  INSERT INTO order_events (order_id, order_number, user_id, event_type, status, total_amount, created_at)" +
+            "  SELECT id, order_number, user_id, 'CANCELLED', status, total_amount, :now FROM hidden WHERE cancelled" +
+            ") SELECT (SELECT COUNT(*) FROM deleted) AS \"deletedUsers\"," +
+            "  (SELECT COUNT(*) FROM hidden WHERE cancelled) AS \"cancelledOrders\"," +
+            "  (SELECT string_agg(id::text, ',') FROM restocked) AS \"restockedProductIds\"",
+            nativeQuery = true)
+    UserDeletionView softDelete(@Param("id") Long id, @Param("cancellable") Collection<String> cancellable,
+                                @Param("now") LocalDateTime now);
+
+    /**
+     * Hard-deletes up to {@code batchSize} users deleted before {@code cutoff} whose orders
+     * have already been purged.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM users WHERE id IN (" +
+            "  SELECT u.id FROM users u WHERE u.deleted_at < :cutoff" +
+            "  AND NOT EXISTS (SELECT 1 FROM orders o WHERE o.user_id = u.id)" +
+            "  LIMIT :batchSize FOR UPDATE SKIP LOCKED)",
+            nativeQuery = true)
+    int purgeDeletedBatch(@Param("cutoff") LocalDateTime cutoff, @Param("batchSize") int batchSize);
 }
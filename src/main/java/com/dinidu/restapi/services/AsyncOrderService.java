@@ -0,0 +1,254 @@
+package com.dinidu.restapi.services;
+
+import com.dinidu.restapi.config.AsyncOrderProperties;
+import com.dinidu.restapi.config.Workload;
+import com.dinidu.restapi.dtos.OrderDTO;
+import com.dinidu.restapi.dtos.OrderTicketDTO;
+import com.dinidu.restapi.exceptions.ErrorResponse;
+import com.dinidu.restapi.exceptions.GlobalExceptionHandler;
+import com.dinidu.restapi.exceptions.IdempotencyKeyReuseException;
+import com.dinidu.restapi.exceptions.ServiceUnavailableException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Accepts orders into a bounded in-process queue and creates them on a single worker thread
+ * that commits up to {@code batchSize} orders per transaction. Request threads never hold a
+ * pooled connection while waiting. If a batch fails as a whole, its orders are retried one
+ * by one so a single invalid order cannot sink the others.
+ * <p>
+ * A retried submission with the same {@code Idempotency-Key} gets the ticket of the first one
+ * unless that failed. Failures are reported with the status and message the synchronous
+ * endpoint would have answered with.
+ */
+@Service
+@Slf4j
+public class AsyncOrderService {
+    private final OrderService orderService;
+    private final OptimisticLockRetrier optimisticLockRetrier;
+    private final AsyncOrderProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final GlobalExceptionHandler exceptionHandler;
+
+    private final BlockingQueue<PendingOrder> queue;
+    private final Map<String, OrderTicket> tickets = new ConcurrentHashMap<>();
+    private final Map<String, OrderTicket> ticketsByIdempotencyKey = new ConcurrentHashMap<>();
+    private volatile boolean running;
+    private Thread worker;
+
+    public AsyncOrderService(OrderService orderService,
+                             OptimisticLockRetrier optimisticLockRetrier,
+                             AsyncOrderProperties properties,
+                             MeterRegistry meterRegistry,
+                             GlobalExceptionHandler exceptionHandler) {
+        this.orderService = orderService;
+        this.optimisticLockRetrier = optimisticLockRetrier;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.exceptionHandler = exceptionHandler;
+        this.queue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+    }
+
+    @PostConstruct
+    void start() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        Gauge.builder("orders.async.queue.size", queue, BlockingQueue::size).register(meterRegistry);
+        running = true;
+        worker = new Thread(this::drainLoop, "order-acceptance-worker");
+        worker.setDaemon(true);
+        worker.start();
+        log.info("Asynchronous order acceptance enabled (capacity {}, batch size {})",
+                properties.getQueueCapacity(), properties.getBatchSize());
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        if (worker == null) {
+            return;
+        }
+        running = false;
+        worker.join(TimeUnit.SECONDS.toMillis(30));
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    public OrderTicketDTO submit(OrderDTO orderDTO, String idempotencyKey) {
+        OrderTicket ticket = new OrderTicket(UUID.randomUUID().toString(), LocalDateTime.now(), orderDTO);
+        if (idempotencyKey != null) {
+            OrderTicket existing = ticketsByIdempotencyKey.compute(idempotencyKey,
+                    (key, current) -> current != null && !current.hasFailed() ? current : ticket);
+            if (existing != ticket) {
+                if (!existing.request.equals(orderDTO)) {
+                    throw new IdempotencyKeyReuseException(
+                            "Idempotency-Key " + idempotencyKey + " was used with a different request");
+                }
+                return existing.toDTO();
+            }
+        }
+        tickets.put(ticket.trackingId, ticket);
+        if (!running || !queue.offer(new PendingOrder(ticket, orderDTO, idempotencyKey))) {
+            tickets.remove(ticket.trackingId);
+            if (idempotencyKey != null) {
+                ticketsByIdempotencyKey.remove(idempotencyKey, ticket);
+            }
+            meterRegistry.counter("orders.async.rejected").increment();
+            throw new ServiceUnavailableException("Order queue is full, please retry later", 1);
+        }
+        return ticket.toDTO();
+    }
+
+    public Optional<OrderTicketDTO> getTicket(String trackingId) {
+        return Optional.ofNullable(tickets.get(trackingId)).map(OrderTicket::toDTO);
+    }
+
+    /**
+     * Completes with the final ticket state once the order has been committed or rejected.
+     */
+    public Optional<CompletableFuture<OrderTicketDTO>> awaitTicket(String trackingId) {
+        return Optional.ofNullable(tickets.get(trackingId))
+                .map(ticket -> ticket.completion.thenApply(ignored -> ticket.toDTO()));
+    }
+
+    @Scheduled(fixedDelayString = "${app.orders.async.ticket-sweep-interval:PT1M}")
+    public void evictFinishedTickets() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(properties.getTicketRetention());
+        tickets.values().removeIf(ticket -> ticket.completedAt != null && ticket.completedAt.isBefore(cutoff));
+        ticketsByIdempotencyKey.values()
+                .removeIf(ticket -> ticket.completedAt != null && ticket.completedAt.isBefore(cutoff));
+    }
+
+    private void drainLoop() {
+        List<PendingOrder> batch = new ArrayList<>(properties.getBatchSize());
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingOrder first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                fillBatch(batch);
+                commitBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (RuntimeException e) {
+                log.error("Order acceptance worker failed on a batch of {}", batch.size(), e);
+                ErrorResponse error = exceptionHandler.describe(e);
+                batch.forEach(pending -> pending.ticket.fail(error));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void fillBatch(List<PendingOrder> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + properties.getMaxBatchDelay().toNanos();
+        while (batch.size() < properties.getBatchSize()) {
+            long remaining = deadline - System.nanoTime();
+            PendingOrder next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void commitBatch(List<PendingOrder> batch) {
+        List<OrderDTO> created;
+        try {
+            created = optimisticLockRetrier.execute("order.create-batch", Workload.Type.ORDER_WRITES, () -> {
+                List<OrderDTO> results = new ArrayList<>(batch.size());
+                for (PendingOrder pending : batch) {
+                    results.add(orderService.placeOrder(pending.order, pending.idempotencyKey));
+                }
+                return results;
+            });
+        } catch (RuntimeException batchFailure) {
+            log.debug("Batch of {} orders failed ({}), committing individually", batch.size(), batchFailure.getMessage());
+            meterRegistry.counter("orders.async.batch.fallbacks").increment();
+            for (PendingOrder pending : batch) {
+                try {
+                    pending.ticket.complete(orderService.createOrder(pending.order, pending.idempotencyKey));
+                } catch (RuntimeException e) {
+                    pending.ticket.fail(exceptionHandler.describe(e));
+                }
+            }
+            return;
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).ticket.complete(created.get(i));
+        }
+        meterRegistry.summary("orders.async.batch.size").record(batch.size());
+    }
+
+    private record PendingOrder(OrderTicket ticket, OrderDTO order, String idempotencyKey) {
+    }
+
+    private static final class OrderTicket {
+        private final String trackingId;
+        private final LocalDateTime acceptedAt;
+        private final OrderDTO request;
+        private final CompletableFuture<Void> completion = new CompletableFuture<>();
+        private volatile OrderDTO order;
+        private volatile ErrorResponse error;
+        private volatile LocalDateTime completedAt;
+
+        private OrderTicket(String trackingId, LocalDateTime acceptedAt, OrderDTO request) {
+            this.trackingId = trackingId;
+            this.acceptedAt = acceptedAt;
+            this.request = request;
+        }
+
+        private void complete(OrderDTO createdOrder) {
+            order = createdOrder;
+            completedAt = LocalDateTime.now();
+            completion.complete(null);
+        }
+
+        private void fail(ErrorResponse failure) {
+            error = failure;
+            completedAt = LocalDateTime.now();
+            completion.complete(null);
+        }
+
+        private boolean hasFailed() {
+            return error != null;
+        }
+
+        private OrderTicketDTO toDTO() {
+            OrderTicketDTO.TicketStatus status = completedAt == null
+                    ? OrderTicketDTO.TicketStatus.ACCEPTED
+                    : error != null ? OrderTicketDTO.TicketStatus.FAILED : OrderTicketDTO.TicketStatus.COMPLETED;
+            return OrderTicketDTO.builder()
+                    .trackingId(trackingId)
+                    .status(status)
+                    .order(order)
+                    .error(error)
+                    .acceptedAt(acceptedAt)
+                    .completedAt(completedAt)
+                    .build();
+        }
+    }
+}
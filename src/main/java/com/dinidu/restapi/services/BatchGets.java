@@ -0,0 +1,56 @@
+package com.dinidu.restapi.services;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Helpers for multi-get lookups: results follow the order of the requested ids, duplicates
+ * are collapsed and ids without a match are reported instead of failing the request.
+ */
+public final class BatchGets {
+
+    private BatchGets() {
+    }
+
+    public static Set<Long> distinctIds(Collection<Long> ids, int maxIds) {
+        Set<Long> distinct = new LinkedHashSet<>(ids);
+        distinct.remove(null);
+        if (distinct.isEmpty()) {
+            throw new IllegalArgumentException("At least one id is required");
+        }
+        if (distinct.size() > maxIds) {
+            throw new IllegalArgumentException("At most " + maxIds + " ids can be fetched per request");
+        }
+        return distinct;
+    }
+
+    public static <T> List<T> inRequestOrder(Collection<Long> ids, Collection<T> found, Function<T, Long> idOf) {
+        Map<Long, T> byId = new HashMap<>();
+        found.forEach(item -> byId.put(idOf.apply(item), item));
+        return ids.stream().map(byId::get).filter(Objects::nonNull).toList();
+    }
+
+    /**
+     * Response metadata: how many distinct ids were requested and found, and which were missing.
+     */
+    public static <T> Map<String, Object> metadata(Collection<Long> ids, List<T> found, Function<T, Long> idOf) {
+        Set<Long> requested = new LinkedHashSet<>(ids);
+        requested.remove(null);
+        Set<Long> foundIds = new HashSet<>();
+        found.forEach(item -> foundIds.add(idOf.apply(item)));
+
+        Map<String, Object> metadata = new LinkedHashMap<>();
+        metadata.put("requested", requested.size());
+        metadata.put("found", found.size());
+        metadata.put("missingIds", requested.stream().filter(id -> !foundIds.contains(id)).toList());
+        return metadata;
+    }
+}
@@ -0,0 +1,285 @@
+package com.dinidu.restapi.services;
+
+import com.dinidu.restapi.config.CacheInvalidationProperties;
+import com.dinidu.restapi.events.ProductChangedEvent;
+import com.dinidu.restapi.events.UsersChangedEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps the in-process caches of several instances consistent. Product and user changes
+ * committed on this instance are collected and sent every {@code flushInterval} as one
+ * {@code pg_notify} on the configured channel. A dedicated connection {@code LISTEN}s on that
+ * channel and republishes what other instances sent as remote {@link ProductChangedEvent}s and
+ * {@link UsersChangedEvent}s, which the caches handle like their own changes.
+ * <p>
+ * Notifications sent while the listener is disconnected are lost, so every (re)connect drops
+ * everything the caches hold. Changes of an instance that dies between commit and flush are
+ * left to the caches' refresh intervals and TTLs.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CacheInvalidationBus {
+    private static final Pattern CHANNEL_NAME = Pattern.compile("[a-z_][a-z0-9_]*");
+    private static final int VALIDATION_TIMEOUT_SECONDS = 5;
+
+    private final CacheInvalidationProperties properties;
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSourceProperties dataSourceProperties;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final MeterRegistry meterRegistry;
+
+    private final String instanceId = UUID.randomUUID().toString();
+    private Changes pending = new Changes();
+    private volatile boolean running;
+    private Thread listener;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        if (!CHANNEL_NAME.matcher(properties.getChannel()).matches()) {
+            throw new IllegalStateException("Invalid notification channel: " + properties.getChannel());
+        }
+        running = true;
+        listener = new Thread(this::listenLoop, "cache-invalidation-listener");
+        listener.setDaemon(true);
+        listener.start();
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        if (listener == null) {
+            return;
+        }
+        running = false;
+        flush();
+        listener.join(properties.getPollTimeout().multipliedBy(2).toMillis());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (!properties.isEnabled() || event.remote()) {
+            return;
+        }
+        synchronized (this) {
+            pending.add(event);
+        }
+    }
+
+    /**
+     * Announces users whose cached data changed on this instance. Call once the change is committed.
+     */
+    public void usersChanged(Collection<Long> userIds) {
+        if (!properties.isEnabled() || userIds.isEmpty()) {
+            return;
+        }
+        synchronized (this) {
+            pending.users.addAll(userIds);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.cache-invalidation.flush-interval:PT0.1S}")
+    public void flush() {
+        Changes changes;
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            changes = pending;
+            pending = new Changes();
+        }
+        try {
+            for (Message message : changes.toMessages(instanceId, properties.getMaxIdsPerMessage())) {
+                jdbcTemplate.queryForList("SELECT pg_notify(?, ?)",
+                        properties.getChannel(), objectMapper.writeValueAsString(message));
+                meterRegistry.counter("cache.invalidation.sent").increment();
+            }
+        } catch (DataAccessException | JsonProcessingException e) {
+            log.warn("Unable to publish cache invalidations, retrying with the next flush: {}", e.getMessage());
+            synchronized (this) {
+                pending.add(changes);
+            }
+        }
+    }
+
+    private void listenLoop() {
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                    dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword())) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + properties.getChannel());
+                }
+                log.info("Listening for cache invalidations on channel {}", properties.getChannel());
+                meterRegistry.counter("cache.invalidation.full-flushes").increment();
+                publish(Changes.everything());
+                receive(connection);
+            } catch (SQLException | RuntimeException e) {
+                if (running) {
+                    log.warn("Cache invalidation listener failed, reconnecting in {}: {}",
+                            properties.getReconnectDelay(), e.getMessage());
+                    pause();
+                }
+            }
+        }
+    }
+
+    private void receive(Connection connection) throws SQLException {
+        PGConnection pgConnection = connection.unwrap(PGConnection.class);
+        int timeoutMillis = (int) properties.getPollTimeout().toMillis();
+        while (running) {
+            PGNotification[] notifications = pgConnection.getNotifications(timeoutMillis);
+            if (notifications == null || notifications.length == 0) {
+                // a silently dropped connection would otherwise just look idle
+                if (!connection.isValid(VALIDATION_TIMEOUT_SECONDS)) {
+                    throw new SQLException("Listener connection is no longer valid");
+                }
+                continue;
+            }
+            Changes changes = new Changes();
+            for (PGNotification notification : notifications) {
+                Message message = read(notification.getParameter());
+                if (message != null && !instanceId.equals(message.origin())) {
+                    changes.add(message);
+                    meterRegistry.counter("cache.invalidation.received").increment();
+                }
+            }
+            publish(changes);
+        }
+    }
+
+    private Message read(String payload) {
+        try {
+            return objectMapper.readValue(payload, Message.class);
+        } catch (JsonProcessingException e) {
+            log.warn("Ignoring malformed cache invalidation: {}", payload);
+            return null;
+        }
+    }
+
+    private void publish(Changes changes) {
+        if (changes.allProducts) {
+            eventPublisher.publishEvent(ProductChangedEvent.remote(Set.of(), false, true));
+        } else if (!changes.products.isEmpty()) {
+            eventPublisher.publishEvent(ProductChangedEvent.remote(changes.products, changes.productMembership,
+                    changes.productNames));
+        }
+        if (changes.allUsers) {
+            eventPublisher.publishEvent(UsersChangedEvent.unspecified());
+        } else if (!changes.users.isEmpty()) {
+            eventPublisher.publishEvent(UsersChangedEvent.of(changes.users));
+        }
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(properties.getReconnectDelay().toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+
+    /**
+     * Changes accumulated for one flush, or received in one poll.
+     */
+    private static final class Changes {
+        private final Set<Long> products = new HashSet<>();
+        private final Set<Long> users = new HashSet<>();
+        private boolean allProducts;
+        private boolean productMembership;
+        private boolean productNames;
+        private boolean allUsers;
+
+        static Changes everything() {
+            Changes changes = new Changes();
+            changes.allProducts = true;
+            changes.allUsers = true;
+            return changes;
+        }
+
+        void add(ProductChangedEvent event) {
+            allProducts |= event.affectsAll();
+            productMembership |= event.membershipChanged();
+            productNames |= event.renamed();
+            products.addAll(event.productIds());
+        }
+
+        void add(Message message) {
+            allProducts |= message.allProducts();
+            productMembership |= message.productMembership();
+            productNames |= message.productNames();
+            allUsers |= message.allUsers();
+            products.addAll(message.products());
+            users.addAll(message.users());
+        }
+
+        void add(Changes other) {
+            allProducts |= other.allProducts;
+            productMembership |= other.productMembership;
+            productNames |= other.productNames;
+            allUsers |= other.allUsers;
+            products.addAll(other.products);
+            users.addAll(other.users);
+        }
+
+        boolean isEmpty() {
+            return !allProducts && !allUsers && products.isEmpty() && users.isEmpty();
+        }
+
+        /**
+         * Splits the ids into messages of at most {@code maxIds}; the flags are repeated in each.
+         */
+        List<Message> toMessages(String origin, int maxIds) {
+            List<Long> productIds = allProducts ? List.of() : List.copyOf(products);
+            List<Long> userIds = allUsers ? List.of() : List.copyOf(users);
+            List<Message> messages = new ArrayList<>();
+            int productOffset = 0;
+            int userOffset = 0;
+            do {
+                int productCount = Math.min(productIds.size() - productOffset, maxIds);
+                int userCount = Math.min(userIds.size() - userOffset, maxIds - productCount);
+                messages.add(new Message(origin, allProducts, productMembership, productNames,
+                        productIds.subList(productOffset, productOffset + productCount),
+                        allUsers, userIds.subList(userOffset, userOffset + userCount)));
+                productOffset += productCount;
+                userOffset += userCount;
+            } while (productOffset < productIds.size() || userOffset < userIds.size());
+            return messages;
+        }
+    }
+
+    record Message(String origin, boolean allProducts, boolean productMembership, boolean productNames,
+                   List<Long> products, boolean allUsers, List<Long> users) {
+    }
+}
@@ -0,0 +1,306 @@
+package com.dinidu.restapi.services;
+
+import com.dinidu.restapi.dtos.ProductDTO;
+import com.dinidu.restapi.models.Product;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Immutable view of the whole product catalog, indexed by id and status, and kept presorted by
+ * creation time, price and name in both directions so the common listings are a slice rather
+ * than a sort. Changes build a new snapshot that reuses what they do not touch: the orderings
+ * are patched rather than re-sorted, and status lists without changed products are shared. The
+ * DTOs are shared by all readers and must not be modified.
+ * <p>
+ * The name ordering comes from the database, as Java cannot reproduce its collation. It is
+ * kept while changes leave names alone and dropped otherwise, sending name sorts back to the
+ * database until the next full load.
+ */
+final class CatalogSnapshot {
+    /**
+     * Properties whose Java ordering matches PostgreSQL's. Text columns sort by the database
+     * collation, so {@code name} only sorts through the ordering loaded from the database;
+     * {@code status} is stored as the enum name, whose values already differ in their first letter.
+     */
+    private static final Map<String, Comparator<ProductDTO>> SORTABLE_PROPERTIES = Map.of(
+            "id", comparing(ProductDTO::getId),
+            "price", comparing(ProductDTO::getPrice),
+            "stockQuantity", comparing(ProductDTO::getStockQuantity),
+            "status", comparing(product -> product.getStatus() != null ? product.getStatus().name() : null),
+            "createdAt", comparing(ProductDTO::getCreatedAt),
+            "updatedAt", comparing(ProductDTO::getUpdatedAt));
+
+    private static final List<Sort> PRESORTED = List.of(
+            Sort.by(Sort.Direction.DESC, "createdAt"), Sort.by(Sort.Direction.ASC, "createdAt"),
+            Sort.by(Sort.Direction.ASC, "price"), Sort.by(Sort.Direction.DESC, "price"));
+    private static final Sort PRICE_ORDER = Sort.by(Sort.Direction.ASC, "price");
+    private static final Sort NAME_ASC = Sort.by(Sort.Direction.ASC, "name");
+    private static final Sort NAME_DESC = Sort.by(Sort.Direction.DESC, "name");
+
+    private final Map<Long, ProductDTO> byId;
+    private final Map<Product.ProductStatus, List<ProductDTO>> byStatus;
+    private final Map<Sort, List<ProductDTO>> sorted;
+    private final Instant fullyLoadedAt;
+
+    private CatalogSnapshot(Map<Long, ProductDTO> byId, Map<Product.ProductStatus, List<ProductDTO>> byStatus,
+                            Map<Sort, List<ProductDTO>> sorted, Instant fullyLoadedAt) {
+        this.byId = Collections.unmodifiableMap(byId);
+        this.byStatus = byStatus;
+        this.sorted = sorted;
+        this.fullyLoadedAt = fullyLoadedAt;
+    }
+
+    /**
+     * {@code productsByName} must be in the database's {@code name, id} order.
+     */
+    static CatalogSnapshot of(List<ProductDTO> productsByName, Instant loadedAt) {
+        Map<Long, ProductDTO> byId = new HashMap<>();
+        productsByName.forEach(product -> byId.put(product.getId(), product));
+        Map<Product.ProductStatus, List<ProductDTO>> byStatus = new EnumMap<>(Product.ProductStatus.class);
+        for (ProductDTO product : byId.values()) {
+            if (product.getStatus() != null) {
+                byStatus.computeIfAbsent(product.getStatus(), status -> new ArrayList<>()).add(product);
+            }
+        }
+        byStatus.replaceAll((status, list) -> List.copyOf(list));
+        Map<Sort, List<ProductDTO>> sorted = new HashMap<>();
+        for (Sort sort : PRESORTED) {
+            List<ProductDTO> list = new ArrayList<>(byId.values());
+            list.sort(comparator(sort));
+            sorted.put(sort, List.copyOf(list));
+        }
+        sorted.put(NAME_ASC, List.copyOf(productsByName));
+        sorted.put(NAME_DESC, descendingByName(productsByName));
+        return new CatalogSnapshot(byId, byStatus, sorted, loadedAt);
+    }
+
+    /**
+     * Copy with {@code changedIds} replaced by their reloaded rows; ids missing from
+     * {@code reloaded} were deleted.
+     */
+    CatalogSnapshot withChanges(Collection<Long> changedIds, Collection<ProductDTO> reloaded) {
+        Set<Long> changed = new HashSet<>(changedIds);
+        Map<Long, ProductDTO> updated = new HashMap<>(byId);
+        changed.forEach(updated::remove);
+        reloaded.forEach(product -> updated.put(product.getId(), product));
+
+        Map<Sort, List<ProductDTO>> orderings = new HashMap<>();
+        for (Sort sort : PRESORTED) {
+            orderings.put(sort, patched(sorted.get(sort), changed, reloaded, comparator(sort)));
+        }
+        if (sorted.containsKey(NAME_ASC) && namesUnchanged(reloaded)) {
+            // equal names keep their neighbours, so each row stays where it was
+            orderings.put(NAME_ASC, replacedInPlace(sorted.get(NAME_ASC), changed, updated));
+            orderings.put(NAME_DESC, replacedInPlace(sorted.get(NAME_DESC), changed, updated));
+        }
+
+        Map<Product.ProductStatus, List<ProductDTO>> statuses = new EnumMap<>(byStatus);
+        Set<Product.ProductStatus> touched = EnumSet.noneOf(Product.ProductStatus.class);
+        for (Long id : changed) {
+            ProductDTO previous = byId.get(id);
+            if (previous != null && previous.getStatus() != null) {
+                touched.add(previous.getStatus());
+            }
+        }
+        for (ProductDTO product : reloaded) {
+            if (product.getStatus() != null) {
+                touched.add(product.getStatus());
+            }
+        }
+        for (Product.ProductStatus status : touched) {
+            List<ProductDTO> list = new ArrayList<>();
+            for (ProductDTO product : statuses.getOrDefault(status, List.of())) {
+                if (!changed.contains(product.getId())) {
+                    list.add(product);
+                }
+            }
+            reloaded.stream().filter(product -> product.getStatus() == status).forEach(list::add);
+            statuses.put(status, List.copyOf(list));
+        }
+        return new CatalogSnapshot(updated, statuses, orderings, fullyLoadedAt);
+    }
+
+    Instant fullyLoadedAt() {
+        return fullyLoadedAt;
+    }
+
+    Optional<ProductDTO> findById(Long id) {
+        return Optional.ofNullable(byId.get(id));
+    }
+
+    boolean canSort(Sort sort) {
+        return sorted.containsKey(sort)
+                || sort.stream().allMatch(order -> SORTABLE_PROPERTIES.containsKey(order.getProperty()));
+    }
+
+    Page<ProductDTO> all(Pageable pageable) {
+        List<ProductDTO> presorted = sorted.get(pageable.getSort());
+        if (presorted != null) {
+            return slice(presorted, pageable);
+        }
+        return page(byId.values(), product -> true, pageable);
+    }
+
+    Page<ProductDTO> search(String text, Pageable pageable) {
+        Predicate<String> containsText = value -> value != null && value.contains(text);
+        return page(byId.values(),
+                product -> containsText.test(product.getName()) || containsText.test(product.getDescription()),
+                pageable);
+    }
+
+    Page<ProductDTO> byStatus(Product.ProductStatus status, Pageable pageable) {
+        return page(byStatus.getOrDefault(status, List.of()), product -> product.getStatus() == status, pageable);
+    }
+
+    Page<ProductDTO> byPriceRange(BigDecimal minPrice, BigDecimal maxPrice, Pageable pageable) {
+        List<ProductDTO> byPrice = sorted.get(PRICE_ORDER);
+        int from = firstIndexAtLeast(byPrice, minPrice, false);
+        int to = firstIndexAtLeast(byPrice, maxPrice, true);
+        List<ProductDTO> inRange = from < to ? byPrice.subList(from, to) : List.of();
+        return page(inRange,
+                product -> product.getPrice().compareTo(minPrice) >= 0 && product.getPrice().compareTo(maxPrice) <= 0,
+                pageable);
+    }
+
+    List<ProductDTO> withStockBelow(int threshold) {
+        return byId.values().stream()
+                .filter(product -> product.getStockQuantity() < threshold)
+                .toList();
+    }
+
+    /**
+     * The {@code filter}ed products, which are all among {@code candidates}, in the requested
+     * order: read off a presorted list when there is one, sorted here otherwise.
+     */
+    private Page<ProductDTO> page(Collection<ProductDTO> candidates, Predicate<ProductDTO> filter, Pageable pageable) {
+        List<ProductDTO> presorted = sorted.get(pageable.getSort());
+        if (presorted != null) {
+            return slice(presorted.stream().filter(filter).toList(), pageable);
+        }
+        List<ProductDTO> matching = new ArrayList<>();
+        for (ProductDTO product : candidates) {
+            if (filter.test(product)) {
+                matching.add(product);
+            }
+        }
+        matching.sort(comparator(pageable.getSort()));
+        return slice(matching, pageable);
+    }
+
+    private static Page<ProductDTO> slice(List<ProductDTO> products, Pageable pageable) {
+        if (pageable.isUnpaged()) {
+            return new PageImpl<>(products);
+        }
+        int from = (int) Math.min(pageable.getOffset(), products.size());
+        int to = Math.min(from + pageable.getPageSize(), products.size());
+        return new PageImpl<>(products.subList(from, to), pageable, products.size());
+    }
+
+    /**
+     * Index of the first product priced at or above {@code price} (strictly above when
+     * {@code exclusive}) in the price-ordered list.
+     */
+    private static int firstIndexAtLeast(List<ProductDTO> byPrice, BigDecimal price, boolean exclusive) {
+        int low = 0;
+        int high = byPrice.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int comparison = byPrice.get(mid).getPrice().compareTo(price);
+            if (comparison < 0 || (exclusive && comparison == 0)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * {@code ordered} without the changed rows and with the reloaded ones inserted in place.
+     */
+    private static List<ProductDTO> patched(List<ProductDTO> ordered, Set<Long> changed,
+                                            Collection<ProductDTO> reloaded, Comparator<ProductDTO> order) {
+        List<ProductDTO> patched = new ArrayList<>(ordered.size() + reloaded.size());
+        for (ProductDTO product : ordered) {
+            if (!changed.contains(product.getId())) {
+                patched.add(product);
+            }
+        }
+        for (ProductDTO product : reloaded) {
+            int index = Collections.binarySearch(patched, product, order);
+            patched.add(index < 0 ? -index - 1 : index, product);
+        }
+        return Collections.unmodifiableList(patched);
+    }
+
+    private boolean namesUnchanged(Collection<ProductDTO> reloaded) {
+        return reloaded.stream().allMatch(product -> byId.containsKey(product.getId())
+                && Objects.equals(byId.get(product.getId()).getName(), product.getName()));
+    }
+
+    private static List<ProductDTO> replacedInPlace(List<ProductDTO> ordered, Set<Long> changed,
+                                                    Map<Long, ProductDTO> current) {
+        List<ProductDTO> replaced = new ArrayList<>(ordered.size());
+        for (ProductDTO product : ordered) {
+            ProductDTO latest = changed.contains(product.getId()) ? current.get(product.getId()) : product;
+            if (latest != null) {
+                replaced.add(latest);
+            }
+        }
+        return Collections.unmodifiableList(replaced);
+    }
+
+    /**
+     * {@code name DESC, id} from {@code name, id}: the runs of equal names are reversed as a
+     * whole, keeping ids ascending within each.
+     */
+    private static List<ProductDTO> descendingByName(List<ProductDTO> byName) {
+        List<ProductDTO> descending = new ArrayList<>(byName.size());
+        int end = byName.size();
+        while (end > 0) {
+            int start = end - 1;
+            while (start > 0 && Objects.equals(byName.get(start - 1).getName(), byName.get(end - 1).getName())) {
+                start--;
+            }
+            descending.addAll(byName.subList(start, end));
+            end = start;
+        }
+        return List.copyOf(descending);
+    }
+
+    /**
+     * Matches PostgreSQL's ordering: nulls last ascending, first descending; ties broken by id.
+     */
+    private static Comparator<ProductDTO> comparator(Sort sort) {
+        Comparator<ProductDTO> comparator = (left, right) -> 0;
+        for (Sort.Order order : sort) {
+            Comparator<ProductDTO> property = SORTABLE_PROPERTIES.get(order.getProperty());
+            comparator = comparator.thenComparing(order.isAscending() ? property : property.reversed());
+        }
+        return comparator.thenComparing(ProductDTO::getId);
+    }
+
+    private static <T extends Comparable<? super T>> Comparator<ProductDTO> comparing(Function<ProductDTO, T> property) {
+        return Comparator.comparing(property, Comparator.nullsLast(Comparator.naturalOrder()));
+    }
+}
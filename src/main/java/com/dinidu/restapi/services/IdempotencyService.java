@@ -0,0 +1,163 @@
+package com.dinidu.restapi.services;
+
+import com.dinidu.restapi.config.IdempotencyProperties;
+import com.dinidu.restapi.dtos.OrderDTO;
+import com.dinidu.restapi.exceptions.DuplicateResourceException;
+import com.dinidu.restapi.exceptions.IdempotencyKeyReuseException;
+import com.dinidu.restapi.models.IdempotencyRecord;
+import com.dinidu.restapi.repository.IdempotencyRecordRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Optional;
+
+/**
+ * Remembers the response of {@code POST /orders} per {@code Idempotency-Key}. Completed
+ * responses are kept in memory for replay without touching the database and persisted in
+ * {@code idempotency_keys} (in the order's own transaction) so replays survive restarts
+ * and work across instances. The in-memory copies are bounded by {@code maxCachedKeys}, evicting
+ * the least valuable keys first, and expire with the TTL.
+ */
+@Service
+@Slf4j
+public class IdempotencyService {
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final IdempotencyProperties properties;
+    private final ObjectMapper objectMapper;
+    private final Cache<String, CachedResponse> recentResponses;
+
+    public IdempotencyService(IdempotencyRecordRepository idempotencyRecordRepository,
+                              IdempotencyProperties properties, ObjectMapper objectMapper,
+                              MeterRegistry meterRegistry) {
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        this.recentResponses = CaffeineCacheMetrics.monitor(meterRegistry, Caffeine.newBuilder()
+                .maximumSize(properties.getMaxCachedKeys())
+                .expireAfterWrite(properties.getTtl())
+                .recordStats()
+                .<String, CachedResponse>build(), "idempotency.responses");
+    }
+
+    public Optional<OrderDTO> findCompletedOrder(String key, OrderDTO request) {
+        String requestHash = hash(request);
+        LocalDateTime now = LocalDateTime.now();
+
+        CachedResponse cached = recentResponses.getIfPresent(key);
+        if (cached != null && cached.expiresAt().isAfter(now)) {
+            verifySameRequest(key, cached.requestHash(), requestHash);
+            return Optional.of(cached.response());
+        }
+
+        Optional<IdempotencyRecord> stored = idempotencyRecordRepository.findById(key)
+                .filter(record -> record.getExpiresAt().isAfter(now));
+        if (stored.isEmpty()) {
+            return Optional.empty();
+        }
+        IdempotencyRecord record = stored.get();
+        verifySameRequest(key, record.getRequestHash(), requestHash);
+        OrderDTO response = readResponse(record.getResponseBody());
+        remember(key, new CachedResponse(record.getRequestHash(), response, record.getExpiresAt()));
+        return Optional.of(response);
+    }
+
+    /**
+     * Stores the response inside the caller's transaction; it only becomes visible in memory
+     * once that transaction commits.
+     */
+    public void recordOrder(String key, OrderDTO request, OrderDTO response) {
+        String requestHash = hash(request);
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime expiresAt = now.plus(properties.getTtl());
+
+        int inserted = idempotencyRecordRepository.insertIfAbsent(
+                key, requestHash, writeResponse(response), now, expiresAt);
+        if (inserted == 0) {
+            throw new DuplicateResourceException("A request with Idempotency-Key " + key + " was already processed");
+        }
+
+        CachedResponse cached = new CachedResponse(requestHash, response, expiresAt);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                remember(key, cached);
+            }
+        });
+    }
+
+    /**
+     * Drops the in-memory copies; responses are still replayed from {@code idempotency_keys}.
+     */
+    public void evictCachedResponses() {
+        recentResponses.invalidateAll();
+    }
+
+    @Scheduled(fixedDelayString = "${app.idempotency.cleanup-interval:PT5M}")
+    public void purgeExpired() {
+        LocalDateTime now = LocalDateTime.now();
+        int batchSize = properties.getCleanupBatchSize();
+        int total = 0;
+        int deleted;
+        do {
+            deleted = idempotencyRecordRepository.deleteExpiredBatch(now, batchSize);
+            total += deleted;
+        } while (deleted == batchSize);
+
+        if (total > 0) {
+            log.info("Purged {} expired idempotency keys", total);
+        }
+    }
+
+    private void remember(String key, CachedResponse cached) {
+        recentResponses.put(key, cached);
+    }
+
+    private void verifySameRequest(String key, String storedHash, String requestHash) {
+        if (!storedHash.equals(requestHash)) {
+            throw new IdempotencyKeyReuseException("Idempotency-Key " + key + " was used with a different request");
+        }
+    }
+
+    private String hash(OrderDTO request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] body = objectMapper.writeValueAsString(request).getBytes(StandardCharsets.UTF_8);
+            return HexFormat.of().formatHex(digest.digest(body));
+        } catch (NoSuchAlgorithmException | JsonProcessingException e) {
+            throw new IllegalStateException("Unable to fingerprint order request", e);
+        }
+    }
+
+    private String writeResponse(OrderDTO response) {
+        try {
+            return objectMapper.writeValueAsString(response);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unable to store order response", e);
+        }
+    }
+
+    private OrderDTO readResponse(String body) {
+        try {
+            return objectMapper.readValue(body, OrderDTO.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unable to read stored order response", e);
+        }
+    }
+
+    private record CachedResponse(String requestHash, OrderDTO response, LocalDateTime expiresAt) {
+    }
+}
@@ -0,0 +1,95 @@
+package com.dinidu.restapi.services;
+
+import com.dinidu.restapi.config.OptimisticLockRetryProperties;
+import com.dinidu.restapi.config.Workload;
+import com.dinidu.restapi.config.WorkloadBulkheads;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Runs an action in its own transaction and re-runs it with full-jitter exponential backoff
+ * when the commit loses an optimistic lock race. Callers must not already be inside a
+ * transaction, otherwise the retry would join (and keep poisoning) the outer one.
+ * <p>
+ * Each attempt takes its own permit of the workload's bulkhead, so the backoff between
+ * attempts does not keep a slot (or, through it, a connection) from other callers. Callers
+ * must therefore not be annotated with {@link Workload} themselves.
+ */
+@Component
+@Slf4j
+public class OptimisticLockRetrier {
+    private final TransactionTemplate transactionTemplate;
+    private final WorkloadBulkheads bulkheads;
+    private final OptimisticLockRetryProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    public OptimisticLockRetrier(PlatformTransactionManager transactionManager,
+                                 WorkloadBulkheads bulkheads,
+                                 OptimisticLockRetryProperties properties,
+                                 MeterRegistry meterRegistry) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.bulkheads = bulkheads;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public <T> T execute(String operation, Workload.Type workload, Supplier<T> action) {
+        int attempt = 1;
+        while (true) {
+            try (WorkloadBulkheads.Permit permit = bulkheads.enter(workload)) {
+                return transactionTemplate.execute(status -> action.get());
+            } catch (OptimisticLockingFailureException ex) {
+                Tags tags = recordConflict(operation, ex);
+                if (attempt >= properties.getMaxAttempts()) {
+                    log.warn("Giving up on {} after {} attempts: {}", operation, attempt, ex.getMessage());
+                    throw ex;
+                }
+                log.debug("Optimistic lock conflict in {} (attempt {}), retrying", operation, attempt);
+                meterRegistry.counter("optimistic.lock.retries", tags).increment();
+                sleep(backoffMillis(attempt), ex);
+                attempt++;
+            }
+        }
+    }
+
+    /**
+     * Counts a conflict in {@code optimistic.lock.conflicts}, for operations that report
+     * conflicts to the client instead of retrying them. Tagged by entity type only; the id of
+     * the contended row goes to the log.
+     */
+    public Tags recordConflict(String operation, OptimisticLockingFailureException ex) {
+        String entity = "unknown";
+        if (ex instanceof ObjectOptimisticLockingFailureException objectFailure) {
+            String className = objectFailure.getPersistentClassName();
+            entity = className.substring(className.lastIndexOf('.') + 1);
+            log.debug("Optimistic lock conflict in {} on {} {}", operation, entity, objectFailure.getIdentifier());
+        }
+        Tags tags = Tags.of("operation", operation, "entity", entity);
+        meterRegistry.counter("optimistic.lock.conflicts", tags).increment();
+        return tags;
+    }
+
+    private long backoffMillis(int attempt) {
+        long ceiling = Math.min(properties.getMaxBackoff().toMillis(),
+                properties.getInitialBackoff().toMillis() << Math.min(attempt - 1, 20));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    private void sleep(long millis, OptimisticLockingFailureException cause) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw cause;
+        }
+    }
+}
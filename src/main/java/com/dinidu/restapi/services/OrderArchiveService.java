@@ -0,0 +1,72 @@
+package com.dinidu.restapi.services;
+
+import com.dinidu.restapi.config.OrderArchiveProperties;
+import com.dinidu.restapi.dtos.OrderDTO;
+import com.dinidu.restapi.repository.OrderArchiveRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Keeps monthly partitions of {@code orders}/{@code order_items} created ahead of time and moves
+ * finished orders past the retention period into the archive tables, where
+ * {@link OrderService#getOrderById} and {@link OrderService#getOrdersByIds} can still find them.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OrderArchiveService {
+    private static final String[] PARTITIONED_TABLES = {"orders", "order_items"};
+
+    private final OrderArchiveRepository orderArchiveRepository;
+    private final OrderArchiveProperties properties;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${app.orders.archive.maintenance-cron:0 15 * * * *}")
+    public void maintainPartitions() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        YearMonth current = YearMonth.now();
+        for (int i = 0; i <= properties.getPartitionsAhead(); i++) {
+            for (String table : PARTITIONED_TABLES) {
+                orderArchiveRepository.createMonthlyPartition(table, current.plusMonths(i));
+            }
+        }
+        archiveFinishedOrders();
+    }
+
+    private void archiveFinishedOrders() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(properties.getRetention());
+        int batchSize = properties.getBatchSize();
+        int total = 0;
+        int moved;
+        do {
+            moved = orderArchiveRepository.archiveBatch(cutoff, batchSize);
+            total += moved;
+        } while (moved == batchSize);
+
+        if (total > 0) {
+            log.info("Archived {} orders created before {}", total, cutoff);
+        }
+    }
+
+    public Optional<OrderDTO> findArchivedOrder(Long id, boolean includeItems) {
+        return properties.isEnabled() ? orderArchiveRepository.findById(id, includeItems) : Optional.empty();
+    }
+
+    public List<OrderDTO> findArchivedOrders(Collection<Long> ids, boolean includeItems) {
+        return properties.isEnabled() && !ids.isEmpty()
+                ? orderArchiveRepository.findAllByIdIn(ids, includeItems)
+                : List.of();
+    }
+}
@@ -0,0 +1,160 @@
+package com.dinidu.restapi.services;
+
+import com.dinidu.restapi.config.OrderEventProperties;
+import com.dinidu.restapi.dtos.OrderEventDTO;
+import com.dinidu.restapi.models.Order;
+import com.dinidu.restapi.models.OrderEvent;
+import com.dinidu.restapi.repository.OrderEventFeedRepository;
+import com.dinidu.restapi.repository.OrderEventRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Transactional outbox for order changes plus a cursor-based feed over it, in commit order
+ * (see {@link OrderEventFeedRepository}). Long-poll subscribers are parked until a commit on
+ * this instance (or a periodic re-check, for commits made elsewhere or held back by a running
+ * transaction) produces events past their cursor.
+ * <p>
+ * Events held back that way are measured every {@code horizon-check-interval}: the
+ * {@code orders.events.feed.held} gauge counts them and {@code orders.events.feed.horizon.age}
+ * is the age of the oldest transaction holding them, which is also logged once it passes
+ * {@code horizon-warn-after}.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OrderEventService {
+    private static final long RECHECK_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final OrderEventRepository orderEventRepository;
+    private final OrderEventFeedRepository orderEventFeedRepository;
+    private final OrderEventProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    private final Queue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+    private volatile long lastCommitNanos;
+    private volatile long coveredUntilNanos = System.nanoTime();
+    private volatile long heldBackEvents;
+    private volatile double horizonAgeSeconds;
+
+    @PostConstruct
+    void registerMetrics() {
+        Gauge.builder("orders.events.feed.held", this, service -> service.heldBackEvents)
+                .description("Committed order events hidden from the feed by running transactions")
+                .register(meterRegistry);
+        Gauge.builder("orders.events.feed.horizon.age", this, service -> service.horizonAgeSeconds)
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void append(Order order, OrderEvent.EventType eventType) {
+        orderEventRepository.save(OrderEvent.builder()
+                .orderId(order.getId())
+                .orderNumber(order.getOrderNumber())
+                .userId(order.getUser().getId())
+                .eventType(eventType)
+                .status(order.getStatus())
+                .totalAmount(order.getTotalAmount())
+                .build());
+        onCommit();
+    }
+
+    /**
+     * Marks that events were appended outside of {@link #append}, e.g. by set-based statements.
+     */
+    public void onCommit() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    lastCommitNanos = System.nanoTime();
+                }
+            });
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public List<OrderEventDTO> getEventsAfter(long after, int limit) {
+        return orderEventFeedRepository.findFeed(after, clamp(limit));
+    }
+
+    /**
+     * Completes as soon as events past {@code after} are visible, or with an empty list once
+     * the long-poll timeout elapses.
+     */
+    public CompletableFuture<List<OrderEventDTO>> pollEventsAfter(long after, int limit) {
+        List<OrderEventDTO> available = getEventsAfter(after, limit);
+        if (!available.isEmpty()) {
+            return CompletableFuture.completedFuture(available);
+        }
+        CompletableFuture<List<OrderEventDTO>> result = new CompletableFuture<List<OrderEventDTO>>()
+                .completeOnTimeout(List.of(), properties.getLongPollTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        Waiter waiter = new Waiter(after, clamp(limit), result);
+        waiters.add(waiter);
+        result.whenComplete((events, failure) -> waiters.remove(waiter));
+        return result;
+    }
+
+    @Scheduled(fixedDelayString = "${app.orders.events.poll-interval:PT0.2S}")
+    public void wakeWaiters() {
+        if (waiters.isEmpty()) {
+            return;
+        }
+        long now = System.nanoTime();
+        boolean unseenCommits = lastCommitNanos > coveredUntilNanos;
+        boolean recheckDue = now - coveredUntilNanos > RECHECK_INTERVAL_NANOS;
+        if (!unseenCommits && !recheckDue) {
+            return;
+        }
+        coveredUntilNanos = now;
+
+        // ids do not follow commit order, so each cursor needs its own read; waiters mostly share a few
+        Map<Long, List<Waiter>> byCursor = waiters.stream().collect(Collectors.groupingBy(Waiter::after));
+        byCursor.forEach((after, sameCursor) -> {
+            int limit = sameCursor.stream().mapToInt(Waiter::limit).max().orElse(1);
+            List<OrderEventDTO> events = getEventsAfter(after, limit);
+            if (events.isEmpty()) {
+                return;
+            }
+            for (Waiter waiter : sameCursor) {
+                waiter.result().complete(events.stream().limit(waiter.limit()).toList());
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${app.orders.events.horizon-check-interval:PT10S}")
+    public void checkHorizon() {
+        OrderEventFeedRepository.FeedHorizon horizon = orderEventFeedRepository.findHorizon();
+        heldBackEvents = horizon.heldBackEvents();
+        horizonAgeSeconds = horizon.heldBackEvents() > 0 ? horizon.oldestTransactionSeconds() : 0;
+        if (horizon.heldBackEvents() > 0 && horizonAgeSeconds > properties.getHorizonWarnAfter().toSeconds()) {
+            log.warn("{} committed order events are held back from the feed by a transaction running for {}s",
+                    horizon.heldBackEvents(), Math.round(horizonAgeSeconds));
+        }
+    }
+
+    private int clamp(int limit) {
+        return Math.max(1, Math.min(limit, properties.getMaxBatchSize()));
+    }
+
+    private record Waiter(long after, int limit, CompletableFuture<List<OrderEventDTO>> result) {
+    }
+}
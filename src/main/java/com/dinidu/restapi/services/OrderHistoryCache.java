@@ -0,0 +1,304 @@
+package com.dinidu.restapi.services;
+
+import com.dinidu.restapi.config.OrderHistoryCacheProperties;
+import com.dinidu.restapi.config.ReplicaRoutingDataSource;
+import com.dinidu.restapi.dtos.OrderDTO;
+import com.dinidu.restapi.dtos.OrderItemDTO;
+import com.dinidu.restapi.events.ProductChangedEvent;
+import com.dinidu.restapi.events.UsersChangedEvent;
+import com.dinidu.restapi.models.Order;
+import com.dinidu.restapi.repository.OrderOwnerView;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * The most recent orders of each user in a compact, immutable form, so the first page of
+ * {@code GET /orders/user/{userId}} is served without the database. Histories are bounded by
+ * an approximate memory budget (Caffeine's TinyLFU eviction) and written through on commit:
+ * new orders are prepended and status changes patched in place. Lines carry the product name
+ * as of the load, so renaming a product drops the histories that mention it.
+ * <p>
+ * Loads and patches for the same user are serialized by the cache, and every patch is
+ * idempotent, so a load racing with a commit either sees the change or gets patched afterwards.
+ * Loads read from the primary, as a lagging replica could miss a commit already patched in.
+ * Other instances drop the affected histories via {@link CacheInvalidationBus}.
+ */
+@Component
+public class OrderHistoryCache {
+    private static final Sort DEFAULT_SORT = Sort.by(Sort.Direction.DESC, "createdAt");
+    private static final Sort LOAD_SORT = Sort.by(Sort.Direction.DESC, "createdAt", "id");
+
+    private final OrderHistoryCacheProperties properties;
+    private final CacheInvalidationBus invalidationBus;
+    private final Cache<Long, OrderHistory> histories;
+
+    public OrderHistoryCache(OrderHistoryCacheProperties properties, CacheInvalidationBus invalidationBus,
+                             MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.invalidationBus = invalidationBus;
+        long ttlNanos = properties.getTtl().toNanos();
+        this.histories = CaffeineCacheMetrics.monitor(meterRegistry, Caffeine.newBuilder()
+                .maximumWeight(properties.getMaxSize().toBytes())
+                .weigher((Long userId, OrderHistory history) -> history.weight())
+                .expireAfter(new Expiry<Long, OrderHistory>() {
+                    @Override
+                    public long expireAfterCreate(Long userId, OrderHistory history, long currentTime) {
+                        return ttlNanos;
+                    }
+
+                    // patches keep the entry's original deadline
+                    @Override
+                    public long expireAfterUpdate(Long userId, OrderHistory history, long currentTime,
+                                                  long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(Long userId, OrderHistory history, long currentTime,
+                                                long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .<Long, OrderHistory>build(), "orders.history");
+    }
+
+    /**
+     * Whether the page is a first page, in the default newest-first order, that fits in a history.
+     */
+    public boolean isCacheable(Pageable pageable) {
+        return properties.isEnabled()
+                && pageable.getPageNumber() == 0
+                && pageable.getPageSize() <= properties.getRecentOrders()
+                && pageable.getSort().equals(DEFAULT_SORT);
+    }
+
+    /**
+     * Serves the first page from the user's history, loading it through {@code loader} (which
+     * must return orders with their items) on a miss.
+     */
+    public Page<OrderDTO> firstPage(Long userId, Pageable pageable, boolean includeItems,
+                                    Function<Pageable, Page<OrderDTO>> loader) {
+        OrderHistory history = histories.get(userId, id -> OrderHistory.of(ReplicaRoutingDataSource.readFromPrimary(
+                () -> loader.apply(PageRequest.of(0, properties.getRecentOrders(), LOAD_SORT)))));
+        List<OrderDTO> content = history.orders().stream()
+                .limit(pageable.getPageSize())
+                .map(order -> order.toDTO(userId, history.userFullName(), includeItems))
+                .toList();
+        return new PageImpl<>(content, pageable, history.totalOrders());
+    }
+
+    public void orderCreated(OrderDTO order) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        CachedOrder cached = CachedOrder.of(order);
+        afterCommit(() -> {
+            histories.asMap().computeIfPresent(order.getUserId(),
+                    (userId, history) -> history.prepend(cached, order.getUserFullName(), properties.getRecentOrders()));
+            invalidationBus.usersChanged(List.of(order.getUserId()));
+        });
+    }
+
+    public void statusChanged(Long userId, Long orderId, Order.OrderStatus status, LocalDateTime updatedAt) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        afterCommit(() -> {
+            patchStatus(userId, orderId, status, updatedAt);
+            invalidationBus.usersChanged(List.of(userId));
+        });
+    }
+
+    public void statusChanged(Collection<? extends OrderOwnerView> orders, Order.OrderStatus status,
+                              LocalDateTime updatedAt) {
+        if (!properties.isEnabled() || orders.isEmpty()) {
+            return;
+        }
+        List<OrderOwnerView> changed = List.copyOf(orders);
+        afterCommit(() -> {
+            changed.forEach(order -> patchStatus(order.getUserId(), order.getId(), status, updatedAt));
+            invalidationBus.usersChanged(changed.stream().map(OrderOwnerView::getUserId).collect(Collectors.toSet()));
+        });
+    }
+
+    /**
+     * Drops the user's history once the current transaction commits, e.g. after the user changed.
+     */
+    public void evict(Long userId) {
+        afterCommit(() -> {
+            histories.invalidate(userId);
+            invalidationBus.usersChanged(List.of(userId));
+        });
+    }
+
+    @EventListener
+    public void onUsersChanged(UsersChangedEvent event) {
+        if (event.affectsAll()) {
+            histories.invalidateAll();
+        } else {
+            histories.invalidateAll(event.userIds());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (!event.renamed()) {
+            return;
+        }
+        if (event.affectsAll()) {
+            histories.invalidateAll();
+        } else {
+            histories.asMap().values().removeIf(history -> history.mentionsAny(event.productIds()));
+        }
+    }
+
+    private void patchStatus(Long userId, Long orderId, Order.OrderStatus status, LocalDateTime updatedAt) {
+        histories.asMap().computeIfPresent(userId, (id, history) -> history.withStatus(orderId, status, updatedAt));
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private record OrderHistory(String userFullName, List<CachedOrder> orders, long totalOrders) {
+        private static final int BASE_WEIGHT = 64;
+
+        static OrderHistory of(Page<OrderDTO> recent) {
+            List<CachedOrder> orders = recent.getContent().stream().map(CachedOrder::of).toList();
+            String userFullName = recent.getContent().isEmpty() ? null : recent.getContent().get(0).getUserFullName();
+            return new OrderHistory(userFullName, orders, recent.getTotalElements());
+        }
+
+        OrderHistory prepend(CachedOrder order, String fullName, int limit) {
+            if (orders.stream().anyMatch(existing -> existing.id().equals(order.id()))) {
+                return this;
+            }
+            List<CachedOrder> updated = new ArrayList<>(Math.min(orders.size() + 1, limit));
+            updated.add(order);
+            orders.stream().limit(limit - 1L).forEach(updated::add);
+            return new OrderHistory(fullName, List.copyOf(updated), totalOrders + 1);
+        }
+
+        OrderHistory withStatus(Long orderId, Order.OrderStatus status, LocalDateTime updatedAt) {
+            if (orders.stream().noneMatch(order -> order.id().equals(orderId))) {
+                return this;
+            }
+            List<CachedOrder> updated = orders.stream()
+                    .map(order -> order.id().equals(orderId) ? order.withStatus(status, updatedAt) : order)
+                    .toList();
+            return new OrderHistory(userFullName, updated, totalOrders);
+        }
+
+        boolean mentionsAny(Set<Long> productIds) {
+            return orders.stream()
+                    .flatMap(order -> order.lines().stream())
+                    .anyMatch(line -> productIds.contains(line.productId()));
+        }
+
+        int weight() {
+            int weight = BASE_WEIGHT + length(userFullName);
+            for (CachedOrder order : orders) {
+                weight += order.weight();
+            }
+            return weight;
+        }
+    }
+
+    private record CachedOrder(Long id, String orderNumber, BigDecimal totalAmount, Order.OrderStatus status,
+                               LocalDateTime createdAt, LocalDateTime updatedAt, List<CachedLine> lines) {
+        private static final int BASE_WEIGHT = 160;
+
+        static CachedOrder of(OrderDTO order) {
+            List<OrderItemDTO> items = order.getOrderItems() != null ? order.getOrderItems() : List.of();
+            return new CachedOrder(order.getId(), order.getOrderNumber(), order.getTotalAmount(), order.getStatus(),
+                    order.getCreatedAt(), order.getUpdatedAt(), items.stream().map(CachedLine::of).toList());
+        }
+
+        CachedOrder withStatus(Order.OrderStatus newStatus, LocalDateTime newUpdatedAt) {
+            return new CachedOrder(id, orderNumber, totalAmount, newStatus, createdAt, newUpdatedAt, lines);
+        }
+
+        OrderDTO toDTO(Long userId, String userFullName, boolean includeItems) {
+            return OrderDTO.builder()
+                    .id(id)
+                    .orderNumber(orderNumber)
+                    .userId(userId)
+                    .userFullName(userFullName)
+                    .orderItems(includeItems ? lines.stream().map(CachedLine::toDTO).toList() : null)
+                    .totalAmount(totalAmount)
+                    .status(status)
+                    .createdAt(createdAt)
+                    .updatedAt(updatedAt)
+                    .build();
+        }
+
+        int weight() {
+            int weight = BASE_WEIGHT + length(orderNumber);
+            for (CachedLine line : lines) {
+                weight += line.weight();
+            }
+            return weight;
+        }
+    }
+
+    private record CachedLine(Long id, Long productId, String productName, int quantity,
+                              BigDecimal unitPrice, BigDecimal subtotal) {
+        private static final int BASE_WEIGHT = 120;
+
+        static CachedLine of(OrderItemDTO item) {
+            return new CachedLine(item.getId(), item.getProductId(), item.getProductName(), item.getQuantity(),
+                    item.getUnitPrice(), item.getSubtotal());
+        }
+
+        OrderItemDTO toDTO() {
+            return OrderItemDTO.builder()
+                    .id(id)
+                    .productId(productId)
+                    .productName(productName)
+                    .quantity(quantity)
+                    .unitPrice(unitPrice)
+                    .subtotal(subtotal)
+                    .build();
+        }
+
+        int weight() {
+            return BASE_WEIGHT + length(productName);
+        }
+    }
+
+    private static int length(String value) {
+        return value != null ? value.length() : 0;
+    }
+}
@@ -1,25 +1,46 @@
 package com.dinidu.restapi.services;
 
+import com.dinidu.restapi.config.BatchGetProperties;
+import com.dinidu.restapi.config.BulkOrderProperties;
+import com.dinidu.restapi.config.Workload;
+import com.dinidu.restapi.dtos.BulkOrderResultDTO;
+import com.dinidu.restapi.dtos.BulkStatusUpdateDTO;
 import com.dinidu.restapi.dtos.OrderDTO;
 import com.dinidu.restapi.dtos.OrderItemDTO;
+import com.dinidu.restapi.events.ProductChangedEvent;
 import com.dinidu.restapi.exceptions.InsufficientStockException;
 import com.dinidu.restapi.exceptions.ResourceNotFoundException;
 import com.dinidu.restapi.models.Order;
+import com.dinidu.restapi.models.OrderEvent;
 import com.dinidu.restapi.models.OrderItem;
 import com.dinidu.restapi.models.Product;
 import com.dinidu.restapi.models.User;
+import com.dinidu.restapi.repository.CancelledOrderView;
+import com.dinidu.restapi.repository.OrderETagView;
+import com.dinidu.restapi.repository.OrderItemRow;
+import com.dinidu.restapi.repository.OrderOwnerView;
 import com.dinidu.restapi.repository.OrderRepository;
+import com.dinidu.restapi.repository.OrderStatusView;
 import com.dinidu.restapi.repository.ProductRepository;
 import com.dinidu.restapi.repository.UserRepository;
+import com.dinidu.restapi.web.ETags;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -30,30 +51,114 @@ public class OrderService {
     private final OrderRepository orderRepository;
     private final UserRepository userRepository;
     private final ProductRepository productRepository;
+    private final OptimisticLockRetrier optimisticLockRetrier;
+    private final IdempotencyService idempotencyService;
+    private final OrderEventService orderEventService;
+    private final BulkOrderProperties bulkOrderProperties;
+    private final OrderArchiveService orderArchiveService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final OrderHistoryCache orderHistoryCache;
+    private final RequestCoalescer requestCoalescer;
+    private final BatchGetProperties batchGetProperties;
+    private final PricingEngine pricingEngine;
 
+    @Workload(Workload.Type.REPORTING)
     @Transactional(readOnly = true)
-    public Page<OrderDTO> getAllOrders(Pageable pageable) {
+    public Page<OrderDTO> getAllOrders(Pageable pageable, boolean includeItems) {
         log.debug("Fetching all orders with pagination: {}", pageable);
-        return orderRepository.findAll(pageable).map(this::convertToDTO);
+        return withOrderItems(orderRepository.findAllProjected(pageable), includeItems);
     }
 
+    @Workload(Workload.Type.READS)
     @Transactional(readOnly = true)
-    public OrderDTO getOrderById(Long id) {
+    public OrderDTO getOrderById(Long id, boolean includeItems) {
         log.debug("Fetching order by id: {}", id);
-        Order order = orderRepository.findById(id)
+        return orderRepository.findProjectedById(id)
+                .map(order -> includeItems ? withOrderItems(order) : order)
+                .or(() -> orderArchiveService.findArchivedOrder(id, includeItems))
                 .orElseThrow(() -> new ResourceNotFoundException("Order not found with id: " + id));
-        return convertToDTO(order);
     }
 
+    /**
+     * The orders with the given ids in request order, with their lines loaded by one more
+     * query; ids without an order are looked up in the archive, and left out if not found there.
+     */
+    @Workload(Workload.Type.READS)
     @Transactional(readOnly = true)
-    public OrderDTO getOrderByOrderNumber(String orderNumber) {
+    public List<OrderDTO> getOrdersByIds(Collection<Long> ids, boolean includeItems) {
+        Set<Long> requestedIds = BatchGets.distinctIds(ids, batchGetProperties.getMaxIds());
+        log.debug("Fetching {} orders by id", requestedIds.size());
+        List<OrderDTO> live = orderRepository.findProjectedByIdIn(requestedIds);
+        if (includeItems) {
+            attachOrderItems(live);
+        }
+        Set<Long> missingIds = new LinkedHashSet<>(requestedIds);
+        live.forEach(order -> missingIds.remove(order.getId()));
+        List<OrderDTO> found = new ArrayList<>(live);
+        found.addAll(orderArchiveService.findArchivedOrders(missingIds, includeItems));
+        return BatchGets.inRequestOrder(requestedIds, found, OrderDTO::getId);
+    }
+
+    @Workload(Workload.Type.READS)
+    @Transactional(readOnly = true)
+    public String getOrderETag(Long id, boolean includeItems) {
+        return orderRepository.findETagViewById(id)
+                .map(view -> {
+                    List<String> embedded = new ArrayList<>();
+                    embedded.add(view.getUserFullName());
+                    if (includeItems && view.getProductNames() != null) {
+                        embedded.addAll(List.of(view.getProductNames().split(OrderETagView.PRODUCT_NAME_SEPARATOR)));
+                    }
+                    return ETags.of(id, view.getVersion(), embedded);
+                })
+                .or(() -> orderArchiveService.findArchivedOrder(id, includeItems).map(ETags::of))
+                .orElseThrow(() -> new ResourceNotFoundException("Order not found with id: " + id));
+    }
+
+    /**
+     * Concurrent lookups of the same order number share one load; see {@link RequestCoalescer}.
+     */
+    @Workload(Workload.Type.READS)
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public OrderDTO getOrderByOrderNumber(String orderNumber, boolean includeItems) {
         log.debug("Fetching order by order number: {}", orderNumber);
-        Order order = orderRepository.findByOrderNumber(orderNumber)
-                .orElseThrow(() -> new ResourceNotFoundException("Order not found with order number: " + orderNumber));
-        return convertToDTO(order);
+        return requestCoalescer.load("order.by-order-number", orderNumber + (includeItems ? ":items" : ""), () -> {
+            OrderDTO order = orderRepository.findProjectedByOrderNumber(orderNumber)
+                    .orElseThrow(() -> new ResourceNotFoundException("Order not found with order number: " + orderNumber));
+            return includeItems ? withOrderItems(order) : order;
+        });
     }
 
+    @Transactional(propagation = Propagation.NEVER)
     public OrderDTO createOrder(OrderDTO orderDTO) {
+        return createOrder(orderDTO, null);
+    }
+
+    /**
+     * Creates the order and, when an idempotency key is given, stores the response under that
+     * key in the same transaction so a retried request can never create a second order.
+     */
+    @Transactional(propagation = Propagation.NEVER)
+    public OrderDTO createOrder(OrderDTO orderDTO, String idempotencyKey) {
+        return optimisticLockRetrier.execute("order.create", Workload.Type.ORDER_WRITES,
+                () -> placeOrder(orderDTO, idempotencyKey));
+    }
+
+    /**
+     * Creates the order inside the caller's transaction, so several orders can share one
+     * commit. Used by the asynchronous acceptance worker.
+     */
+    @Workload(Workload.Type.ORDER_WRITES)
+    @Transactional(propagation = Propagation.MANDATORY)
+    public OrderDTO placeOrder(OrderDTO orderDTO, String idempotencyKey) {
+        OrderDTO created = insertOrder(orderDTO);
+        if (idempotencyKey != null) {
+            idempotencyService.recordOrder(idempotencyKey, orderDTO, created);
+        }
+        return created;
+    }
+
+    private OrderDTO insertOrder(OrderDTO orderDTO) {
         log.debug("Creating new order for user: {}", orderDTO.getUserId());
 
         // Validate user exists
@@ -67,7 +172,7 @@ public class OrderService {
                 .build();
 
         // Process order items
-        BigDecimal totalAmount = BigDecimal.ZERO;
+        PriceCalculation pricing = new PriceCalculation(orderDTO.getOrderItems().size());
         for (OrderItemDTO itemDTO : orderDTO.getOrderItems()) {
             Product product = productRepository.findById(itemDTO.getProductId())
                     .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + itemDTO.getProductId()));
@@ -85,9 +190,7 @@ public class OrderService {
                     .unitPrice(product.getPrice())
                     .build();
 
-            // Calculate subtotal (done in @PrePersist)
-            orderItem.calculateSubtotal();
-            totalAmount = totalAmount.add(orderItem.getSubtotal());
+            pricing.addLine(pricingEngine.toMinorUnits(product.getPrice()), itemDTO.getQuantity());
 
             // Update product stock
             product.setStockQuantity(product.getStockQuantity() - itemDTO.getQuantity());
@@ -96,56 +199,220 @@ public class OrderService {
             order.getOrderItems().add(orderItem);
         }
 
-        order.setTotalAmount(totalAmount);
+        // Discounts and tax in minor units; BigDecimal only for what gets stored
+        pricingEngine.price(pricing);
+        for (int line = 0; line < pricing.lineCount(); line++) {
+            order.getOrderItems().get(line).setSubtotal(pricingEngine.toAmount(pricing.lineTotal(line)));
+        }
+        order.setTotalAmount(pricingEngine.toAmount(pricing.total()));
         Order savedOrder = orderRepository.save(order);
+        eventPublisher.publishEvent(ProductChangedEvent.updated(
+                orderDTO.getOrderItems().stream().map(OrderItemDTO::getProductId).toList()));
+        orderEventService.append(savedOrder, OrderEvent.EventType.CREATED);
         log.info("Order created successfully with id: {}", savedOrder.getId());
-        return convertToDTO(savedOrder);
+        OrderDTO created = convertToDTO(savedOrder);
+        orderHistoryCache.orderCreated(created);
+        return created;
+    }
+
+    /**
+     * {@code ifMatch}, if given, is checked against the row each attempt reads, so a retry after a
+     * conflicting write fails the precondition instead of overwriting that write.
+     */
+    @Transactional(propagation = Propagation.NEVER)
+    public OrderDTO updateOrderStatus(Long id, Order.OrderStatus status, String ifMatch) {
+        return optimisticLockRetrier.execute("order.update-status", Workload.Type.ORDER_WRITES,
+                () -> changeOrderStatus(id, status, ifMatch));
     }
 
-    public OrderDTO updateOrderStatus(Long id, Order.OrderStatus status) {
+    private OrderDTO changeOrderStatus(Long id, Order.OrderStatus status, String ifMatch) {
         log.debug("Updating order status for id: {} to {}", id, status);
 
         Order order = orderRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Order not found with id: " + id));
+        if (ifMatch != null) {
+            ETags.requireMatch(ifMatch, ETags.of(convertToDTO(order)));
+        }
 
         order.setStatus(status);
-        Order updatedOrder = orderRepository.save(order);
+        Order updatedOrder = orderRepository.saveAndFlush(order);
+        orderEventService.append(updatedOrder, OrderEvent.EventType.STATUS_CHANGED);
+        orderHistoryCache.statusChanged(updatedOrder.getUser().getId(), id, status, updatedOrder.getUpdatedAt());
         log.info("Order status updated successfully for id: {}", updatedOrder.getId());
         return convertToDTO(updatedOrder);
     }
 
+    /**
+     * Applies a status transition to many orders with one set-based statement. Only orders whose
+     * current status is an allowed predecessor of the target move; the rest are reported with
+     * their current status instead of failing the whole request.
+     */
+    @Workload(Workload.Type.ORDER_WRITES)
+    public List<BulkOrderResultDTO> bulkUpdateStatus(BulkStatusUpdateDTO request) {
+        Order.OrderStatus target = request.getStatus();
+        List<String> allowedFrom = target.allowedPredecessors().stream().map(Enum::name).toList();
+        if (allowedFrom.isEmpty()) {
+            throw new IllegalArgumentException("Orders cannot be moved to " + target + " in bulk");
+        }
+        LocalDateTime now = LocalDateTime.now();
+        int maxBatchSize = bulkOrderProperties.getMaxBatchSize();
+
+        if (request.getOrderIds() == null || request.getOrderIds().isEmpty()) {
+            if (request.getFromStatus() == null || request.getCreatedBefore() == null) {
+                throw new IllegalArgumentException("Either orderIds or fromStatus and createdBefore are required");
+            }
+            log.debug("Bulk transition of {} orders created before {} to {}",
+                    request.getFromStatus(), request.getCreatedBefore(), target);
+            List<OrderOwnerView> updated = orderRepository.transitionStatusByFilter(request.getFromStatus().name(),
+                    allowedFrom, request.getCreatedBefore(), maxBatchSize, target.name(), now);
+            orderEventService.onCommit();
+            orderHistoryCache.statusChanged(updated, target, now);
+            log.info("Bulk transitioned {} orders to {}", updated.size(), target);
+            return updated.stream()
+                    .map(order -> bulkResult(order.getId(), BulkOrderResultDTO.Outcome.UPDATED, target))
+                    .toList();
+        }
+
+        Set<Long> requestedIds = new LinkedHashSet<>(request.getOrderIds());
+        if (requestedIds.size() > maxBatchSize) {
+            throw new IllegalArgumentException("At most " + maxBatchSize + " orders can be updated per request");
+        }
+        log.debug("Bulk transition of {} orders to {}", requestedIds.size(), target);
+        List<OrderOwnerView> updated = orderRepository.transitionStatusByIds(requestedIds, allowedFrom, target.name(), now);
+        Set<Long> updatedIds = updated.stream().map(OrderOwnerView::getId).collect(Collectors.toSet());
+        orderEventService.onCommit();
+        orderHistoryCache.statusChanged(updated, target, now);
+        log.info("Bulk transitioned {} of {} orders to {}", updatedIds.size(), requestedIds.size(), target);
+        return collectOutcomes(requestedIds, updatedIds, target);
+    }
+
+    private List<BulkOrderResultDTO> collectOutcomes(Set<Long> requestedIds, Set<Long> updatedIds,
+                                                     Order.OrderStatus target) {
+        Map<Long, Order.OrderStatus> rejected = new HashMap<>();
+        if (updatedIds.size() < requestedIds.size()) {
+            List<Long> notUpdated = requestedIds.stream().filter(id -> !updatedIds.contains(id)).toList();
+            orderRepository.findStatusesByIdIn(notUpdated)
+                    .forEach(view -> rejected.put(view.getId(), view.getStatus()));
+        }
+
+        List<BulkOrderResultDTO> results = new ArrayList<>(requestedIds.size());
+        for (Long id : requestedIds) {
+            if (updatedIds.contains(id)) {
+                results.add(bulkResult(id, BulkOrderResultDTO.Outcome.UPDATED, target));
+            } else if (rejected.containsKey(id)) {
+                results.add(bulkResult(id, BulkOrderResultDTO.Outcome.INVALID_TRANSITION, rejected.get(id)));
+            } else {
+                results.add(bulkResult(id, BulkOrderResultDTO.Outcome.NOT_FOUND, null));
+            }
+        }
+        return results;
+    }
+
+    private BulkOrderResultDTO bulkResult(Long id, BulkOrderResultDTO.Outcome outcome, Order.OrderStatus status) {
+        return BulkOrderResultDTO.builder()
+                .orderId(id)
+                .outcome(outcome)
+                .currentStatus(status)
+                .build();
+    }
+
+    @Workload(Workload.Type.ORDER_WRITES)
     public void cancelOrder(Long id) {
         log.debug("Cancelling order with id: {}", id);
 
-        Order order = orderRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Order not found with id: " + id));
+        LocalDateTime now = LocalDateTime.now();
+        List<CancelledOrderView> cancelled = orderRepository.cancelAndRestock(List.of(id), cancellableStatuses(), now);
+        if (cancelled.isEmpty()) {
+            Order.OrderStatus status = orderRepository.findStatusesByIdIn(List.of(id)).stream()
+                    .map(OrderStatusView::getStatus)
+                    .findFirst()
+                    .orElseThrow(() -> new ResourceNotFoundException("Order not found with id: " + id));
+            throw new IllegalStateException(status == Order.OrderStatus.DELIVERED
+                    ? "Cannot cancel a delivered order"
+                    : "Order is already cancelled");
+        }
+
+        orderEventService.onCommit();
+        orderHistoryCache.statusChanged(cancelled, Order.OrderStatus.CANCELLED, now);
+        publishRestocked(cancelled);
+        log.info("Order cancelled successfully with id: {}", id);
+    }
 
-        if (order.getStatus() == Order.OrderStatus.DELIVERED) {
-            throw new IllegalStateException("Cannot cancel a delivered order");
+    /**
+     * Cancels many orders and restores their stock with one statement. Orders that are missing
+     * or no longer cancellable are reported instead of failing the request.
+     */
+    @Workload(Workload.Type.ORDER_WRITES)
+    public List<BulkOrderResultDTO> cancelOrders(List<Long> ids) {
+        Set<Long> requestedIds = new LinkedHashSet<>(ids);
+        if (requestedIds.size() > bulkOrderProperties.getMaxBatchSize()) {
+            throw new IllegalArgumentException(
+                    "At most " + bulkOrderProperties.getMaxBatchSize() + " orders can be cancelled per request");
         }
+        log.debug("Bulk cancelling {} orders", requestedIds.size());
+        LocalDateTime now = LocalDateTime.now();
+        List<CancelledOrderView> cancelled = orderRepository.cancelAndRestock(requestedIds, cancellableStatuses(), now);
+        Set<Long> cancelledIds = cancelled.stream().map(OrderOwnerView::getId).collect(Collectors.toSet());
+        orderEventService.onCommit();
+        orderHistoryCache.statusChanged(cancelled, Order.OrderStatus.CANCELLED, now);
+        publishRestocked(cancelled);
+        log.info("Bulk cancelled {} of {} orders", cancelledIds.size(), requestedIds.size());
+        return collectOutcomes(requestedIds, cancelledIds, Order.OrderStatus.CANCELLED);
+    }
 
-        // Restore product stock
-        for (OrderItem item : order.getOrderItems()) {
-            Product product = item.getProduct();
-            product.setStockQuantity(product.getStockQuantity() + item.getQuantity());
-            productRepository.save(product);
+    private void publishRestocked(List<CancelledOrderView> cancelled) {
+        Set<Long> productIds = CancelledOrderView.restockedProductIds(cancelled);
+        if (!productIds.isEmpty()) {
+            eventPublisher.publishEvent(ProductChangedEvent.updated(productIds));
         }
+    }
 
-        order.setStatus(Order.OrderStatus.CANCELLED);
-        orderRepository.save(order);
-        log.info("Order cancelled successfully with id: {}", id);
+    private List<String> cancellableStatuses() {
+        return Order.OrderStatus.cancellable().stream().map(Enum::name).toList();
     }
 
+    @Workload(Workload.Type.READS)
     @Transactional(readOnly = true)
-    public Page<OrderDTO> getOrdersByUserId(Long userId, Pageable pageable) {
+    public Page<OrderDTO> getOrdersByUserId(Long userId, Pageable pageable, boolean includeItems) {
         log.debug("Fetching orders for user: {}", userId);
-        return orderRepository.findByUserId(userId, pageable).map(this::convertToDTO);
+        if (orderHistoryCache.isCacheable(pageable)) {
+            return orderHistoryCache.firstPage(userId, pageable, includeItems,
+                    recent -> withOrderItems(orderRepository.findByUserId(userId, recent), true));
+        }
+        return withOrderItems(orderRepository.findByUserId(userId, pageable), includeItems);
     }
 
+    @Workload(Workload.Type.REPORTING)
     @Transactional(readOnly = true)
-    public Page<OrderDTO> getOrdersByStatus(Order.OrderStatus status, Pageable pageable) {
+    public Page<OrderDTO> getOrdersByStatus(Order.OrderStatus status, Pageable pageable, boolean includeItems) {
         log.debug("Fetching orders by status: {}", status);
-        return orderRepository.findByStatus(status, pageable).map(this::convertToDTO);
+        return withOrderItems(orderRepository.findByStatus(status, pageable), includeItems);
+    }
+
+    private OrderDTO withOrderItems(OrderDTO order) {
+        attachOrderItems(List.of(order));
+        return order;
+    }
+
+    private Page<OrderDTO> withOrderItems(Page<OrderDTO> orders, boolean includeItems) {
+        if (includeItems) {
+            attachOrderItems(orders.getContent());
+        }
+        return orders;
+    }
+
+    /**
+     * Attaches the lines of projected orders with one extra query.
+     */
+    private void attachOrderItems(List<OrderDTO> orders) {
+        if (orders.isEmpty()) {
+            return;
+        }
+        List<Long> orderIds = orders.stream().map(OrderDTO::getId).toList();
+        Map<Long, List<OrderItemDTO>> itemsByOrder = orderRepository.findItemRowsByOrderIdIn(orderIds).stream()
+                .collect(Collectors.groupingBy(OrderItemRow::orderId,
+                        Collectors.mapping(OrderItemRow::toDTO, Collectors.toList())));
+        orders.forEach(order -> order.setOrderItems(itemsByOrder.getOrDefault(order.getId(), new ArrayList<>())));
     }
 
     private OrderDTO convertToDTO(Order order) {
@@ -0,0 +1,104 @@
+package com.dinidu.restapi.services;
+
+import java.util.Arrays;
+
+/**
+ * Worksheet for {@link PricingEngine}: the lines of one order and the computed amounts, all in
+ * minor currency units. A calculation can be {@link #reset() reset} and reused, so pricing a
+ * stream of orders allocates nothing once the arrays are large enough.
+ */
+public final class PriceCalculation {
+    private long[] unitPrices;
+    private int[] quantities;
+    private long[] lineTotals;
+    private int lineCount;
+
+    long gross;
+    long discount;
+    long tax;
+    long total;
+
+    public PriceCalculation() {
+        this(8);
+    }
+
+    public PriceCalculation(int expectedLines) {
+        int capacity = Math.max(1, expectedLines);
+        unitPrices = new long[capacity];
+        quantities = new int[capacity];
+        lineTotals = new long[capacity];
+    }
+
+    public PriceCalculation reset() {
+        lineCount = 0;
+        gross = 0;
+        discount = 0;
+        tax = 0;
+        total = 0;
+        return this;
+    }
+
+    /**
+     * Adds a line and returns its index.
+     */
+    public int addLine(long unitPrice, int quantity) {
+        if (lineCount == unitPrices.length) {
+            int capacity = lineCount * 2;
+            unitPrices = Arrays.copyOf(unitPrices, capacity);
+            quantities = Arrays.copyOf(quantities, capacity);
+            lineTotals = Arrays.copyOf(lineTotals, capacity);
+        }
+        unitPrices[lineCount] = unitPrice;
+        quantities[lineCount] = quantity;
+        lineTotals[lineCount] = 0;
+        return lineCount++;
+    }
+
+    public int lineCount() {
+        return lineCount;
+    }
+
+    public long unitPrice(int line) {
+        return unitPrices[line];
+    }
+
+    public int quantity(int line) {
+        return quantities[line];
+    }
+
+    /**
+     * Line amount after line-level discounts.
+     */
+    public long lineTotal(int line) {
+        return lineTotals[line];
+    }
+
+    void lineTotal(int line, long amount) {
+        lineTotals[line] = amount;
+    }
+
+    /**
+     * Sum of unit price times quantity over all lines.
+     */
+    public long gross() {
+        return gross;
+    }
+
+    /**
+     * Line and order discounts together.
+     */
+    public long discount() {
+        return discount;
+    }
+
+    public long tax() {
+        return tax;
+    }
+
+    /**
+     * What the customer pays: gross minus discounts plus tax.
+     */
+    public long total() {
+        return total;
+    }
+}
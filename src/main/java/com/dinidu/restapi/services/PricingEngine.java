@@ -0,0 +1,202 @@
+package com.dinidu.restapi.services;
+
+import com.dinidu.restapi.config.PricingProperties;
+import com.dinidu.restapi.exceptions.PriceOverflowException;
+import org.springframework.beans.factory.BeanInitializationException;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Prices orders in {@code long} minor units of the configured currency. The rules from
+ * {@link PricingProperties} are compiled once into primitive arrays, so {@link #price} does no
+ * allocation and no {@link BigDecimal} arithmetic; amounts only become {@code BigDecimal} at
+ * the entity/DTO boundary ({@link #toMinorUnits}, {@link #toAmount}).
+ * <p>
+ * Percentages are held in basis points and rounded half up to the minor unit, like
+ * {@code BigDecimal.setScale(scale, HALF_UP)}. Amounts out of range throw
+ * {@link PriceOverflowException}. Invalid rules fail when they are compiled, which is never
+ * deferred to the first order, even with lazy initialization.
+ */
+@Component
+@Lazy(false)
+public class PricingEngine {
+    private static final long BASIS_POINTS = 10_000;
+
+    /**
+     * Amount columns are {@code DECIMAL(10,2)}.
+     */
+    private static final int MAX_SCALE = 2;
+    private static final int MAX_INTEGER_DIGITS = 8;
+
+    private final int scale;
+    private final long amountLimit;
+    private final long taxBasisPoints;
+    private final CompiledRule[] lineRules;
+    private final CompiledRule[] orderRules;
+
+    public PricingEngine(PricingProperties properties) {
+        scale = properties.getCurrency().getDefaultFractionDigits();
+        if (scale < 0 || scale > MAX_SCALE) {
+            throw new BeanInitializationException("Currency " + properties.getCurrency()
+                    + " needs " + scale + " decimal places; amounts are stored with at most " + MAX_SCALE);
+        }
+        amountLimit = BigDecimal.ONE.movePointRight(MAX_INTEGER_DIGITS + scale).longValueExact();
+        taxBasisPoints = basisPoints(properties.getTaxRate(), "tax rate");
+        try {
+            lineRules = compile(properties.getLineRules(), true);
+            orderRules = compile(properties.getOrderRules(), false);
+        } catch (PriceOverflowException | ArithmeticException e) {
+            throw new BeanInitializationException("Invalid pricing rule: " + e.getMessage(), e);
+        }
+    }
+
+    public int scale() {
+        return scale;
+    }
+
+    public void price(PriceCalculation calculation) {
+        long gross = 0;
+        long subtotal = 0;
+        try {
+            for (int line = 0; line < calculation.lineCount(); line++) {
+                int quantity = calculation.quantity(line);
+                long lineGross = Math.multiplyExact(calculation.unitPrice(line), quantity);
+                long lineTotal = applyRules(lineRules, lineGross, quantity);
+                calculation.lineTotal(line, lineTotal);
+                gross = Math.addExact(gross, lineGross);
+                subtotal = Math.addExact(subtotal, lineTotal);
+            }
+            long net = applyRules(orderRules, subtotal, subtotal);
+            long tax = percentOf(net, taxBasisPoints);
+
+            calculation.gross = gross;
+            calculation.discount = gross - net;
+            calculation.tax = tax;
+            calculation.total = Math.addExact(net, tax);
+        } catch (ArithmeticException e) {
+            throw new PriceOverflowException("Order amounts are too large to price");
+        }
+    }
+
+    public long toMinorUnits(BigDecimal amount) {
+        try {
+            return amount.setScale(scale, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+        } catch (ArithmeticException e) {
+            throw new PriceOverflowException("Amount " + amount + " is too large to price");
+        }
+    }
+
+    /**
+     * Throws {@link PriceOverflowException} for amounts that do not fit the {@code DECIMAL(10,2)}
+     * columns, rather than leaving it to the database to reject the row.
+     */
+    public BigDecimal toAmount(long minorUnits) {
+        if (minorUnits >= amountLimit || minorUnits <= -amountLimit) {
+            throw new PriceOverflowException("Amount " + BigDecimal.valueOf(minorUnits, scale)
+                    + " exceeds the " + MAX_INTEGER_DIGITS + " integer digits of DECIMAL(10,2)");
+        }
+        return BigDecimal.valueOf(minorUnits, scale);
+    }
+
+    /**
+     * Applies the rules in order, each to what the previous ones left; never goes below zero.
+     * {@code measure} is the line quantity or the order subtotal the rule minimums refer to.
+     */
+    private static long applyRules(CompiledRule[] rules, long amount, long measure) {
+        for (CompiledRule rule : rules) {
+            if (measure < rule.minimum()) {
+                continue;
+            }
+            long discount = switch (rule.type()) {
+                case PERCENTAGE -> percentOf(amount, rule.value());
+                case FIXED -> rule.value();
+                case TIERED -> percentOf(amount, tierBasisPoints(rule, measure));
+            };
+            amount -= Math.min(amount, discount);
+        }
+        return amount;
+    }
+
+    private static long tierBasisPoints(CompiledRule rule, long measure) {
+        long[] minimums = rule.tierMinimums();
+        for (int tier = minimums.length - 1; tier >= 0; tier--) {
+            if (measure >= minimums[tier]) {
+                return rule.tierBasisPoints()[tier];
+            }
+        }
+        return 0;
+    }
+
+    private static long percentOf(long amount, long basisPoints) {
+        return (Math.multiplyExact(amount, basisPoints) + BASIS_POINTS / 2) / BASIS_POINTS;
+    }
+
+    private CompiledRule[] compile(List<PricingProperties.Rule> rules, boolean lineLevel) {
+        CompiledRule[] compiled = new CompiledRule[rules.size()];
+        for (int i = 0; i < compiled.length; i++) {
+            PricingProperties.Rule rule = rules.get(i);
+            if (rule.getType() == null) {
+                throw new BeanInitializationException("Pricing rule " + i + " has no type");
+            }
+            long minimum = measure(rule.getMinimum(), lineLevel);
+            List<PricingProperties.Tier> tiers = rule.getTiers().stream()
+                    .sorted(Comparator.comparing(PricingProperties.Tier::getMinimum,
+                            Comparator.nullsFirst(Comparator.naturalOrder())))
+                    .toList();
+            long[] tierMinimums = new long[tiers.size()];
+            long[] tierBasisPoints = new long[tiers.size()];
+            for (int tier = 0; tier < tiers.size(); tier++) {
+                tierMinimums[tier] = measure(tiers.get(tier).getMinimum(), lineLevel);
+                tierBasisPoints[tier] = basisPoints(tiers.get(tier).getPercent(), "tier percent");
+            }
+            long value = switch (rule.getType()) {
+                case PERCENTAGE -> basisPoints(rule.getValue(), "discount percent");
+                case FIXED -> {
+                    if (rule.getValue() == null || rule.getValue().signum() < 0) {
+                        throw new BeanInitializationException(
+                                "Fixed discount must not be negative: " + rule.getValue());
+                    }
+                    yield toMinorUnits(rule.getValue());
+                }
+                case TIERED -> {
+                    if (tiers.isEmpty()) {
+                        throw new BeanInitializationException("Tiered pricing rule " + i + " has no tiers");
+                    }
+                    yield 0;
+                }
+            };
+            compiled[i] = new CompiledRule(rule.getType(), minimum, value, tierMinimums, tierBasisPoints);
+        }
+        return compiled;
+    }
+
+    /**
+     * Line rules count quantities, order rules count minor units of the subtotal.
+     */
+    private long measure(BigDecimal minimum, boolean lineLevel) {
+        if (minimum == null) {
+            return 0;
+        }
+        return lineLevel ? minimum.setScale(0, RoundingMode.CEILING).longValueExact() : toMinorUnits(minimum);
+    }
+
+    private static long basisPoints(BigDecimal percent, String what) {
+        if (percent == null || percent.signum() < 0 || percent.compareTo(BigDecimal.valueOf(100)) > 0) {
+            throw new BeanInitializationException("Invalid " + what + ": " + percent + " (expected 0-100)");
+        }
+        try {
+            return percent.movePointRight(2).longValueExact();
+        } catch (ArithmeticException e) {
+            throw new BeanInitializationException("Invalid " + what + ": " + percent + " (at most two decimals)", e);
+        }
+    }
+
+    private record CompiledRule(PricingProperties.Type type, long minimum, long value,
+                                long[] tierMinimums, long[] tierBasisPoints) {
+    }
+}
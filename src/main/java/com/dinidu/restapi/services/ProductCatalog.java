@@ -0,0 +1,159 @@
+package com.dinidu.restapi.services;
+
+import com.dinidu.restapi.config.ProductCatalogProperties;
+import com.dinidu.restapi.dtos.ProductDTO;
+import com.dinidu.restapi.events.ProductChangedEvent;
+import com.dinidu.restapi.repository.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the current {@link CatalogSnapshot} when catalog mode is enabled. Readers never lock;
+ * committed product changes, on this instance or reported by others through
+ * {@link CacheInvalidationBus}, only mark the snapshot stale on the committing thread. Every
+ * {@code apply-interval} the affected rows are reloaded and patched in; reads keep using the
+ * stale snapshot for up to {@code max-change-lag} and go to the database after that. A periodic
+ * full reload bounds staleness for everything else.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProductCatalog {
+    private final ProductRepository productRepository;
+    private final ProductCatalogProperties properties;
+
+    private final AtomicReference<CatalogSnapshot> snapshot = new AtomicReference<>();
+
+    // changes committed since the snapshot was built, guarded by pendingLock
+    private final Object pendingLock = new Object();
+    private final Set<Long> pendingIds = new HashSet<>();
+    private boolean pendingAll;
+    private volatile boolean stale;
+    // System.nanoTime() of the change that made the snapshot stale, written before stale is set
+    private volatile long staleSince;
+
+    /**
+     * The current snapshot, or empty when catalog mode is off, changes have been waiting longer
+     * than {@code max-change-lag} to be applied or the snapshot is too old to use.
+     */
+    Optional<CatalogSnapshot> current() {
+        CatalogSnapshot current = snapshot.get();
+        if (current == null
+                || stale && System.nanoTime() - staleSince >= properties.getMaxChangeLag().toNanos()
+                || current.fullyLoadedAt().plus(properties.getMaxStaleness()).isBefore(Instant.now())) {
+            return Optional.empty();
+        }
+        return Optional.of(current);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${app.products.catalog.refresh-interval:PT30S}")
+    public synchronized void reload() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        // everything committed before this point is in the load below
+        Set<Long> drainedIds;
+        boolean drainedAll;
+        synchronized (pendingLock) {
+            drainedIds = Set.copyOf(pendingIds);
+            drainedAll = pendingAll;
+            pendingIds.clear();
+            pendingAll = false;
+        }
+        Instant loadedAt = Instant.now();
+        List<ProductDTO> products;
+        try {
+            products = productRepository.findAllProjectedByName();
+        } catch (RuntimeException e) {
+            synchronized (pendingLock) {
+                pendingIds.addAll(drainedIds);
+                pendingAll |= drainedAll;
+            }
+            throw e;
+        }
+        snapshot.set(CatalogSnapshot.of(products, loadedAt));
+        synchronized (pendingLock) {
+            stale = pendingAll || !pendingIds.isEmpty();
+        }
+        log.debug("Loaded catalog snapshot with {} products", products.size());
+    }
+
+    /**
+     * Whether committed changes are still missing from the snapshot, which may be served anyway.
+     */
+    public boolean hasUnappliedChanges() {
+        return stale;
+    }
+
+    /**
+     * Runs before the other listeners of committed changes, so caches filled from catalog reads
+     * (see {@link com.dinidu.restapi.web.ProductPageCache#generation()}) see the snapshot as stale
+     * by the time they drop their entries.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (snapshot.get() == null) {
+            return;
+        }
+        synchronized (pendingLock) {
+            pendingAll |= event.affectsAll();
+            pendingIds.addAll(event.productIds());
+            if (!stale) {
+                staleSince = System.nanoTime();
+                stale = true;
+            }
+        }
+    }
+
+    /**
+     * Patches the changes marked since the last run into the snapshot.
+     */
+    @Scheduled(fixedDelayString = "${app.products.catalog.apply-interval:PT0.1S}")
+    public synchronized void applyPendingChanges() {
+        Set<Long> changedIds;
+        synchronized (pendingLock) {
+            if (!stale) {
+                return;
+            }
+            if (pendingAll) {
+                changedIds = null;
+            } else {
+                changedIds = Set.copyOf(pendingIds);
+                pendingIds.clear();
+            }
+        }
+        if (changedIds == null) {
+            reload();
+            return;
+        }
+        try {
+            List<ProductDTO> reloaded = productRepository.findProjectedByIdIn(changedIds);
+            snapshot.set(snapshot.get().withChanges(changedIds, reloaded));
+        } catch (RuntimeException e) {
+            log.warn("Unable to apply {} catalog changes, retrying: {}", changedIds.size(), e.getMessage());
+            synchronized (pendingLock) {
+                pendingIds.addAll(changedIds);
+            }
+            return;
+        }
+        synchronized (pendingLock) {
+            stale = pendingAll || !pendingIds.isEmpty();
+        }
+    }
+}
@@ -1,19 +1,29 @@
 package com.dinidu.restapi.services;
 
+import com.dinidu.restapi.config.BatchGetProperties;
+import com.dinidu.restapi.config.Workload;
 import com.dinidu.restapi.dtos.ProductDTO;
+import com.dinidu.restapi.events.ProductChangedEvent;
 import com.dinidu.restapi.exceptions.ResourceNotFoundException;
 import com.dinidu.restapi.models.Product;
 import com.dinidu.restapi.repository.ProductRepository;
+import com.dinidu.restapi.web.ETags;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Optional;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
@@ -21,19 +31,66 @@ import java.util.stream.Collectors;
 @Transactional
 public class ProductService {
     private final ProductRepository productRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ProductCatalog productCatalog;
+    private final RequestCoalescer requestCoalescer;
+    private final BatchGetProperties batchGetProperties;
+    private final OptimisticLockRetrier optimisticLockRetrier;
 
+    @Workload(Workload.Type.READS)
     @Transactional(readOnly = true)
     public Page<ProductDTO> getAllProducts(Pageable pageable) {
         log.debug("Fetching all products with pagination: {}", pageable);
-        return productRepository.findAll(pageable).map(this::convertToDTO);
+        return catalogFor(pageable)
+                .map(catalog -> catalog.all(pageable))
+                .orElseGet(() -> productRepository.findAllProjected(pageable));
     }
 
-    @Transactional(readOnly = true)
+    /**
+     * Concurrent lookups of the same product share one query; see {@link RequestCoalescer}.
+     */
+    @Workload(Workload.Type.READS)
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public ProductDTO getProductById(Long id) {
         log.debug("Fetching product by id: {}", id);
-        Product product = productRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + id));
-        return convertToDTO(product);
+        return productCatalog.current()
+                .flatMap(catalog -> catalog.findById(id))
+                .orElseGet(() -> requestCoalescer.load("product.by-id", id, () -> productRepository.findById(id)
+                        .map(this::convertToDTO)
+                        .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + id))));
+    }
+
+    /**
+     * The products with the given ids in request order; ids without a product are left out.
+     */
+    @Workload(Workload.Type.READS)
+    @Transactional(readOnly = true)
+    public List<ProductDTO> getProductsByIds(Collection<Long> ids) {
+        Set<Long> requestedIds = BatchGets.distinctIds(ids, batchGetProperties.getMaxIds());
+        log.debug("Fetching {} products by id", requestedIds.size());
+        return productCatalog.current()
+                .map(catalog -> requestedIds.stream().flatMap(id -> catalog.findById(id).stream()).toList())
+                .orElseGet(() -> BatchGets.inRequestOrder(requestedIds,
+                        productRepository.findProjectedByIdIn(requestedIds), ProductDTO::getId));
+    }
+
+    @Workload(Workload.Type.READS)
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public LocalDateTime getProductVersion(Long id) {
+        return productCatalog.current()
+                .flatMap(catalog -> catalog.findById(id))
+                .map(product -> product.getUpdatedAt() != null ? product.getUpdatedAt() : product.getCreatedAt())
+                .orElseGet(() -> requestCoalescer.load("product.version", id, () -> productRepository.findVersionById(id)
+                        .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + id))));
+    }
+
+    @Workload(Workload.Type.REPORTING)
+    @Transactional(readOnly = true)
+    public Page<ProductDTO> getProductsByStatus(Product.ProductStatus status, Pageable pageable) {
+        log.debug("Fetching products by status: {}", status);
+        return catalogFor(pageable)
+                .map(catalog -> catalog.byStatus(status, pageable))
+                .orElseGet(() -> productRepository.findByStatus(status, pageable));
     }
 
     public ProductDTO createProduct(ProductDTO productDTO) {
@@ -41,55 +98,90 @@ public class ProductService {
 
         Product product = convertToEntity(productDTO);
         Product savedProduct = productRepository.save(product);
+        eventPublisher.publishEvent(ProductChangedEvent.added(savedProduct.getId()));
         log.info("Product created successfully with id: {}", savedProduct.getId());
         return convertToDTO(savedProduct);
     }
 
-    public ProductDTO updateProduct(Long id, ProductDTO productDTO) {
+    /**
+     * Writes the client's absolute values, including the stock level, so a concurrent change
+     * (e.g. stock taken by an order) is reported as a conflict rather than retried over; it is
+     * still counted in {@code optimistic.lock.conflicts}.
+     * {@code ifMatch}, if given, is checked against the row read here; {@code @Version} then
+     * rejects the write if the row changes before commit.
+     */
+    public ProductDTO updateProduct(Long id, ProductDTO productDTO, String ifMatch) {
         log.debug("Updating product with id: {}", id);
 
         Product existingProduct = productRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + id));
+        if (ifMatch != null) {
+            ETags.requireMatch(ifMatch, ETags.of(id, existingProduct.getUpdatedAt(), existingProduct.getCreatedAt()));
+        }
 
+        boolean renamed = !existingProduct.getName().equals(productDTO.getName());
         existingProduct.setName(productDTO.getName());
         existingProduct.setDescription(productDTO.getDescription());
         existingProduct.setPrice(productDTO.getPrice());
         existingProduct.setStockQuantity(productDTO.getStockQuantity());
         existingProduct.setStatus(productDTO.getStatus());
 
-        Product updatedProduct = productRepository.save(existingProduct);
+        Product updatedProduct;
+        try {
+            updatedProduct = productRepository.saveAndFlush(existingProduct);
+        } catch (OptimisticLockingFailureException e) {
+            optimisticLockRetrier.recordConflict("product.update", e);
+            throw e;
+        }
+        eventPublisher.publishEvent(renamed ? ProductChangedEvent.renamed(id) : ProductChangedEvent.updated(List.of(id)));
         log.info("Product updated successfully with id: {}", updatedProduct.getId());
         return convertToDTO(updatedProduct);
     }
 
+    /**
+     * Soft delete; see {@link SoftDeletePurger} for when the row goes away.
+     */
     public void deleteProduct(Long id) {
         log.debug("Deleting product with id: {}", id);
-        if (!productRepository.existsById(id)) {
+        if (productRepository.softDelete(id, LocalDateTime.now()) == 0) {
             throw new ResourceNotFoundException("Product not found with id: " + id);
         }
-        productRepository.deleteById(id);
+        eventPublisher.publishEvent(ProductChangedEvent.removed(id));
         log.info("Product deleted successfully with id: {}", id);
     }
 
+    @Workload(Workload.Type.REPORTING)
     @Transactional(readOnly = true)
     public Page<ProductDTO> searchProducts(String name, Pageable pageable) {
         log.debug("Searching products by name: {}", name);
-        return productRepository.findByNameContaining(name, pageable).map(this::convertToDTO);
+        return catalogFor(pageable)
+                .map(catalog -> catalog.search(name, pageable))
+                .orElseGet(() -> productRepository.findByNameContaining(name, pageable));
     }
 
+    @Workload(Workload.Type.REPORTING)
     @Transactional(readOnly = true)
     public Page<ProductDTO> getProductsByPriceRange(BigDecimal minPrice, BigDecimal maxPrice, Pageable pageable) {
         log.debug("Fetching products by price range: {} - {}", minPrice, maxPrice);
-        return productRepository.findByPriceRange(minPrice, maxPrice, pageable).map(this::convertToDTO);
+        return catalogFor(pageable)
+                .map(catalog -> catalog.byPriceRange(minPrice, maxPrice, pageable))
+                .orElseGet(() -> productRepository.findByPriceRange(minPrice, maxPrice, pageable));
     }
 
+    @Workload(Workload.Type.REPORTING)
     @Transactional(readOnly = true)
     public List<ProductDTO> getLowStockProducts(Integer threshold) {
         log.debug("Fetching low stock products with threshold: {}", threshold);
-        return productRepository.findByStockQuantityLessThan(threshold)
-                .stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return productCatalog.current()
+                .map(catalog -> catalog.withStockBelow(threshold))
+                .orElseGet(() -> productRepository.findByStockQuantityLessThan(threshold));
+    }
+
+    /**
+     * The catalog snapshot, if one is in use and can apply the requested sort.
+     */
+    private Optional<CatalogSnapshot> catalogFor(Pageable pageable) {
+        return productCatalog.current().filter(catalog -> catalog.canSort(pageable.getSort()));
     }
 
     private ProductDTO convertToDTO(Product product) {
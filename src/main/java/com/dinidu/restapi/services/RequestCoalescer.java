@@ -0,0 +1,99 @@
+package com.dinidu.restapi.services;
+
+import com.dinidu.restapi.config.RequestCoalescingProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight loading: concurrent calls for the same operation and key share one execution
+ * of the loader and its result (or exception). The first caller runs the loader in a read-only
+ * transaction; the others wait without holding a connection, up to {@code maxWait}, and then
+ * fall back to loading on their own.
+ * <p>
+ * Callers already inside a transaction load directly, as they may need to see their own
+ * uncommitted writes.
+ */
+@Component
+public class RequestCoalescer {
+    private final RequestCoalescingProperties properties;
+    private final TransactionTemplate readOnlyTransaction;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<FlightKey, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    public RequestCoalescer(RequestCoalescingProperties properties,
+                            PlatformTransactionManager transactionManager,
+                            MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.meterRegistry = meterRegistry;
+    }
+
+    public <T> T load(String operation, Object key, Supplier<T> loader) {
+        if (!properties.isEnabled() || TransactionSynchronizationManager.isActualTransactionActive()) {
+            return readOnlyTransaction.execute(status -> loader.get());
+        }
+
+        FlightKey flightKey = new FlightKey(operation, key);
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(flightKey, flight);
+        if (existing != null) {
+            return await(operation, existing, loader);
+        }
+
+        record(operation, "leader");
+        try {
+            T result = readOnlyTransaction.execute(status -> loader.get());
+            flight.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(flightKey, flight);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T await(String operation, CompletableFuture<Object> flight, Supplier<T> loader) {
+        try {
+            T result = (T) flight.get(properties.getMaxWait().toNanos(), TimeUnit.NANOSECONDS);
+            record(operation, "coalesced");
+            return result;
+        } catch (TimeoutException e) {
+            record(operation, "timeout");
+            return readOnlyTransaction.execute(status -> loader.get());
+        } catch (ExecutionException e) {
+            record(operation, "coalesced");
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Coalesced load of " + operation + " failed", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for " + operation, e);
+        }
+    }
+
+    private void record(String operation, String role) {
+        meterRegistry.counter("requests.coalescing", "operation", operation, "role", role).increment();
+    }
+
+    private record FlightKey(String operation, Object key) {
+    }
+}
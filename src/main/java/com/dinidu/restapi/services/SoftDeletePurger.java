@@ -0,0 +1,53 @@
+package com.dinidu.restapi.services;
+
+import com.dinidu.restapi.config.SoftDeleteProperties;
+import com.dinidu.restapi.repository.OrderRepository;
+import com.dinidu.restapi.repository.ProductRepository;
+import com.dinidu.restapi.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.function.BiFunction;
+
+/**
+ * Hard-deletes soft-deleted rows once their retention has passed, in bounded batches that each
+ * commit separately so no run holds many row locks for long. Orders go first so their users and
+ * products are no longer referenced; a product that any order line still points at is kept.
+ * Runs are capped at {@code maxPurgeBatchesPerRun} batches per table so a large backlog drains
+ * over several runs instead of occupying a scheduler thread.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SoftDeletePurger {
+    private final OrderRepository orderRepository;
+    private final UserRepository userRepository;
+    private final ProductRepository productRepository;
+    private final SoftDeleteProperties properties;
+
+    @Scheduled(fixedDelayString = "${app.soft-delete.purge-interval:PT10M}")
+    public void purge() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(properties.getRetention());
+        purge("orders", cutoff, orderRepository::purgeDeletedBatch);
+        purge("users", cutoff, userRepository::purgeDeletedBatch);
+        purge("products", cutoff, productRepository::purgeDeletedBatch);
+    }
+
+    private void purge(String table, LocalDateTime cutoff, BiFunction<LocalDateTime, Integer, Integer> deleteBatch) {
+        int batchSize = properties.getPurgeBatchSize();
+        int total = 0;
+        int batches = 0;
+        int deleted;
+        do {
+            deleted = deleteBatch.apply(cutoff, batchSize);
+            total += deleted;
+        } while (deleted == batchSize && ++batches < properties.getMaxPurgeBatchesPerRun());
+
+        if (total > 0) {
+            log.info("Purged {} {} deleted before {}", total, table, cutoff);
+        }
+    }
+}
@@ -1,31 +1,49 @@
 package com.dinidu.restapi.services;
 
 
+import com.dinidu.restapi.config.BatchGetProperties;
+import com.dinidu.restapi.config.Workload;
 import com.dinidu.restapi.dtos.UserDTO;
+import com.dinidu.restapi.events.ProductChangedEvent;
 import com.dinidu.restapi.exceptions.DuplicateResourceException;
 import com.dinidu.restapi.exceptions.ResourceNotFoundException;
+import com.dinidu.restapi.models.Order;
 import com.dinidu.restapi.models.User;
+import com.dinidu.restapi.repository.UserDeletionView;
 import com.dinidu.restapi.repository.UserRepository;
+import com.dinidu.restapi.web.ETags;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
 @Service
 @RequiredArgsConstructor
 @Slf4j
 @Transactional
 public class UserService {
     private final UserRepository userRepository;
+    private final OrderHistoryCache orderHistoryCache;
+    private final BatchGetProperties batchGetProperties;
+    private final OrderEventService orderEventService;
+    private final ApplicationEventPublisher eventPublisher;
 
+    @Workload(Workload.Type.READS)
     @Transactional(readOnly = true)
     public Page<UserDTO> getAllUsers(Pageable pageable) {
         log.debug("Fetching all users with pagination: {}", pageable);
-        return userRepository.findAll(pageable).map(this::convertToDTO);
+        return userRepository.findAllProjected(pageable);
     }
 
+    @Workload(Workload.Type.READS)
     @Transactional(readOnly = true)
     public UserDTO getUserById(Long id) {
         log.debug("Fetching user by id: {}", id);
@@ -34,6 +52,25 @@ public class UserService {
         return convertToDTO(user);
     }
 
+    /**
+     * The users with the given ids in request order; ids without a user are left out.
+     */
+    @Workload(Workload.Type.READS)
+    @Transactional(readOnly = true)
+    public List<UserDTO> getUsersByIds(Collection<Long> ids) {
+        Set<Long> requestedIds = BatchGets.distinctIds(ids, batchGetProperties.getMaxIds());
+        log.debug("Fetching {} users by id", requestedIds.size());
+        return BatchGets.inRequestOrder(requestedIds, userRepository.findProjectedByIdIn(requestedIds), UserDTO::getId);
+    }
+
+    @Workload(Workload.Type.READS)
+    @Transactional(readOnly = true)
+    public LocalDateTime getUserVersion(Long id) {
+        return userRepository.findVersionById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + id));
+    }
+
+    @Workload(Workload.Type.READS)
     @Transactional(readOnly = true)
     public UserDTO getUserByUsername(String username) {
         log.debug("Fetching user by username: {}", username);
@@ -59,11 +96,17 @@ public class UserService {
         return convertToDTO(savedUser);
     }
 
-    public UserDTO updateUser(Long id, UserDTO userDTO) {
+    /**
+     * {@code ifMatch}, if given, is checked against the row read in this transaction.
+     */
+    public UserDTO updateUser(Long id, UserDTO userDTO, String ifMatch) {
         log.debug("Updating user with id: {}", id);
 
         User existingUser = userRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + id));
+        if (ifMatch != null) {
+            ETags.requireMatch(ifMatch, ETags.of(id, existingUser.getUpdatedAt(), existingUser.getCreatedAt()));
+        }
 
         // Check for duplicates only if username/email changed
         if (!existingUser.getUsername().equals(userDTO.getUsername()) &&
@@ -81,24 +124,40 @@ public class UserService {
         existingUser.setFullName(userDTO.getFullName());
         existingUser.setStatus(userDTO.getStatus());
 
-        User updatedUser = userRepository.save(existingUser);
+        User updatedUser = userRepository.saveAndFlush(existingUser);
+        orderHistoryCache.evict(id);
         log.info("User updated successfully with id: {}", updatedUser.getId());
         return convertToDTO(updatedUser);
     }
 
+    /**
+     * Soft-deletes the user and their orders in one statement, cancelling the open orders on the
+     * way so their stock comes back and the outbox sees the cancellation; {@link SoftDeletePurger}
+     * removes the rows later in bounded batches.
+     */
     public void deleteUser(Long id) {
         log.debug("Deleting user with id: {}", id);
-        if (!userRepository.existsById(id)) {
+        List<String> cancellable = Order.OrderStatus.cancellable().stream().map(Enum::name).toList();
+        UserDeletionView deletion = userRepository.softDelete(id, cancellable, LocalDateTime.now());
+        if (deletion.getDeletedUsers() == 0) {
             throw new ResourceNotFoundException("User not found with id: " + id);
         }
-        userRepository.deleteById(id);
-        log.info("User deleted successfully with id: {}", id);
+        if (deletion.getCancelledOrders() > 0) {
+            orderEventService.onCommit();
+        }
+        Set<Long> restocked = deletion.restockedProductIds();
+        if (!restocked.isEmpty()) {
+            eventPublisher.publishEvent(ProductChangedEvent.updated(restocked));
+        }
+        orderHistoryCache.evict(id);
+        log.info("User deleted successfully with id: {} ({} open orders cancelled)", id, deletion.getCancelledOrders());
     }
 
+    @Workload(Workload.Type.REPORTING)
     @Transactional(readOnly = true)
     public Page<UserDTO> searchUsers(String name, Pageable pageable) {
         log.debug("Searching users by name: {}", name);
-        return userRepository.findByNameContaining(name, pageable).map(this::convertToDTO);
+        return userRepository.findByNameContaining(name, pageable);
     }
 
     private UserDTO convertToDTO(User user) {
@@ -0,0 +1,122 @@
+package com.dinidu.restapi.web;
+
+import com.dinidu.restapi.config.ConcurrencyLimitProperties;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrency limit that follows measured latency, in the style of the gradient algorithm:
+ * per sample window the average latency is compared with a long-term average. While they stay
+ * within the tolerance the limit grows by roughly its square root; once latency rises, the
+ * limit shrinks in proportion (to at most half per window). A window with server errors
+ * backs off multiplicatively.
+ * <p>
+ * Growth is skipped while fewer than half of the permits were used, as such a window says
+ * nothing about how much more the backend can take.
+ */
+final class AdaptiveConcurrencyLimiter {
+    private static final double LONG_RTT_WEIGHT = 0.05;
+    private static final double MIN_GRADIENT = 0.5;
+
+    private final ConcurrencyLimitProperties properties;
+    private final int minLimit;
+    private final int maxLimit;
+    private final long sampleWindowNanos;
+
+    private final AtomicInteger inflight = new AtomicInteger();
+    private volatile int limit;
+
+    // guarded by this
+    private double estimatedLimit;
+    private double longRttNanos;
+    private long windowStartNanos;
+    private int windowSamples;
+    private long windowRttSumNanos;
+    private int windowMaxInflight;
+    private boolean windowDropped;
+
+    AdaptiveConcurrencyLimiter(ConcurrencyLimitProperties properties, ConcurrencyLimitProperties.Limit bounds) {
+        this.properties = properties;
+        this.minLimit = bounds.getMin();
+        this.maxLimit = bounds.getMax();
+        this.sampleWindowNanos = properties.getSampleWindow().toNanos();
+        this.estimatedLimit = bounds.getInitial();
+        this.limit = bounds.getInitial();
+    }
+
+    boolean tryAcquire() {
+        while (true) {
+            int current = inflight.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (inflight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Returns a permit without contributing a latency sample.
+     */
+    void release() {
+        inflight.decrementAndGet();
+    }
+
+    /**
+     * Returns a permit and records the request's latency; {@code dropped} marks a failed request.
+     */
+    void onComplete(long rttNanos, boolean dropped) {
+        int inflightBefore = inflight.getAndDecrement();
+        sample(rttNanos, inflightBefore, dropped);
+    }
+
+    int getLimit() {
+        return limit;
+    }
+
+    int getInflight() {
+        return inflight.get();
+    }
+
+    private synchronized void sample(long rttNanos, int inflightBefore, boolean dropped) {
+        long now = System.nanoTime();
+        if (windowSamples == 0) {
+            windowStartNanos = now;
+        }
+        windowSamples++;
+        windowRttSumNanos += rttNanos;
+        windowMaxInflight = Math.max(windowMaxInflight, inflightBefore);
+        windowDropped |= dropped;
+        if (windowSamples < properties.getMinSamples() || now - windowStartNanos < sampleWindowNanos) {
+            return;
+        }
+
+        updateLimit((double) windowRttSumNanos / windowSamples);
+        windowSamples = 0;
+        windowRttSumNanos = 0;
+        windowMaxInflight = 0;
+        windowDropped = false;
+    }
+
+    private void updateLimit(double shortRttNanos) {
+        longRttNanos = longRttNanos == 0
+                ? shortRttNanos
+                : longRttNanos * (1 - LONG_RTT_WEIGHT) + shortRttNanos * LONG_RTT_WEIGHT;
+
+        double newLimit;
+        if (windowDropped) {
+            newLimit = estimatedLimit * properties.getBackoffRatio();
+        } else {
+            double gradient = Math.max(MIN_GRADIENT,
+                    Math.min(1.0, properties.getRttTolerance() * longRttNanos / shortRttNanos));
+            newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+            if (newLimit > estimatedLimit && windowMaxInflight < estimatedLimit / 2) {
+                return;
+            }
+            newLimit = estimatedLimit * (1 - properties.getSmoothing()) + newLimit * properties.getSmoothing();
+        }
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+        limit = (int) estimatedLimit;
+    }
+}
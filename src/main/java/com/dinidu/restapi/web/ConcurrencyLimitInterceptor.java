@@ -0,0 +1,102 @@
+package com.dinidu.restapi.web;
+
+import com.dinidu.restapi.config.ConcurrencyLimitProperties;
+import com.dinidu.restapi.exceptions.ServiceUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+/**
+ * Admits requests under an adaptive concurrency limit, kept separately for reads and writes,
+ * and rejects the rest straight away with 503 and {@code Retry-After} instead of letting
+ * them queue for a database connection.
+ * <p>
+ * Requests that continue asynchronously (long polls, awaited tickets) give their permit back
+ * once the handler returns, since they no longer occupy a request thread or connection.
+ */
+@Component
+public class ConcurrencyLimitInterceptor implements AsyncHandlerInterceptor {
+    private static final String PERMIT_ATTRIBUTE = ConcurrencyLimitInterceptor.class.getName() + ".permit";
+
+    private final ConcurrencyLimitProperties properties;
+    private final AdaptiveConcurrencyLimiter readLimiter;
+    private final AdaptiveConcurrencyLimiter writeLimiter;
+    private final Counter readRejections;
+    private final Counter writeRejections;
+
+    public ConcurrencyLimitInterceptor(ConcurrencyLimitProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.readLimiter = new AdaptiveConcurrencyLimiter(properties, properties.getRead());
+        this.writeLimiter = new AdaptiveConcurrencyLimiter(properties, properties.getWrite());
+        this.readRejections = registerMetrics(meterRegistry, "read", readLimiter);
+        this.writeRejections = registerMetrics(meterRegistry, "write", writeLimiter);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!properties.isEnabled() || request.getDispatcherType() == DispatcherType.ASYNC) {
+            return true;
+        }
+        boolean read = isRead(request);
+        AdaptiveConcurrencyLimiter limiter = read ? readLimiter : writeLimiter;
+        if (!limiter.tryAcquire()) {
+            (read ? readRejections : writeRejections).increment();
+            throw new ServiceUnavailableException("Server is at its concurrency limit, please retry later",
+                    Math.max(1, properties.getRetryAfter().toSeconds()));
+        }
+        request.setAttribute(PERMIT_ATTRIBUTE, new Permit(limiter, System.nanoTime()));
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+                                               Object handler) {
+        Permit permit = takePermit(request);
+        if (permit != null) {
+            permit.limiter().release();
+        }
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        Permit permit = takePermit(request);
+        if (permit != null) {
+            boolean dropped = ex != null || response.getStatus() >= 500;
+            permit.limiter().onComplete(System.nanoTime() - permit.startNanos(), dropped);
+        }
+    }
+
+    private boolean isRead(HttpServletRequest request) {
+        String method = request.getMethod();
+        return HttpMethod.GET.matches(method) || HttpMethod.HEAD.matches(method);
+    }
+
+    private Permit takePermit(HttpServletRequest request) {
+        Permit permit = (Permit) request.getAttribute(PERMIT_ATTRIBUTE);
+        request.removeAttribute(PERMIT_ATTRIBUTE);
+        return permit;
+    }
+
+    private static Counter registerMetrics(MeterRegistry meterRegistry, String workload,
+                                           AdaptiveConcurrencyLimiter limiter) {
+        Gauge.builder("http.server.concurrency.limit", limiter, AdaptiveConcurrencyLimiter::getLimit)
+                .tag("workload", workload)
+                .register(meterRegistry);
+        Gauge.builder("http.server.concurrency.inflight", limiter, AdaptiveConcurrencyLimiter::getInflight)
+                .tag("workload", workload)
+                .register(meterRegistry);
+        return Counter.builder("http.server.concurrency.rejected")
+                .tag("workload", workload)
+                .register(meterRegistry);
+    }
+
+    private record Permit(AdaptiveConcurrencyLimiter limiter, long startNanos) {
+    }
+}
@@ -0,0 +1,107 @@
+package com.dinidu.restapi.web;
+
+import com.dinidu.restapi.dtos.OrderDTO;
+import com.dinidu.restapi.dtos.OrderItemDTO;
+import com.dinidu.restapi.exceptions.PreconditionFailedException;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Strong entity tags derived from an entity id and its last modification timestamp, plus a
+ * digest of embedded fields of other entities where a representation has them.
+ * The timestamp is truncated to microseconds so the tag computed from an in-memory entity
+ * matches the one computed from the value PostgreSQL stores.
+ */
+public final class ETags {
+
+    private ETags() {
+    }
+
+    public static String of(Long id, LocalDateTime updatedAt, LocalDateTime createdAt) {
+        return of(id, updatedAt != null ? updatedAt : createdAt);
+    }
+
+    public static String of(Long id, LocalDateTime version) {
+        long micros = version.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + version.getNano() / 1_000;
+        return "\"" + id + "-" + micros + "\"";
+    }
+
+    /**
+     * Tag of a representation that also embeds fields of other entities, such as their names.
+     * A digest of {@code embedded} (order-independent) is part of the tag, so changing any of
+     * them changes the tag even though {@code version} stays the same.
+     */
+    public static String of(Long id, LocalDateTime version, Collection<String> embedded) {
+        String digest = Integer.toHexString(String.join("\n", embedded.stream()
+                .map(value -> Objects.toString(value, ""))
+                .sorted()
+                .toList()).hashCode());
+        String tag = of(id, version);
+        return tag.substring(0, tag.length() - 1) + "-" + digest + "\"";
+    }
+
+    /**
+     * An order embeds its user's full name and, when its lines are included, the product names.
+     */
+    public static String of(OrderDTO order) {
+        List<String> embedded = new ArrayList<>();
+        embedded.add(order.getUserFullName());
+        if (order.getOrderItems() != null) {
+            order.getOrderItems().stream().map(OrderItemDTO::getProductName).forEach(embedded::add);
+        }
+        return of(order.getId(), order.getUpdatedAt() != null ? order.getUpdatedAt() : order.getCreatedAt(), embedded);
+    }
+
+    /**
+     * Tag of the {@code ?fields=} selection of the representation tagged {@code etag}. Each
+     * selection is a different representation, so it gets its own strong tag: a digest of the
+     * selected fields (order-independent) is appended. Without a selection {@code etag} is returned.
+     */
+    public static String forFields(String etag, String fields) {
+        Set<String> selected = SparseFieldsets.parse(fields);
+        if (selected.isEmpty()) {
+            return etag;
+        }
+        String digest = Integer.toHexString(String.join(",", new TreeSet<>(selected)).hashCode());
+        return etag.substring(0, etag.length() - 1) + "-f" + digest + "\"";
+    }
+
+    /**
+     * Weak comparison as required for {@code If-None-Match}: a {@code W/} prefix is ignored.
+     */
+    public static boolean matchesAny(String ifNoneMatch, String etag) {
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*")) {
+                return true;
+            }
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Strong comparison as required for {@code If-Match}; weak tags never match.
+     */
+    public static void requireMatch(String ifMatch, String etag) {
+        for (String candidate : ifMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*") || tag.equals(etag)) {
+                return;
+            }
+        }
+        throw new PreconditionFailedException("Resource has been modified; current ETag is " + etag);
+    }
+}
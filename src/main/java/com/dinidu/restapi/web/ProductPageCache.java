@@ -0,0 +1,166 @@
+package com.dinidu.restapi.web;
+
+import com.dinidu.restapi.config.ProductPageCacheProperties;
+import com.dinidu.restapi.dtos.ApiResponse;
+import com.dinidu.restapi.dtos.ProductDTO;
+import com.dinidu.restapi.events.ProductChangedEvent;
+import com.dinidu.restapi.services.ProductCatalog;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.InvalidMimeTypeException;
+import org.springframework.util.MimeTypeUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serialized JSON (and gzip) bodies of the first {@code GET /products} pages in the default
+ * newest-first order, keyed by page and size, so the number of entries is bounded by
+ * {@code maxPages} times {@code maxPageSize}. A page is dropped as soon as a product on it changes; adding or removing
+ * products, or changes that cannot be attributed to products, drop every page.
+ * <p>
+ * Pages are only stored if no invalidation happened since the data was read, so a read racing
+ * with a commit never caches the pre-commit state. That only holds for commits this instance
+ * hears about, so pages must be read from the primary rather than a replica, and they expire
+ * after {@code ttl} in case an invalidation from another instance was lost.
+ */
+@Component
+@RequiredArgsConstructor
+public class ProductPageCache {
+    private static final Sort DEFAULT_SORT = Sort.by(Sort.Direction.DESC, "createdAt");
+    private static final String VARY = HttpHeaders.ACCEPT + ", " + HttpHeaders.ACCEPT_ENCODING;
+    private static final long UNCACHEABLE = -1;
+
+    private final ProductPageCacheProperties properties;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final ProductCatalog productCatalog;
+
+    private final Map<String, CachedPage> pages = new ConcurrentHashMap<>();
+    private long generation;
+
+    public boolean isCacheable(Pageable pageable, String accept) {
+        return properties.isEnabled()
+                && pageable.getPageNumber() < properties.getMaxPages()
+                && pageable.getPageSize() <= properties.getMaxPageSize()
+                && pageable.getSort().equals(DEFAULT_SORT)
+                && acceptsJson(accept);
+    }
+
+    public Optional<CachedPage> get(Pageable pageable) {
+        String key = key(pageable);
+        CachedPage page = pages.get(key);
+        if (page != null && System.nanoTime() - page.storedAt() > properties.getTtl().toNanos()) {
+            pages.remove(key, page);
+            page = null;
+        }
+        meterRegistry.counter("products.page-cache", "result", page != null ? "hit" : "miss").increment();
+        return Optional.ofNullable(page);
+    }
+
+    /**
+     * The generation to pass to {@link #put} for data read from now on. While the catalog
+     * snapshot lacks committed changes it may still serve them, so reads made then are never
+     * stored.
+     */
+    public long generation() {
+        long current;
+        synchronized (this) {
+            current = generation;
+        }
+        // checked after reading the generation: the catalog marks itself stale before it moves
+        return productCatalog.hasUnappliedChanges() ? UNCACHEABLE : current;
+    }
+
+    /**
+     * Serializes {@code response} and keeps it unless products changed after {@code readGeneration}.
+     */
+    public CachedPage put(Pageable pageable, long readGeneration, ApiResponse<List<ProductDTO>> response) {
+        byte[] json = serialize(response);
+        byte[] gzip = json.length >= properties.getGzipMinBytes() ? gzip(json) : null;
+        Set<Long> productIds = response.getData().stream().map(ProductDTO::getId).collect(Collectors.toSet());
+        CachedPage page = new CachedPage(json, gzip, productIds, System.nanoTime());
+        synchronized (this) {
+            if (generation == readGeneration) {
+                pages.put(key(pageable), page);
+            }
+        }
+        return page;
+    }
+
+    public ResponseEntity<byte[]> toResponse(CachedPage page, String acceptEncoding) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.VARY, VARY);
+        if (page.gzip() != null && acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            return builder.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(page.gzip());
+        }
+        return builder.body(page.json());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onProductChanged(ProductChangedEvent event) {
+        generation++;
+        if (event.affectsAll() || event.membershipChanged()) {
+            pages.clear();
+        } else {
+            pages.values().removeIf(page -> !Collections.disjoint(page.productIds(), event.productIds()));
+        }
+    }
+
+    private boolean acceptsJson(String accept) {
+        if (accept == null) {
+            return true;
+        }
+        try {
+            List<MediaType> mediaTypes = MediaType.parseMediaTypes(accept);
+            MimeTypeUtils.sortBySpecificity(mediaTypes);
+            return mediaTypes.isEmpty() || mediaTypes.get(0).includes(MediaType.APPLICATION_JSON);
+        } catch (InvalidMimeTypeException e) {
+            return false;
+        }
+    }
+
+    private String key(Pageable pageable) {
+        return pageable.getPageNumber() + ":" + pageable.getPageSize();
+    }
+
+    private byte[] serialize(ApiResponse<List<ProductDTO>> response) {
+        try {
+            return objectMapper.writeValueAsBytes(response);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unable to serialize product page", e);
+        }
+    }
+
+    private byte[] gzip(byte[] json) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(json.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(buffer)) {
+            gzip.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buffer.toByteArray();
+    }
+
+    public record CachedPage(byte[] json, byte[] gzip, Set<Long> productIds, long storedAt) {
+    }
+}
@@ -0,0 +1,83 @@
+package com.dinidu.restapi.web;
+
+import com.dinidu.restapi.config.ReplicaRoutingDataSource;
+import com.dinidu.restapi.config.ReplicaRoutingProperties;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseCookie;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import java.time.Duration;
+
+/**
+ * Keeps a client that just wrote on the primary while the replicas may still miss its write.
+ * Writes set a cookie holding the end of that window, {@code max-lag} from now, since replicas
+ * lagging further are out of rotation anyway; requests carrying an unexpired cookie, and the
+ * write itself, read from the primary. Clients without cookies get no such guarantee.
+ */
+@Component
+@RequiredArgsConstructor
+public class ReadYourWritesInterceptor implements AsyncHandlerInterceptor {
+    static final String COOKIE = "primary_reads_until";
+
+    private final ReplicaRoutingProperties properties;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!properties.isEnabled()) {
+            return true;
+        }
+        long now = System.currentTimeMillis();
+        if (!isRead(request)) {
+            Duration window = properties.getMaxLag();
+            response.addHeader(HttpHeaders.SET_COOKIE, ResponseCookie.from(COOKIE, Long.toString(now + window.toMillis()))
+                    .path("/")
+                    .httpOnly(true)
+                    .maxAge(Duration.ofSeconds(Math.max(1, (window.toMillis() + 999) / 1000)))
+                    .build()
+                    .toString());
+            ReplicaRoutingDataSource.startPrimaryReads();
+        } else if (pinnedUntil(request) > now) {
+            ReplicaRoutingDataSource.startPrimaryReads();
+        }
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+                                               Object handler) {
+        ReplicaRoutingDataSource.endPrimaryReads();
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        ReplicaRoutingDataSource.endPrimaryReads();
+    }
+
+    private static long pinnedUntil(HttpServletRequest request) {
+        if (request.getCookies() == null) {
+            return 0;
+        }
+        for (Cookie cookie : request.getCookies()) {
+            if (COOKIE.equals(cookie.getName())) {
+                try {
+                    return Long.parseLong(cookie.getValue());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 0;
+    }
+
+    private static boolean isRead(HttpServletRequest request) {
+        String method = request.getMethod();
+        return HttpMethod.GET.matches(method) || HttpMethod.HEAD.matches(method);
+    }
+}
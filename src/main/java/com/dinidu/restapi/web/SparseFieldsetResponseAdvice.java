@@ -0,0 +1,39 @@
+package com.dinidu.restapi.web;
+
+import com.dinidu.restapi.controllers.OrderController;
+import com.dinidu.restapi.controllers.ProductController;
+import com.dinidu.restapi.controllers.UserController;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJacksonValue;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.AbstractMappingJacksonResponseBodyAdvice;
+
+import java.util.Set;
+
+/**
+ * Applies {@code ?fields=} to the DTOs annotated with {@link SparseFieldsets#FILTER_ID}; the
+ * envelope and nested types without the filter are serialized as usual.
+ */
+@RestControllerAdvice(assignableTypes = {OrderController.class, ProductController.class, UserController.class})
+public class SparseFieldsetResponseAdvice extends AbstractMappingJacksonResponseBodyAdvice {
+
+    @Override
+    protected void beforeBodyWriteInternal(MappingJacksonValue bodyContainer, MediaType contentType,
+                                           MethodParameter returnType, ServerHttpRequest request,
+                                           ServerHttpResponse response) {
+        if (!(request instanceof ServletServerHttpRequest servletRequest)) {
+            return;
+        }
+        Set<String> fields = SparseFieldsets.parse(servletRequest.getServletRequest().getParameter(SparseFieldsets.PARAM));
+        if (!fields.isEmpty()) {
+            bodyContainer.setFilters(new SimpleFilterProvider()
+                    .addFilter(SparseFieldsets.FILTER_ID, SimpleBeanPropertyFilter.filterOutAllExcept(fields)));
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.dinidu.restapi.web;
+
+import org.springframework.util.StringUtils;
+
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * {@code fields=id,status,...} selection of response properties. Without the parameter every
+ * property is returned; {@code id} is always kept so selected items stay addressable.
+ */
+public final class SparseFieldsets {
+    public static final String PARAM = "fields";
+
+    /**
+     * Jackson filter id carried by the DTOs that support field selection.
+     */
+    public static final String FILTER_ID = "sparseFieldset";
+
+    private SparseFieldsets() {
+    }
+
+    public static Set<String> parse(String fields) {
+        if (!StringUtils.hasText(fields)) {
+            return Set.of();
+        }
+        Set<String> selected = StringUtils.commaDelimitedListToSet(fields).stream()
+                .map(String::trim)
+                .filter(StringUtils::hasText)
+                .collect(Collectors.toSet());
+        selected.add("id");
+        return selected;
+    }
+
+    public static boolean includes(String fields, String field) {
+        Set<String> selected = parse(fields);
+        return selected.isEmpty() || selected.contains(field);
+    }
+}
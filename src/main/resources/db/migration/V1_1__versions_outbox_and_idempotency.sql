@@ -0,0 +1,38 @@
+-- Columns and tables the application gained before the indexes of V2. Databases baselined at V1
+-- may already have some of them from spring.jpa.hibernate.ddl-auto=update, so every statement is
+-- a no-op when its object exists.
+
+-- Optimistic locking for products (stock) and orders (status transitions)
+ALTER TABLE products ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE orders ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+
+-- Line loads are ordered and indexed by (order_id, created_at); existing lines take their order's
+-- creation time.
+ALTER TABLE order_items ADD COLUMN IF NOT EXISTS created_at TIMESTAMP;
+UPDATE order_items i SET created_at = o.created_at
+FROM orders o
+WHERE o.id = i.order_id AND i.created_at IS NULL;
+ALTER TABLE order_items ALTER COLUMN created_at SET DEFAULT CURRENT_TIMESTAMP;
+ALTER TABLE order_items ALTER COLUMN created_at SET NOT NULL;
+
+CREATE TABLE IF NOT EXISTS idempotency_keys (
+                                  idempotency_key VARCHAR(255) PRIMARY KEY,
+                                  request_hash VARCHAR(64) NOT NULL,
+                                  response_body TEXT NOT NULL,
+                                  created_at TIMESTAMP NOT NULL,
+                                  expires_at TIMESTAMP NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_idempotency_keys_expires_at ON idempotency_keys (expires_at);
+
+-- Order event outbox; its feed index is created by V5
+CREATE TABLE IF NOT EXISTS order_events (
+                              id BIGSERIAL PRIMARY KEY,
+                              order_id BIGINT NOT NULL,
+                              order_number VARCHAR(50) NOT NULL,
+                              user_id BIGINT NOT NULL,
+                              event_type VARCHAR(20) NOT NULL,
+                              status VARCHAR(20) NOT NULL,
+                              total_amount DECIMAL(10,2) NOT NULL,
+                              created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
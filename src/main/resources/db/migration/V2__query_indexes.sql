@@ -0,0 +1,34 @@
+-- Indexes matched to the repository queries; QueryPlanTests fails when a query loses its index.
+-- IF NOT EXISTS keeps this safe on schemas that already carry some of them (db/partitioning.sql).
+
+-- Substring search (LIKE '%term%') on product and user names needs trigram indexes
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+-- orders: per-user history (createdAt DESC, id as tie-breaker) and findByUserIdAndStatus
+CREATE INDEX IF NOT EXISTS idx_orders_user_created ON orders (user_id, created_at, id);
+-- findByStatus pages and the status/age filter of bulk transitions
+CREATE INDEX IF NOT EXISTS idx_orders_status_created ON orders (status, created_at);
+-- Default createdAt DESC listing and findByDateRange
+CREATE INDEX IF NOT EXISTS idx_orders_created ON orders (created_at);
+
+-- order_items: line loads and the restock join in cancelAndRestock (order_id, created_at)
+CREATE INDEX IF NOT EXISTS idx_order_items_order ON order_items (order_id, created_at);
+-- Foreign key checks when a product is deleted
+CREATE INDEX IF NOT EXISTS idx_order_items_product ON order_items (product_id);
+
+-- products: findByStatus and the default createdAt DESC listing
+CREATE INDEX IF NOT EXISTS idx_products_status_created ON products (status, created_at);
+CREATE INDEX IF NOT EXISTS idx_products_created ON products (created_at);
+-- Price range pages, which also sort by price by default
+CREATE INDEX IF NOT EXISTS idx_products_price ON products (price);
+-- Low stock report. Makes stock updates non-HOT; the catalog snapshot serves most of these reads,
+-- but the uncached path must not scan the table.
+CREATE INDEX IF NOT EXISTS idx_products_stock ON products (stock_quantity);
+CREATE INDEX IF NOT EXISTS idx_products_name_trgm ON products USING gin (name gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_products_description_trgm ON products USING gin (description gin_trgm_ops);
+
+-- users: findByStatus, the default createdAt DESC listing and name search
+CREATE INDEX IF NOT EXISTS idx_users_status_created ON users (status, created_at);
+CREATE INDEX IF NOT EXISTS idx_users_created ON users (created_at);
+CREATE INDEX IF NOT EXISTS idx_users_full_name_trgm ON users USING gin (full_name gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_users_username_trgm ON users USING gin (username gin_trgm_ops);
@@ -0,0 +1,27 @@
+-- Soft delete for users, products and orders. Deletes only set deleted_at; SoftDeletePurger
+-- hard-deletes the rows later in bounded batches.
+
+ALTER TABLE users ADD COLUMN IF NOT EXISTS deleted_at TIMESTAMP;
+ALTER TABLE products ADD COLUMN IF NOT EXISTS deleted_at TIMESTAMP;
+ALTER TABLE orders ADD COLUMN IF NOT EXISTS deleted_at TIMESTAMP;
+
+-- Usernames and emails only have to be unique among live users, so a deleted user's name can be
+-- taken again right away. The constraint names differ between V1 and ddl-auto created schemas.
+DO $$
+DECLARE
+    constraint_name TEXT;
+BEGIN
+    FOR constraint_name IN
+        SELECT conname FROM pg_constraint WHERE conrelid = 'users'::regclass AND contype = 'u'
+    LOOP
+        EXECUTE format('ALTER TABLE users DROP CONSTRAINT %I', constraint_name);
+    END LOOP;
+END $$;
+
+CREATE UNIQUE INDEX IF NOT EXISTS idx_users_username_live ON users (username) WHERE deleted_at IS NULL;
+CREATE UNIQUE INDEX IF NOT EXISTS idx_users_email_live ON users (email) WHERE deleted_at IS NULL;
+
+-- The purger's "deleted_at < cutoff" scans; small, since live rows are not indexed
+CREATE INDEX IF NOT EXISTS idx_users_deleted ON users (deleted_at) WHERE deleted_at IS NOT NULL;
+CREATE INDEX IF NOT EXISTS idx_products_deleted ON products (deleted_at) WHERE deleted_at IS NOT NULL;
+CREATE INDEX IF NOT EXISTS idx_orders_deleted ON orders (deleted_at) WHERE deleted_at IS NOT NULL;
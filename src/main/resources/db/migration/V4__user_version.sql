@@ -0,0 +1,4 @@
+-- Optimistic locking for users, so an If-Match update cannot overwrite a change committed
+-- between its read and its write.
+
+ALTER TABLE users ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,9 @@
+-- The event feed pages by the inserting transaction's id instead of a settle delay, and only
+-- shows events of transactions older than every one still running. Anything that becomes
+-- visible later therefore sorts after what a consumer has already read.
+
+ALTER TABLE order_events ADD COLUMN IF NOT EXISTS txid xid8 NOT NULL DEFAULT pg_current_xact_id();
+
+DROP INDEX IF EXISTS idx_order_events_feed;
+CREATE INDEX idx_order_events_feed ON order_events (txid, id)
+    INCLUDE (order_id, order_number, user_id, event_type, status, total_amount, created_at);
@@ -0,0 +1,144 @@
+-- Converts orders/order_items into tables range-partitioned by month on created_at and creates
+-- the archive tables used by OrderArchiveService. Opt-in: Flyway only applies it when
+-- classpath:db/partitioning is added to spring.flyway.locations, together with
+-- app.orders.archive.enabled=true. It rewrites both tables under an exclusive lock, so deploy it
+-- with no other instance writing orders. A database that is already past this version needs
+-- spring.flyway.out-of-order=true once to pick it up. Later migrations that change orders or
+-- order_items must work on both layouts; this version's row in flyway_schema_history tells them
+-- apart.
+--
+-- Partition keys have to be part of every unique constraint, so the primary keys become
+-- (id, created_at) and order_items carries its order's created_at to reference
+-- (order_id, created_at). Order numbers stay unique through order_numbers, which a trigger fills
+-- on every insert into orders; numbers of archived and purged orders stay taken.
+
+ALTER TABLE order_items RENAME TO order_items_unpartitioned;
+ALTER TABLE orders RENAME TO orders_unpartitioned;
+
+-- Renaming a table keeps its index names, and the new tables below reuse them (including the
+-- primary keys' orders_pkey/order_items_pkey, which are renamed together with their constraint).
+DO $$
+DECLARE
+    index_name TEXT;
+BEGIN
+    FOR index_name IN SELECT indexname FROM pg_indexes
+                      WHERE schemaname = current_schema()
+                        AND tablename IN ('orders_unpartitioned', 'order_items_unpartitioned') LOOP
+        EXECUTE format('ALTER INDEX %I RENAME TO %I', index_name, left(index_name, 49) || '_unpartitioned');
+    END LOOP;
+END $$;
+
+ALTER SEQUENCE orders_id_seq OWNED BY NONE;
+ALTER SEQUENCE order_items_id_seq OWNED BY NONE;
+
+CREATE TABLE orders (
+                        id BIGINT NOT NULL DEFAULT nextval('orders_id_seq'),
+                        order_number VARCHAR(50) NOT NULL,
+                        user_id BIGINT NOT NULL REFERENCES users (id),
+                        total_amount DECIMAL(10,2) NOT NULL DEFAULT 0.00,
+                        status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+                        version BIGINT NOT NULL DEFAULT 0,
+                        created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+                        updated_at TIMESTAMP,
+                        deleted_at TIMESTAMP,
+                        PRIMARY KEY (id, created_at),
+                        CONSTRAINT valid_order_status CHECK (status IN ('PENDING', 'CONFIRMED', 'SHIPPED', 'DELIVERED', 'CANCELLED'))
+) PARTITION BY RANGE (created_at);
+
+CREATE TABLE order_items (
+                             id BIGINT NOT NULL DEFAULT nextval('order_items_id_seq'),
+                             order_id BIGINT NOT NULL,
+                             product_id BIGINT NOT NULL REFERENCES products (id),
+                             quantity INTEGER NOT NULL CHECK (quantity >= 1),
+                             unit_price DECIMAL(10,2) NOT NULL CHECK (unit_price > 0),
+                             subtotal DECIMAL(10,2) NOT NULL,
+                             created_at TIMESTAMP NOT NULL,
+                             PRIMARY KEY (id, created_at),
+                             FOREIGN KEY (order_id, created_at) REFERENCES orders (id, created_at)
+) PARTITION BY RANGE (created_at);
+
+ALTER SEQUENCE orders_id_seq OWNED BY orders.id;
+ALTER SEQUENCE order_items_id_seq OWNED BY order_items.id;
+
+-- Not partitioned, so it can enforce uniqueness across all partitions and the archive
+CREATE TABLE order_numbers (
+                               order_number VARCHAR(50) PRIMARY KEY,
+                               order_id BIGINT NOT NULL
+);
+
+CREATE FUNCTION reserve_order_number() RETURNS trigger AS $$
+BEGIN
+    INSERT INTO order_numbers (order_number, order_id) VALUES (NEW.order_number, NEW.id);
+    RETURN NULL;
+END $$ LANGUAGE plpgsql;
+
+-- Also fires for the copy below, which fills order_numbers for the existing orders
+CREATE TRIGGER orders_reserve_order_number
+    AFTER INSERT ON orders FOR EACH ROW EXECUTE FUNCTION reserve_order_number();
+
+-- Indexes on the parent are created on every partition, present and future. Same set as
+-- V2 and V3, plus order number lookups and the archiver.
+CREATE INDEX idx_orders_order_number ON orders (order_number);
+CREATE INDEX idx_orders_user_created ON orders (user_id, created_at, id);
+CREATE INDEX idx_orders_status_created ON orders (status, created_at);
+CREATE INDEX idx_orders_created ON orders (created_at);
+CREATE INDEX idx_orders_deleted ON orders (deleted_at) WHERE deleted_at IS NOT NULL;
+CREATE INDEX idx_order_items_order ON order_items (order_id, created_at);
+CREATE INDEX idx_order_items_product ON order_items (product_id);
+-- OrderArchiveRepository picks the oldest finished orders past the retention cutoff
+CREATE INDEX idx_orders_archivable ON orders (created_at) WHERE status IN ('DELIVERED', 'CANCELLED');
+
+-- Catches rows outside the monthly partitions OrderArchiveService keeps ahead of time
+CREATE TABLE orders_default PARTITION OF orders DEFAULT;
+CREATE TABLE order_items_default PARTITION OF order_items DEFAULT;
+
+DO $$
+DECLARE
+    month DATE := date_trunc('month', COALESCE((SELECT min(created_at) FROM orders_unpartitioned), now()));
+BEGIN
+    WHILE month <= date_trunc('month', now()) + INTERVAL '3 months' LOOP
+        EXECUTE format('CREATE TABLE %I PARTITION OF orders FOR VALUES FROM (%L) TO (%L)',
+                       'orders_y' || to_char(month, 'YYYY') || 'm' || to_char(month, 'MM'),
+                       month, month + INTERVAL '1 month');
+        EXECUTE format('CREATE TABLE %I PARTITION OF order_items FOR VALUES FROM (%L) TO (%L)',
+                       'order_items_y' || to_char(month, 'YYYY') || 'm' || to_char(month, 'MM'),
+                       month, month + INTERVAL '1 month');
+        month := month + INTERVAL '1 month';
+    END LOOP;
+END $$;
+
+INSERT INTO orders (id, order_number, user_id, total_amount, status, version, created_at, updated_at, deleted_at)
+SELECT id, order_number, user_id, total_amount, status, version, created_at, updated_at, deleted_at
+FROM orders_unpartitioned;
+
+INSERT INTO order_items (id, order_id, product_id, quantity, unit_price, subtotal, created_at)
+SELECT i.id, i.order_id, i.product_id, i.quantity, i.unit_price, i.subtotal, o.created_at
+FROM order_items_unpartitioned i
+         JOIN orders_unpartitioned o ON o.id = i.order_id;
+
+DROP TABLE order_items_unpartitioned;
+DROP TABLE orders_unpartitioned;
+
+-- Archive: written once, read by id only. Packed full (fillfactor 100) since rows never change.
+CREATE TABLE orders_archive (
+                                id BIGINT PRIMARY KEY,
+                                order_number VARCHAR(50) NOT NULL,
+                                user_id BIGINT NOT NULL,
+                                total_amount DECIMAL(10,2) NOT NULL,
+                                status VARCHAR(20) NOT NULL,
+                                version BIGINT NOT NULL,
+                                created_at TIMESTAMP NOT NULL,
+                                updated_at TIMESTAMP
+) WITH (fillfactor = 100);
+
+CREATE TABLE order_items_archive (
+                                     id BIGINT PRIMARY KEY,
+                                     order_id BIGINT NOT NULL,
+                                     product_id BIGINT NOT NULL,
+                                     quantity INTEGER NOT NULL,
+                                     unit_price DECIMAL(10,2) NOT NULL,
+                                     subtotal DECIMAL(10,2) NOT NULL,
+                                     created_at TIMESTAMP NOT NULL
+) WITH (fillfactor = 100);
+
+CREATE INDEX idx_order_items_archive_order ON order_items_archive (order_id);
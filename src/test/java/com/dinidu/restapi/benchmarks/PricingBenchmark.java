@@ -0,0 +1,136 @@
+package com.dinidu.restapi.benchmarks;
+
+import com.dinidu.restapi.config.PricingProperties;
+import com.dinidu.restapi.services.PriceCalculation;
+import com.dinidu.restapi.services.PricingEngine;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Order pricing with chained {@code BigDecimal} operations (how OrderItem.calculateSubtotal and
+ * the createOrder loop used to total orders, extended with the same rules) against
+ * {@link PricingEngine}, with and without the BigDecimal conversions OrderService does at its
+ * boundary. Both sides must agree on the total, which is checked once per trial. Run with
+ * {@code mvn -Pbenchmarks test-compile exec:exec -Dbenchmark=PricingBenchmark}; add
+ * {@code -prof gc} to the JMH arguments to compare allocation rates.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PricingBenchmark {
+
+    @Param({"3", "20"})
+    private int lines;
+
+    /**
+     * "none" is today's configuration; "discounts" adds tiered and fixed line rules, an order
+     * discount and tax.
+     */
+    @Param({"none", "discounts"})
+    private String rules;
+
+    private PricingProperties properties;
+    private PricingEngine engine;
+    private PriceCalculation calculation;
+    private BigDecimal[] prices;
+    private long[] minorPrices;
+    private int[] quantities;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        properties = new PricingProperties();
+        if (rules.equals("discounts")) {
+            properties.setTaxRate(new BigDecimal("8.25"));
+            properties.setLineRules(List.of(
+                    new PricingProperties.Rule(PricingProperties.Type.TIERED, null, BigDecimal.ZERO, List.of(
+                            new PricingProperties.Tier(new BigDecimal("5"), new BigDecimal("5")),
+                            new PricingProperties.Tier(new BigDecimal("10"), new BigDecimal("12.5")))),
+                    new PricingProperties.Rule(PricingProperties.Type.FIXED, new BigDecimal("1.00"),
+                            new BigDecimal("3"), List.of())));
+            properties.setOrderRules(List.of(
+                    new PricingProperties.Rule(PricingProperties.Type.PERCENTAGE, new BigDecimal("5"),
+                            new BigDecimal("100.00"), List.of())));
+        }
+        engine = new PricingEngine(properties);
+        calculation = new PriceCalculation(lines);
+
+        SplittableRandom random = new SplittableRandom(42);
+        prices = new BigDecimal[lines];
+        minorPrices = new long[lines];
+        quantities = new int[lines];
+        for (int i = 0; i < lines; i++) {
+            prices[i] = BigDecimal.valueOf(random.nextLong(99, 50_000), 2);
+            minorPrices[i] = engine.toMinorUnits(prices[i]);
+            quantities[i] = random.nextInt(1, 15);
+        }
+
+        BigDecimal expected = bigDecimal();
+        BigDecimal actual = engineWithConversion();
+        if (expected.compareTo(actual) != 0) {
+            throw new IllegalStateException("Totals differ: BigDecimal " + expected + ", engine " + actual);
+        }
+    }
+
+    @Benchmark
+    public BigDecimal bigDecimal() {
+        BigDecimal subtotal = BigDecimal.ZERO;
+        for (int i = 0; i < lines; i++) {
+            BigDecimal line = prices[i].multiply(BigDecimal.valueOf(quantities[i]));
+            subtotal = subtotal.add(applyRules(properties.getLineRules(), line, BigDecimal.valueOf(quantities[i])));
+        }
+        BigDecimal net = applyRules(properties.getOrderRules(), subtotal, subtotal);
+        return net.add(percentOf(net, properties.getTaxRate()));
+    }
+
+    @Benchmark
+    public long engine() {
+        calculation.reset();
+        for (int i = 0; i < lines; i++) {
+            calculation.addLine(minorPrices[i], quantities[i]);
+        }
+        engine.price(calculation);
+        return calculation.total();
+    }
+
+    @Benchmark
+    public BigDecimal engineWithConversion() {
+        calculation.reset();
+        for (int i = 0; i < lines; i++) {
+            calculation.addLine(engine.toMinorUnits(prices[i]), quantities[i]);
+        }
+        engine.price(calculation);
+        return engine.toAmount(calculation.total());
+    }
+
+    private static BigDecimal applyRules(List<PricingProperties.Rule> rules, BigDecimal amount, BigDecimal measure) {
+        for (PricingProperties.Rule rule : rules) {
+            if (measure.compareTo(rule.getMinimum()) < 0) {
+                continue;
+            }
+            BigDecimal base = amount;
+            BigDecimal discount = switch (rule.getType()) {
+                case PERCENTAGE -> percentOf(base, rule.getValue());
+                case FIXED -> rule.getValue();
+                case TIERED -> rule.getTiers().stream()
+                        .filter(tier -> measure.compareTo(tier.getMinimum()) >= 0)
+                        .reduce((lower, higher) -> higher)
+                        .map(tier -> percentOf(base, tier.getPercent()))
+                        .orElse(BigDecimal.ZERO);
+            };
+            amount = amount.subtract(discount.min(amount));
+        }
+        return amount;
+    }
+
+    private static BigDecimal percentOf(BigDecimal amount, BigDecimal percent) {
+        return amount.multiply(percent).movePointLeft(2).setScale(2, RoundingMode.HALF_UP);
+    }
+}
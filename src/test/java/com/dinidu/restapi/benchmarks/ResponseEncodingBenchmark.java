@@ -0,0 +1,112 @@
+package com.dinidu.restapi.benchmarks;
+
+import com.dinidu.restapi.dtos.ApiResponse;
+import com.dinidu.restapi.dtos.OrderDTO;
+import com.dinidu.restapi.dtos.OrderItemDTO;
+import com.dinidu.restapi.models.Order;
+import com.dinidu.restapi.web.SparseFieldsets;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Encode time of a page of orders per response format; the encoded size of each format is
+ * reported next to it as the {@code encodedBytes} secondary result. Run with
+ * {@code mvn -Pbenchmarks test-compile exec:exec}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ResponseEncodingBenchmark {
+
+    @Param({"json", "cbor", "smile"})
+    private String format;
+
+    @Param({"20", "100"})
+    private int pageSize;
+
+    private ObjectMapper mapper;
+    private ApiResponse<List<OrderDTO>> page;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        JsonFactory factory = switch (format) {
+            case "cbor" -> new CBORFactory();
+            case "smile" -> new SmileFactory();
+            default -> new JsonFactory();
+        };
+        // Same settings as the application's mappers (see JacksonConfig and application.properties)
+        mapper = Jackson2ObjectMapperBuilder.json()
+                .factory(factory)
+                .serializationInclusion(JsonInclude.Include.NON_NULL)
+                .filters(new SimpleFilterProvider()
+                        .addFilter(SparseFieldsets.FILTER_ID, SimpleBeanPropertyFilter.serializeAll()))
+                .build();
+
+        List<OrderDTO> orders = IntStream.range(0, pageSize).mapToObj(this::order).toList();
+        page = ApiResponse.<List<OrderDTO>>builder()
+                .success(true)
+                .message("Orders fetched successfully")
+                .data(orders)
+                .metadata(Map.of("currentPage", 0, "pageSize", pageSize, "totalElements", 10_000L,
+                        "totalPages", 10_000 / pageSize))
+                .build();
+    }
+
+    @Benchmark
+    public byte[] encode(PayloadSize payloadSize) throws Exception {
+        byte[] encoded = mapper.writeValueAsBytes(page);
+        payloadSize.encodedBytes = encoded.length;
+        return encoded;
+    }
+
+    /**
+     * Size of the last encoded page, reported as is rather than summed per operation.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class PayloadSize {
+        public long encodedBytes;
+    }
+
+    private OrderDTO order(int i) {
+        LocalDateTime createdAt = LocalDateTime.of(2026, 1, 1, 12, 0).plusMinutes(i);
+        List<OrderItemDTO> items = IntStream.range(0, 3)
+                .mapToObj(line -> OrderItemDTO.builder()
+                        .id((long) i * 3 + line)
+                        .productId((long) line + 1)
+                        .productName("Product " + (line + 1))
+                        .quantity(line + 1)
+                        .unitPrice(new BigDecimal("19.99"))
+                        .subtotal(new BigDecimal("19.99").multiply(BigDecimal.valueOf(line + 1)))
+                        .build())
+                .toList();
+        return OrderDTO.builder()
+                .id((long) i)
+                .orderNumber("ORD-1767268800000-A1B" + String.format("%05X", i))
+                .userId(1L)
+                .userFullName("John Doe")
+                .orderItems(items)
+                .totalAmount(new BigDecimal("119.94"))
+                .status(Order.OrderStatus.CONFIRMED)
+                .createdAt(createdAt)
+                .updatedAt(createdAt.plusMinutes(5))
+                .build();
+    }
+}
@@ -0,0 +1,177 @@
+package com.dinidu.restapi.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Where {@link ReplicaRoutingDataSource} sends connections, against pools that hand out stub
+ * connections named after the pool and report a configurable replication lag.
+ */
+class ReplicaRoutingDataSourceTests {
+    private final StubPool primary = new StubPool("primary");
+    private final StubPool replica1 = new StubPool("replica-1");
+    private final StubPool replica2 = new StubPool("replica-2");
+    private final ReplicaRoutingDataSource routing = routing(ReplicaRoutingProperties.Selection.ROUND_ROBIN);
+
+    @AfterEach
+    void clearTransactionState() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        ReplicaRoutingDataSource.endPrimaryReads();
+    }
+
+    @Test
+    void writesGoToThePrimary() throws SQLException {
+        assertThat(connect()).isEqualTo("primary");
+    }
+
+    @Test
+    void readOnlyTransactionsRotateOverTheReplicas() throws SQLException {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertThat(List.of(connect(), connect(), connect())).containsExactly("replica-1", "replica-2", "replica-1");
+    }
+
+    @Test
+    void laggingReplicasLeaveTheRotationUntilTheyCatchUp() throws SQLException {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        replica1.lagSeconds = 6;
+        routing.checkReplicas();
+        assertThat(List.of(connect(), connect())).containsOnly("replica-2");
+
+        replica2.lagSeconds = 30;
+        routing.checkReplicas();
+        assertThat(connect()).isEqualTo("primary");
+
+        replica1.lagSeconds = 0.5;
+        routing.checkReplicas();
+        assertThat(connect()).isEqualTo("replica-1");
+    }
+
+    @Test
+    void unreachableReplicasFallBackToThePrimary() throws SQLException {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        replica1.down = true;
+        replica2.down = true;
+
+        assertThat(connect()).isEqualTo("primary");
+        assertThat(connect()).isEqualTo("primary");
+
+        replica1.down = false;
+        routing.checkReplicas();
+        assertThat(connect()).isEqualTo("replica-1");
+    }
+
+    @Test
+    void readFromPrimaryOverridesReadOnlyTransactions() throws SQLException {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        String nested = ReplicaRoutingDataSource.readFromPrimary(() -> {
+            try {
+                return ReplicaRoutingDataSource.readFromPrimary(this::connectUnchecked) + "," + connect();
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        assertThat(nested).isEqualTo("primary,primary");
+        assertThat(connect()).startsWith("replica-");
+    }
+
+    @Test
+    void primaryReadsLastUntilEnded() throws SQLException {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        ReplicaRoutingDataSource.startPrimaryReads();
+        assertThat(ReplicaRoutingDataSource.readFromPrimary(this::connectUnchecked)).isEqualTo("primary");
+        assertThat(connect()).isEqualTo("primary");
+
+        ReplicaRoutingDataSource.endPrimaryReads();
+        assertThat(connect()).startsWith("replica-");
+    }
+
+    @Test
+    void leastLoadedPicksAnAvailableReplica() throws SQLException {
+        ReplicaRoutingDataSource leastLoaded = routing(ReplicaRoutingProperties.Selection.LEAST_LOADED);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        replica1.lagSeconds = 60;
+        leastLoaded.checkReplicas();
+
+        try (Connection connection = leastLoaded.getConnection()) {
+            assertThat(connection.toString()).isEqualTo("replica-2");
+        }
+    }
+
+    private ReplicaRoutingDataSource routing(ReplicaRoutingProperties.Selection selection) {
+        ReplicaRoutingProperties properties = new ReplicaRoutingProperties();
+        properties.setSelection(selection);
+        properties.setMaxLag(Duration.ofSeconds(5));
+        return new ReplicaRoutingDataSource(primary, List.of(replica1, replica2), properties, new SimpleMeterRegistry());
+    }
+
+    private String connect() throws SQLException {
+        try (Connection connection = routing.getConnection()) {
+            return connection.toString();
+        }
+    }
+
+    private String connectUnchecked() {
+        try {
+            return connect();
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * A pool that is never started: connections are stubs whose {@code toString} is the pool
+     * name, and the lag query answers {@code lagSeconds}.
+     */
+    private static final class StubPool extends HikariDataSource {
+        private volatile double lagSeconds;
+        private volatile boolean down;
+
+        StubPool(String name) {
+            setPoolName(name);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            if (down) {
+                throw new SQLException(getPoolName() + " is down");
+            }
+            return stub(Connection.class, (proxy, method, args) -> switch (method.getName()) {
+                case "createStatement" -> stub(Statement.class, (statement, statementMethod, statementArgs) ->
+                        switch (statementMethod.getName()) {
+                            case "executeQuery" -> stub(ResultSet.class, (resultSet, resultSetMethod, resultSetArgs) ->
+                                    switch (resultSetMethod.getName()) {
+                                        case "next" -> true;
+                                        case "getDouble" -> lagSeconds;
+                                        default -> null;
+                                    });
+                            default -> null;
+                        });
+                case "toString" -> getPoolName();
+                default -> null;
+            });
+        }
+
+        private static <T> T stub(Class<T> type, InvocationHandler handler) {
+            return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler));
+        }
+    }
+}
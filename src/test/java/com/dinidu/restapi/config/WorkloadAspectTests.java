@@ -0,0 +1,104 @@
+package com.dinidu.restapi.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.search.Search;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * {@link WorkloadAspect} on the real service proxies, with the workload pools enabled and a
+ * single reporting slot, against the dataset in {@code db/query-count-seed.sql}.
+ */
+@SpringBootTest(properties = {
+        "app.datasource.workloads.enabled=true",
+        "app.datasource.workloads.reporting.max-concurrent-calls=1",
+        "app.datasource.workloads.reporting.max-wait=100ms"})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Sql("/db/query-count-seed.sql")
+class WorkloadAspectTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private WorkloadBulkheads bulkheads;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void annotatedMethodsRunInTheirWorkloadsPool() throws Exception {
+        long readsBefore = bulkheadEntries("reads");
+        long reportingBefore = bulkheadEntries("reporting");
+        long orderWritesBefore = bulkheadEntries("order-writes");
+
+        mockMvc.perform(get("/products/1")).andExpect(status().isOk());
+        mockMvc.perform(get("/products/search").param("name", "Widget")).andExpect(status().isOk());
+        mockMvc.perform(get("/orders/1")).andExpect(status().isOk());
+        mockMvc.perform(post("/orders").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"userId\":1,\"orderItems\":[{\"productId\":1,\"quantity\":1,\"unitPrice\":10.00}]}"))
+                .andExpect(status().isCreated());
+
+        assertThat(bulkheadEntries("reads") - readsBefore).isGreaterThanOrEqualTo(2);
+        assertThat(bulkheadEntries("reporting") - reportingBefore).isGreaterThanOrEqualTo(1);
+        assertThat(bulkheadEntries("order-writes") - orderWritesBefore).isGreaterThanOrEqualTo(1);
+        assertThat(poolAcquisitions("reporting")).isPositive();
+        assertThat(poolAcquisitions("order-writes")).isPositive();
+    }
+
+    @Test
+    void fullBulkheadAnswers503WithoutTouchingOtherWorkloads() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> entered = new CompletableFuture<>();
+        Thread holder = new Thread(() -> {
+            try (WorkloadBulkheads.Permit permit = bulkheads.enter(Workload.Type.REPORTING)) {
+                entered.complete(null);
+                release.await();
+            } catch (Exception e) {
+                entered.completeExceptionally(e);
+            }
+        });
+        holder.start();
+        entered.get(5, TimeUnit.SECONDS);
+        try {
+            mockMvc.perform(get("/products/search").param("name", "Widget"))
+                    .andExpect(status().isServiceUnavailable())
+                    .andExpect(header().exists(HttpHeaders.RETRY_AFTER));
+            mockMvc.perform(get("/products/1")).andExpect(status().isOk());
+        } finally {
+            release.countDown();
+            holder.join();
+        }
+
+        mockMvc.perform(get("/products/search").param("name", "Widget")).andExpect(status().isOk());
+    }
+
+    private long bulkheadEntries(String workload) {
+        return meterRegistry.get("workload.bulkhead.wait").tag("workload", workload).timer().count();
+    }
+
+    private long poolAcquisitions(String pool) {
+        return Search.in(meterRegistry).name("hikaricp.connections.acquire").tag("pool", pool).timers().stream()
+                .mapToLong(Timer::count)
+                .sum();
+    }
+}
@@ -0,0 +1,109 @@
+package com.dinidu.restapi.config;
+
+import com.dinidu.restapi.exceptions.ServiceUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Admission to {@link WorkloadBulkheads} with two order-write slots and a short wait. Other
+ * callers hold their permits on threads of their own, as a thread already inside a workload is
+ * never held back.
+ */
+class WorkloadBulkheadsTests {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final WorkloadBulkheads bulkheads = new WorkloadBulkheads(properties(), meterRegistry);
+
+    @Test
+    void rejectsCallersOnceThePermitsAreExhausted() throws Exception {
+        WorkloadBulkheads.Permit first = enterElsewhere(Workload.Type.ORDER_WRITES);
+        WorkloadBulkheads.Permit second = enterElsewhere(Workload.Type.ORDER_WRITES);
+
+        assertThatThrownBy(() -> bulkheads.enter(Workload.Type.ORDER_WRITES))
+                .isInstanceOf(ServiceUnavailableException.class)
+                .hasMessageContaining("order-writes");
+        assertThat(meterRegistry.get("workload.bulkhead.rejected").tag("workload", "order-writes").counter().count())
+                .isEqualTo(1);
+        assertThat(active(Workload.Type.ORDER_WRITES)).isEqualTo(2);
+
+        // other workloads are unaffected
+        bulkheads.enter(Workload.Type.READS).close();
+
+        first.close();
+        try (WorkloadBulkheads.Permit permit = bulkheads.enter(Workload.Type.ORDER_WRITES)) {
+            assertThat(WorkloadContext.current()).isEqualTo(Workload.Type.ORDER_WRITES);
+        }
+        assertThat(WorkloadContext.current()).isNull();
+        second.close();
+        assertThat(active(Workload.Type.ORDER_WRITES)).isZero();
+    }
+
+    @Test
+    void waitingCallersAreAdmittedWhenAPermitFreesUp() throws Exception {
+        WorkloadBulkheads.Permit first = enterElsewhere(Workload.Type.ORDER_WRITES);
+        WorkloadBulkheads.Permit second = enterElsewhere(Workload.Type.ORDER_WRITES);
+
+        CompletableFuture.delayedExecutor(50, TimeUnit.MILLISECONDS).execute(first::close);
+        try (WorkloadBulkheads.Permit permit = bulkheads.enter(Workload.Type.ORDER_WRITES)) {
+            assertThat(active(Workload.Type.ORDER_WRITES)).isEqualTo(2);
+        }
+        second.close();
+    }
+
+    @Test
+    void callersInsideAWorkloadKeepTheirSlot() throws Exception {
+        WorkloadBulkheads.Permit other = enterElsewhere(Workload.Type.ORDER_WRITES);
+
+        try (WorkloadBulkheads.Permit outer = bulkheads.enter(Workload.Type.ORDER_WRITES);
+             WorkloadBulkheads.Permit nested = bulkheads.enter(Workload.Type.ORDER_WRITES)) {
+            assertThat(active(Workload.Type.ORDER_WRITES)).isEqualTo(2);
+        }
+        other.close();
+    }
+
+    /**
+     * Takes a permit on a thread of its own, which holds it until the returned permit is closed.
+     */
+    private WorkloadBulkheads.Permit enterElsewhere(Workload.Type type) throws Exception {
+        CompletableFuture<Void> entered = new CompletableFuture<>();
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = new Thread(() -> {
+            try (WorkloadBulkheads.Permit permit = bulkheads.enter(type)) {
+                entered.complete(null);
+                release.await();
+            } catch (Exception e) {
+                entered.completeExceptionally(e);
+            }
+        });
+        holder.start();
+        entered.get(5, TimeUnit.SECONDS);
+        return () -> {
+            release.countDown();
+            try {
+                holder.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+    }
+
+    private double active(Workload.Type type) {
+        return meterRegistry.get("workload.bulkhead.active")
+                .tag("workload", type.name().toLowerCase().replace('_', '-'))
+                .gauge().value();
+    }
+
+    private static WorkloadPoolProperties properties() {
+        WorkloadPoolProperties properties = new WorkloadPoolProperties();
+        properties.setEnabled(true);
+        properties.setOrderWrites(new WorkloadPoolProperties.Pool(2, Duration.ofSeconds(1), 2, Duration.ofMillis(500)));
+        return properties;
+    }
+}
@@ -0,0 +1,138 @@
+package com.dinidu.restapi.controllers;
+
+import com.dinidu.restapi.dtos.OrderDTO;
+import com.dinidu.restapi.dtos.OrderItemDTO;
+import com.dinidu.restapi.dtos.OrderTicketDTO;
+import com.dinidu.restapi.services.AsyncOrderService;
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * {@code POST /orders} with {@code Prefer: respond-async} against the dataset in
+ * {@code db/query-count-seed.sql}: the 202 and its tracking resource, the final ticket states and
+ * retries with the same {@code Idempotency-Key}.
+ */
+@SpringBootTest(properties = "app.orders.async.enabled=true")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Sql("/db/query-count-seed.sql")
+class AsyncOrderAcceptanceTests {
+    private static final String ORDER = "{\"userId\":1,\"orderItems\":[{\"productId\":1,\"quantity\":1,\"unitPrice\":10.00}]}";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private AsyncOrderService asyncOrderService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void acceptsWith202AndATrackingLocation() throws Exception {
+        MvcResult accepted = mockMvc.perform(submit(ORDER).header("Idempotency-Key", "async-accept"))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Preference-Applied", "respond-async"))
+                .andExpect(jsonPath("$.metadata.status").value("ACCEPTED"))
+                .andReturn();
+        String trackingId = JsonPath.read(accepted.getResponse().getContentAsString(), "$.metadata.trackingId");
+        assertThat(accepted.getResponse().getHeader(HttpHeaders.LOCATION)).endsWith("/orders/tracking/" + trackingId);
+
+        assertThat(await(trackingId).getStatus()).isEqualTo(OrderTicketDTO.TicketStatus.COMPLETED);
+        mockMvc.perform(get("/orders/tracking/{trackingId}", trackingId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.status").value("COMPLETED"))
+                .andExpect(jsonPath("$.data.order.orderNumber").isNotEmpty())
+                .andExpect(jsonPath("$.data.error").doesNotExist());
+    }
+
+    @Test
+    void reportsFailuresLikeTheSynchronousEndpoint() {
+        OrderTicketDTO outOfStock = await(asyncOrderService.submit(order(3L, 1000), null).getTrackingId());
+        OrderTicketDTO unknownProduct = await(asyncOrderService.submit(order(99L, 1), null).getTrackingId());
+
+        assertThat(outOfStock.getStatus()).isEqualTo(OrderTicketDTO.TicketStatus.FAILED);
+        assertThat(outOfStock.getOrder()).isNull();
+        assertThat(outOfStock.getError().getStatus()).isEqualTo(400);
+        assertThat(outOfStock.getError().getError()).isEqualTo("Insufficient Stock");
+        assertThat(unknownProduct.getError().getStatus()).isEqualTo(404);
+        assertThat(unknownProduct.getError().getError()).isEqualTo("Resource Not Found");
+        assertThat(jdbcTemplate.queryForObject("SELECT stock_quantity FROM products WHERE id = 3", Integer.class))
+                .isEqualTo(5);
+    }
+
+    @Test
+    void retryWithTheSameIdempotencyKeyGetsTheSameTicket() {
+        OrderTicketDTO first = asyncOrderService.submit(order(1L, 1), "async-retry");
+        OrderTicketDTO retry = asyncOrderService.submit(order(1L, 1), "async-retry");
+
+        assertThat(retry.getTrackingId()).isEqualTo(first.getTrackingId());
+        assertThat(await(first.getTrackingId()).getStatus()).isEqualTo(OrderTicketDTO.TicketStatus.COMPLETED);
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM orders", Long.class)).isEqualTo(4);
+    }
+
+    @Test
+    void retryAfterAFailureIsAttemptedAgain() {
+        OrderTicketDTO failed = await(asyncOrderService.submit(order(3L, 1000), "async-failed").getTrackingId());
+        OrderTicketDTO retry = asyncOrderService.submit(order(3L, 1000), "async-failed");
+
+        assertThat(failed.getStatus()).isEqualTo(OrderTicketDTO.TicketStatus.FAILED);
+        assertThat(retry.getTrackingId()).isNotEqualTo(failed.getTrackingId());
+    }
+
+    @Test
+    void sameIdempotencyKeyWithADifferentBodyIsRejected() throws Exception {
+        asyncOrderService.submit(order(1L, 1), "async-reuse");
+
+        mockMvc.perform(submit(ORDER.replace("\"quantity\":1", "\"quantity\":2")).header("Idempotency-Key", "async-reuse"))
+                .andExpect(status().isUnprocessableEntity());
+    }
+
+    private MockHttpServletRequestBuilder submit(String body) {
+        return post("/orders")
+                .header("Prefer", "respond-async")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body);
+    }
+
+    private OrderTicketDTO await(String trackingId) {
+        try {
+            return asyncOrderService.awaitTicket(trackingId).orElseThrow().get(10, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            throw new AssertionError("Ticket " + trackingId + " did not complete", e);
+        }
+    }
+
+    private static OrderDTO order(Long productId, int quantity) {
+        return OrderDTO.builder()
+                .userId(1L)
+                .orderItems(List.of(OrderItemDTO.builder()
+                        .productId(productId)
+                        .quantity(quantity)
+                        .unitPrice(new BigDecimal("10.00"))
+                        .build()))
+                .build();
+    }
+}
@@ -0,0 +1,98 @@
+package com.dinidu.restapi.controllers;
+
+import com.dinidu.restapi.web.ConcurrencyLimitInterceptor;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Rejection by {@link ConcurrencyLimitInterceptor} with both limits pinned to one request. The
+ * test occupies that permit itself, as if another request were still in flight.
+ */
+@SpringBootTest(properties = {
+        "app.concurrency-limit.enabled=true",
+        "app.concurrency-limit.read.initial=1", "app.concurrency-limit.read.min=1", "app.concurrency-limit.read.max=1",
+        "app.concurrency-limit.write.initial=1", "app.concurrency-limit.write.min=1", "app.concurrency-limit.write.max=1",
+        "app.concurrency-limit.retry-after=3s"})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Sql("/db/query-count-seed.sql")
+class ConcurrencyLimitTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ConcurrencyLimitInterceptor concurrencyLimitInterceptor;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void readsOverTheLimitAreRejectedWithRetryAfter() throws Exception {
+        double rejectedBefore = rejected("read");
+
+        MockHttpServletRequest inFlight = new MockHttpServletRequest("GET", "/products/2");
+        holdPermit(inFlight);
+        try {
+            mockMvc.perform(get("/products/1"))
+                    .andExpect(status().isServiceUnavailable())
+                    .andExpect(header().string(HttpHeaders.RETRY_AFTER, "3"))
+                    .andExpect(jsonPath("$.status").value(503));
+            // writes have their own limit
+            mockMvc.perform(post("/orders/cancel").contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"orderIds\":[1]}"))
+                    .andExpect(status().isOk());
+        } finally {
+            releasePermit(inFlight);
+        }
+
+        mockMvc.perform(get("/products/1")).andExpect(status().isOk());
+        assertThat(rejected("read") - rejectedBefore).isEqualTo(1);
+    }
+
+    @Test
+    void writesOverTheLimitAreRejectedWithRetryAfter() throws Exception {
+        MockHttpServletRequest inFlight = new MockHttpServletRequest("PUT", "/orders/2/status");
+        holdPermit(inFlight);
+        try {
+            mockMvc.perform(post("/orders/cancel").contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"orderIds\":[1]}"))
+                    .andExpect(status().isServiceUnavailable())
+                    .andExpect(header().string(HttpHeaders.RETRY_AFTER, "3"));
+            mockMvc.perform(get("/orders/1").param("fields", "id,status"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.data.status").value("PENDING"));
+        } finally {
+            releasePermit(inFlight);
+        }
+    }
+
+    private void holdPermit(MockHttpServletRequest request) {
+        assertThat(concurrencyLimitInterceptor.preHandle(request, new MockHttpServletResponse(), null)).isTrue();
+    }
+
+    private void releasePermit(MockHttpServletRequest request) {
+        concurrencyLimitInterceptor.afterCompletion(request, new MockHttpServletResponse(), null, null);
+    }
+
+    private double rejected(String workload) {
+        return meterRegistry.get("http.server.concurrency.rejected").tag("workload", workload).counter().count();
+    }
+}
@@ -0,0 +1,135 @@
+package com.dinidu.restapi.controllers;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * {@code If-None-Match} on the single-resource reads and {@code If-Match} on their updates,
+ * against the dataset in {@code db/query-count-seed.sql}.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Sql("/db/query-count-seed.sql")
+class ConditionalRequestTests {
+    private static final String STALE_ETAG = "\"1-0\"";
+    private static final String PRODUCT = "{\"name\":\"Widget A\",\"description\":\"Updated\",\"price\":10.00,"
+            + "\"stockQuantity\":100,\"status\":\"AVAILABLE\"}";
+    private static final String USER = "{\"username\":\"johndoe\",\"email\":\"john.doe@example.com\","
+            + "\"fullName\":\"John Q. Doe\",\"status\":\"ACTIVE\"}";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @ParameterizedTest
+    @ValueSource(strings = {"/products/1", "/users/1", "/orders/1"})
+    void currentETagAnswersNotModified(String path) throws Exception {
+        String etag = etag(get(path));
+
+        mockMvc.perform(get(path).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag));
+        mockMvc.perform(get(path).header(HttpHeaders.IF_NONE_MATCH, "W/" + etag))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get(path).header(HttpHeaders.IF_NONE_MATCH, STALE_ETAG))
+                .andExpect(status().isOk());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"/products/1", "/users/1", "/orders/1"})
+    void fieldSelectionsHaveTheirOwnETag(String path) throws Exception {
+        String full = etag(get(path));
+        String selected = etag(get(path).param("fields", "id,createdAt"));
+        String reordered = etag(get(path).param("fields", "createdAt, id"));
+
+        assertThat(selected).isNotEqualTo(full).startsWith("\"").endsWith("\"");
+        assertThat(reordered).isEqualTo(selected);
+        mockMvc.perform(get(path).param("fields", "id,createdAt").header(HttpHeaders.IF_NONE_MATCH, full))
+                .andExpect(status().isOk());
+        mockMvc.perform(get(path).param("fields", "id,createdAt").header(HttpHeaders.IF_NONE_MATCH, selected))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get(path).header(HttpHeaders.IF_NONE_MATCH, selected))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void productUpdateChecksIfMatch() throws Exception {
+        String etag = etag(get("/products/1"));
+
+        mockMvc.perform(productUpdate().header(HttpHeaders.IF_MATCH, STALE_ETAG))
+                .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(productUpdate().header(HttpHeaders.IF_MATCH, "W/" + etag))
+                .andExpect(status().isPreconditionFailed());
+        String updated = etag(productUpdate().header(HttpHeaders.IF_MATCH, etag));
+
+        assertThat(updated).isNotEqualTo(etag);
+        mockMvc.perform(productUpdate().header(HttpHeaders.IF_MATCH, etag))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    void userUpdateChecksIfMatch() throws Exception {
+        String etag = etag(get("/users/1"));
+
+        mockMvc.perform(userUpdate().header(HttpHeaders.IF_MATCH, STALE_ETAG))
+                .andExpect(status().isPreconditionFailed());
+        String updated = etag(userUpdate().header(HttpHeaders.IF_MATCH, etag));
+
+        assertThat(updated).isNotEqualTo(etag);
+        mockMvc.perform(userUpdate().header(HttpHeaders.IF_MATCH, etag))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    void orderStatusUpdateChecksIfMatch() throws Exception {
+        String etag = etag(get("/orders/1"));
+
+        mockMvc.perform(statusUpdate("CONFIRMED").header(HttpHeaders.IF_MATCH, STALE_ETAG))
+                .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(get("/orders/1")).andExpect(jsonPath("$.data.status").value("PENDING"));
+
+        String updated = etag(statusUpdate("CONFIRMED").header(HttpHeaders.IF_MATCH, etag));
+
+        assertThat(updated).isNotEqualTo(etag);
+        mockMvc.perform(statusUpdate("SHIPPED").header(HttpHeaders.IF_MATCH, etag))
+                .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(get("/orders/1")).andExpect(jsonPath("$.data.status").value("CONFIRMED"));
+    }
+
+    private String etag(MockHttpServletRequestBuilder request) throws Exception {
+        String etag = mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(etag).isNotNull();
+        return etag;
+    }
+
+    private static MockHttpServletRequestBuilder productUpdate() {
+        return put("/products/1").contentType(MediaType.APPLICATION_JSON).content(PRODUCT);
+    }
+
+    private static MockHttpServletRequestBuilder userUpdate() {
+        return put("/users/1").contentType(MediaType.APPLICATION_JSON).content(USER);
+    }
+
+    private static MockHttpServletRequestBuilder statusUpdate(String status) {
+        return put("/orders/1/status").param("status", status);
+    }
+}
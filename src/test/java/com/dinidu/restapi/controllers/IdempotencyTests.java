@@ -0,0 +1,160 @@
+package com.dinidu.restapi.controllers;
+
+import com.dinidu.restapi.services.IdempotencyService;
+import com.jayway.jsonpath.JsonPath;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * {@code POST /orders} with an {@code Idempotency-Key} against the dataset in
+ * {@code db/query-count-seed.sql}. At most two responses are kept in memory, so the database
+ * copy is exercised as well.
+ */
+@SpringBootTest(properties = "app.idempotency.max-cached-keys=2")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Sql("/db/query-count-seed.sql")
+class IdempotencyTests {
+    private static final String ORDER = "{\"userId\":1,\"orderItems\":[{\"productId\":1,\"quantity\":1,\"unitPrice\":10.00}]}";
+    private static final String OTHER_ORDER = ORDER.replace("\"quantity\":1", "\"quantity\":2");
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void forgetResponsesOfEarlierTests() {
+        // the seed reuses order ids, so a response remembered by another test would replay the wrong order
+        idempotencyService.evictCachedResponses();
+    }
+
+    @Test
+    void retryReplaysTheFirstResponse() throws Exception {
+        long created = orderId(placeOrder(ORDER, "replay").andExpect(status().isCreated())
+                .andExpect(header().doesNotExist("Idempotent-Replayed")));
+
+        long replayed = orderId(placeOrder(ORDER, "replay").andExpect(status().isCreated())
+                .andExpect(header().string("Idempotent-Replayed", "true")));
+
+        assertThat(replayed).isEqualTo(created);
+        assertThat(orderCount()).isEqualTo(4);
+        assertThat(stock(1L)).isEqualTo(99);
+    }
+
+    @Test
+    void retryIsReplayedFromTheDatabaseOnceEvictedFromMemory() throws Exception {
+        long created = orderId(placeOrder(ORDER, "from-database").andExpect(status().isCreated()));
+        idempotencyService.evictCachedResponses();
+
+        long replayed = orderId(placeOrder(ORDER, "from-database").andExpect(header().string("Idempotent-Replayed", "true")));
+
+        assertThat(replayed).isEqualTo(created);
+        assertThat(orderCount()).isEqualTo(4);
+    }
+
+    @Test
+    void sameKeyWithADifferentBodyIsRejected() throws Exception {
+        placeOrder(ORDER, "reuse").andExpect(status().isCreated());
+
+        placeOrder(OTHER_ORDER, "reuse").andExpect(status().isUnprocessableEntity());
+        idempotencyService.evictCachedResponses();
+        placeOrder(OTHER_ORDER, "reuse").andExpect(status().isUnprocessableEntity());
+
+        assertThat(orderCount()).isEqualTo(4);
+        assertThat(stock(1L)).isEqualTo(99);
+    }
+
+    @Test
+    void memoryHoldsAtMostTheConfiguredNumberOfKeys() throws Exception {
+        List<Long> created = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            created.add(orderId(placeOrder(ORDER, "bounded-" + i).andExpect(status().isCreated())));
+        }
+
+        assertThat(cachedResponsesEventually(2)).isLessThanOrEqualTo(2);
+        for (int i = 0; i < 5; i++) {
+            assertThat(orderId(placeOrder(ORDER, "bounded-" + i).andExpect(header().string("Idempotent-Replayed", "true"))))
+                    .isEqualTo(created.get(i));
+        }
+        assertThat(orderCount()).isEqualTo(8);
+    }
+
+    @Test
+    void expiredKeyIsProcessedAgain() throws Exception {
+        long first = orderId(placeOrder(ORDER, "expired").andExpect(status().isCreated()));
+        idempotencyService.evictCachedResponses();
+        jdbcTemplate.update("UPDATE idempotency_keys SET expires_at = CURRENT_TIMESTAMP - INTERVAL '1 minute' "
+                + "WHERE idempotency_key = 'expired'");
+
+        long second = orderId(placeOrder(OTHER_ORDER, "expired").andExpect(status().isCreated())
+                .andExpect(header().doesNotExist("Idempotent-Replayed")));
+
+        assertThat(second).isNotEqualTo(first);
+        assertThat(orderCount()).isEqualTo(5);
+        assertThat(orderId(placeOrder(OTHER_ORDER, "expired").andExpect(header().string("Idempotent-Replayed", "true"))))
+                .isEqualTo(second);
+    }
+
+    private ResultActions placeOrder(String body, String key) throws Exception {
+        return mockMvc.perform(post("/orders")
+                .header("Idempotency-Key", key)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body));
+    }
+
+    private static long orderId(ResultActions result) throws Exception {
+        MvcResult mvcResult = result.andReturn();
+        return ((Number) JsonPath.read(mvcResult.getResponse().getContentAsString(), "$.data.id")).longValue();
+    }
+
+    /**
+     * Caffeine applies size evictions asynchronously, shortly after the writes.
+     */
+    private double cachedResponsesEventually(int limit) throws InterruptedException {
+        double size = cachedResponses();
+        for (int attempt = 0; attempt < 50 && size > limit; attempt++) {
+            Thread.sleep(100);
+            size = cachedResponses();
+        }
+        return size;
+    }
+
+    private double cachedResponses() {
+        return meterRegistry.get("cache.size").tag("cache", "idempotency.responses").gauge().value();
+    }
+
+    private long orderCount() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM orders", Long.class);
+    }
+
+    private int stock(Long productId) {
+        return jdbcTemplate.queryForObject("SELECT stock_quantity FROM products WHERE id = ?", Integer.class, productId);
+    }
+}
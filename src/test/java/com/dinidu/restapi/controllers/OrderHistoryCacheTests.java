@@ -0,0 +1,81 @@
+package com.dinidu.restapi.controllers;
+
+import com.dinidu.restapi.events.UsersChangedEvent;
+import com.dinidu.restapi.services.OrderHistoryCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Product changes against a warm history of user 1 from {@code db/query-count-seed.sql}, whose
+ * orders have lines for products 1 and 2.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Sql("/db/query-count-seed.sql")
+class OrderHistoryCacheTests {
+    private static final String PRODUCT_1_LINE_NAMES = "$.data[*].orderItems[?(@.productId == 1)].productName";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private OrderHistoryCache orderHistoryCache;
+
+    @BeforeEach
+    void warmHistory() throws Exception {
+        // the context, and with it the cache, outlives the reseeded rows
+        orderHistoryCache.onUsersChanged(UsersChangedEvent.unspecified());
+        mockMvc.perform(get("/orders/user/1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath(PRODUCT_1_LINE_NAMES, hasSize(2)))
+                .andExpect(jsonPath(PRODUCT_1_LINE_NAMES, everyItem(is("Widget A"))));
+    }
+
+    @Test
+    void renamingAProductDropsTheHistoriesThatMentionIt() throws Exception {
+        updateProduct1("Widget Z", 100);
+
+        mockMvc.perform(get("/orders/user/1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath(PRODUCT_1_LINE_NAMES, hasSize(2)))
+                .andExpect(jsonPath(PRODUCT_1_LINE_NAMES, everyItem(is("Widget Z"))));
+    }
+
+    @Test
+    void otherProductChangesKeepTheHistory() throws Exception {
+        // renamed behind the application's back: only a reload could pick this up
+        jdbcTemplate.update("UPDATE products SET name = 'Widget Y' WHERE id = 1");
+        updateProduct1("Widget Y", 90);
+
+        mockMvc.perform(get("/orders/user/1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath(PRODUCT_1_LINE_NAMES, everyItem(is("Widget A"))));
+    }
+
+    private void updateProduct1(String name, int stockQuantity) throws Exception {
+        String body = "{\"name\":\"" + name + "\",\"description\":\"First widget\",\"price\":10.00,"
+                + "\"stockQuantity\":" + stockQuantity + ",\"status\":\"AVAILABLE\"}";
+        mockMvc.perform(put("/products/1").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isOk());
+    }
+}
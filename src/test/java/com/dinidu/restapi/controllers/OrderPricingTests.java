@@ -0,0 +1,48 @@
+package com.dinidu.restapi.controllers;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * {@code POST /orders} with totals beyond the {@code DECIMAL(10,2)} amount columns, against the
+ * dataset in {@code db/query-count-seed.sql}.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Sql("/db/query-count-seed.sql")
+class OrderPricingTests {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void ordersTooLargeToPriceAreUnprocessable() throws Exception {
+        jdbcTemplate.update("UPDATE products SET stock_quantity = 2000000 WHERE id = 3");
+
+        // 1,100,000 x 99.99 does not fit 8 integer digits
+        mockMvc.perform(post("/orders").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"userId\":1,\"orderItems\":[{\"productId\":3,\"quantity\":1100000,\"unitPrice\":99.99}]}"))
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(jsonPath("$.status").value(422))
+                .andExpect(jsonPath("$.error").value("Price Out Of Range"));
+
+        assertThat(jdbcTemplate.queryForObject("SELECT stock_quantity FROM products WHERE id = 3", Integer.class))
+                .isEqualTo(2000000);
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM orders", Long.class)).isEqualTo(3);
+    }
+}
@@ -0,0 +1,507 @@
+package com.dinidu.restapi.controllers;
+
+import com.dinidu.restapi.events.ProductChangedEvent;
+import com.dinidu.restapi.events.UsersChangedEvent;
+import com.dinidu.restapi.services.IdempotencyService;
+import com.dinidu.restapi.services.OrderHistoryCache;
+import com.dinidu.restapi.services.ProductCatalog;
+import com.dinidu.restapi.web.ProductPageCache;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultMatcher;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Guards the number of database round trips per endpoint against the fixed dataset in
+ * {@code db/query-count-seed.sql}. Each budget is an upper bound; a change that needs more
+ * statements than listed here fails the build and has to justify raising the number.
+ * Statements are counted at the JDBC level, so plain SQL (JdbcClient) counts like Hibernate's,
+ * and every cache is emptied before each test; tests that rely on a cache fill it themselves.
+ * Set-based writes also check the rows, versions and outbox events they leave behind, since a
+ * statement that fits its budget can still miss part of the change.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Sql("/db/query-count-seed.sql")
+class QueryCountRegressionTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private StatementCounter statementCounter;
+
+    @Autowired
+    private ProductPageCache productPageCache;
+
+    @Autowired
+    private OrderHistoryCache orderHistoryCache;
+
+    @Autowired
+    private ProductCatalog productCatalog;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+
+        productPageCache.onProductChanged(ProductChangedEvent.unspecified());
+        orderHistoryCache.onUsersChanged(UsersChangedEvent.unspecified());
+        productCatalog.reload();
+        idempotencyService.evictCachedResponses();
+    }
+
+    // ---- orders ----
+
+    @Test
+    void getAllOrders() throws Exception {
+        // order projection page + one query for all of its lines
+        expectQueries(2, 0, 0, get("/orders"), status().isOk());
+    }
+
+    @Test
+    void getAllOrdersWithoutItems() throws Exception {
+        // lines are not loaded when the fieldset leaves them out
+        expectQueries(1, 0, 0, get("/orders").param("fields", "id,orderNumber,status,totalAmount"), status().isOk());
+    }
+
+    @Test
+    void getOrderById() throws Exception {
+        expectQueries(2, 0, 0, get("/orders/1"), status().isOk());
+    }
+
+    @Test
+    void getOrdersByIds() throws Exception {
+        // one IN-list query for the orders, one for all of their lines
+        expectQueries(2, 0, 0, get("/orders/batch").param("ids", "3,1,99"), status().isOk());
+    }
+
+    @Test
+    void getOrderByIdNotModified() throws Exception {
+        String etag = currentETag("/orders/1");
+        expectQueries(1, 0, 0, get("/orders/1").header(HttpHeaders.IF_NONE_MATCH, etag), status().isNotModified());
+    }
+
+    @Test
+    void getOrderByOrderNumber() throws Exception {
+        expectQueries(2, 0, 0, get("/orders/order-number/ORD-SEED-1"), status().isOk());
+    }
+
+    @Test
+    void getOrdersByUserId() throws Exception {
+        expectQueries(2, 0, 0, get("/orders/user/1"), status().isOk());
+    }
+
+    @Test
+    void getOrdersByUserIdServedFromHistoryCache() throws Exception {
+        mockMvc.perform(get("/orders/user/1")).andExpect(status().isOk());
+        expectQueries(0, 0, 0, get("/orders/user/1"), status().isOk());
+    }
+
+    @Test
+    void getOrdersByStatus() throws Exception {
+        expectQueries(2, 0, 0, get("/orders/status/PENDING"), status().isOk());
+    }
+
+    @ParameterizedTest(name = "POST /orders with {0} item(s)")
+    @ValueSource(ints = {1, 2, 3})
+    void createOrder(int items) throws Exception {
+        String orderItems = IntStream.rangeClosed(1, items)
+                .mapToObj(productId -> "{\"productId\":" + productId + ",\"quantity\":1,\"unitPrice\":1.00}")
+                .collect(Collectors.joining(","));
+        String body = "{\"userId\":1,\"orderItems\":[" + orderItems + "]}";
+
+        // user lookup, one lookup/insert/stock update per line, order insert, outbox event insert
+        expectQueries(3L * items + 3, items + 2, items,
+                post("/orders").contentType(MediaType.APPLICATION_JSON).content(body),
+                status().isCreated());
+    }
+
+    @Test
+    void createOrderReplayedByIdempotencyKey() throws Exception {
+        String body = "{\"userId\":1,\"orderItems\":[{\"productId\":1,\"quantity\":1,\"unitPrice\":1.00}]}";
+        mockMvc.perform(post("/orders").header("Idempotency-Key", "replay-1")
+                        .contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isCreated());
+
+        expectQueries(0, 0, 0,
+                post("/orders").header("Idempotency-Key", "replay-1")
+                        .contentType(MediaType.APPLICATION_JSON).content(body),
+                status().isCreated());
+    }
+
+    @Test
+    void getOrderEvents() throws Exception {
+        expectQueries(1, 0, 0, get("/orders/events").param("after", "0"), status().isOk());
+    }
+
+    @Test
+    void updateOrderStatus() throws Exception {
+        expectQueries(7, 1, 1, put("/orders/1/status").param("status", "CONFIRMED"), status().isOk());
+    }
+
+    @Test
+    void bulkUpdateOrderStatus() throws Exception {
+        String body = "{\"orderIds\":[1,2,3,99],\"status\":\"SHIPPED\"}";
+        // one UPDATE ... RETURNING with the outbox insert, one status lookup for the rejected ids
+        expectQueries(2, 0, 0,
+                put("/orders/status").contentType(MediaType.APPLICATION_JSON).content(body),
+                status().isOk());
+
+        assertThat(orderRows()).containsExactly("1 SHIPPED v1", "2 SHIPPED v1", "3 DELIVERED v0");
+        assertThat(orderEvents()).containsExactly("1 STATUS_CHANGED SHIPPED", "2 STATUS_CHANGED SHIPPED");
+    }
+
+    @Test
+    void bulkUpdateOrderStatusReportsEachOutcome() throws Exception {
+        String body = "{\"orderIds\":[1,3,99],\"status\":\"SHIPPED\"}";
+        mockMvc.perform(put("/orders/status").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data[0].outcome").value("UPDATED"))
+                .andExpect(jsonPath("$.data[1].outcome").value("INVALID_TRANSITION"))
+                .andExpect(jsonPath("$.data[1].currentStatus").value("DELIVERED"))
+                .andExpect(jsonPath("$.data[2].outcome").value("NOT_FOUND"));
+    }
+
+    @Test
+    void bulkUpdateOrderStatusByFilterSkipsIllegalTransitions() throws Exception {
+        String illegal = "{\"fromStatus\":\"DELIVERED\",\"createdBefore\":\"2999-01-01T00:00:00\","
+                + "\"status\":\"CONFIRMED\"}";
+        expectQueries(1, 0, 0,
+                put("/orders/status").contentType(MediaType.APPLICATION_JSON).content(illegal),
+                status().isOk());
+        mockMvc.perform(put("/orders/status").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"orderIds\":[3],\"status\":\"PENDING\"}"))
+                .andExpect(status().isBadRequest());
+
+        assertThat(orderRows()).containsExactly("1 PENDING v0", "2 CONFIRMED v0", "3 DELIVERED v0");
+        assertThat(orderEvents()).isEmpty();
+    }
+
+    @Test
+    void cancelOrder() throws Exception {
+        // order update, stock restoration and outbox insert in one statement
+        expectQueries(1, 0, 0, delete("/orders/1"), status().isOk());
+
+        assertThat(orderRows()).containsExactly("1 CANCELLED v1", "2 CONFIRMED v0", "3 DELIVERED v0");
+        assertThat(productRows()).containsExactly("1 stock 101 v1", "2 stock 102 v1", "3 stock 5 v0");
+        assertThat(orderEvents()).containsExactly("1 CANCELLED CANCELLED");
+
+        // a second cancel is rejected instead of restocking again
+        mockMvc.perform(delete("/orders/1")).andExpect(status().isBadRequest());
+        mockMvc.perform(delete("/orders/3")).andExpect(status().isBadRequest());
+        assertThat(productRows()).containsExactly("1 stock 101 v1", "2 stock 102 v1", "3 stock 5 v0");
+        assertThat(orderEvents()).hasSize(1);
+    }
+
+    @Test
+    void cancelOrders() throws Exception {
+        String body = "{\"orderIds\":[1,2,3,99]}";
+        expectQueries(2, 0, 0,
+                post("/orders/cancel").contentType(MediaType.APPLICATION_JSON).content(body),
+                status().isOk());
+
+        assertThat(orderRows()).containsExactly("1 CANCELLED v1", "2 CANCELLED v1", "3 DELIVERED v0");
+        assertThat(productRows()).containsExactly("1 stock 102 v1", "2 stock 102 v1", "3 stock 5 v0");
+        assertThat(orderEvents()).containsExactly("1 CANCELLED CANCELLED", "2 CANCELLED CANCELLED");
+    }
+
+    // ---- products ----
+
+    @Test
+    void getAllProducts() throws Exception {
+        expectQueries(1, 0, 0, get("/products"), status().isOk());
+    }
+
+    @Test
+    void getAllProductsServedFromPageCache() throws Exception {
+        mockMvc.perform(get("/products")).andExpect(status().isOk());
+        expectQueries(0, 0, 0, get("/products"), status().isOk());
+    }
+
+    @Test
+    void getAllProductsInAnotherOrderNotCached() throws Exception {
+        mockMvc.perform(get("/products").param("sort", "price,asc")).andExpect(status().isOk());
+        expectQueries(1, 0, 0, get("/products").param("sort", "price,asc"), status().isOk());
+    }
+
+    @Test
+    void getProductById() throws Exception {
+        expectQueries(1, 0, 0, get("/products/1"), status().isOk());
+    }
+
+    @Test
+    void getProductsByIds() throws Exception {
+        expectQueries(1, 0, 0, get("/products/batch").param("ids", "3,1,99"), status().isOk());
+    }
+
+    @Test
+    void getProductByIdNotModified() throws Exception {
+        String etag = currentETag("/products/1");
+        expectQueries(1, 0, 0, get("/products/1").header(HttpHeaders.IF_NONE_MATCH, etag), status().isNotModified());
+    }
+
+    @Test
+    void createProduct() throws Exception {
+        String body = "{\"name\":\"Gizmo\",\"price\":5.00,\"stockQuantity\":10}";
+        expectQueries(1, 1, 0,
+                post("/products").contentType(MediaType.APPLICATION_JSON).content(body),
+                status().isCreated());
+    }
+
+    @Test
+    void updateProduct() throws Exception {
+        String body = "{\"name\":\"Widget A\",\"description\":\"Renamed\",\"price\":11.00,"
+                + "\"stockQuantity\":90,\"status\":\"AVAILABLE\"}";
+        expectQueries(2, 0, 1,
+                put("/products/1").contentType(MediaType.APPLICATION_JSON).content(body),
+                status().isOk());
+    }
+
+    @Test
+    void deleteProduct() throws Exception {
+        // soft delete, then the catalog snapshot drops the product after commit
+        expectQueries(2, 0, 0, delete("/products/3"), status().isOk());
+    }
+
+    @Test
+    void searchProducts() throws Exception {
+        expectQueries(1, 0, 0, get("/products/search").param("name", "Widget"), status().isOk());
+    }
+
+    @Test
+    void getProductsByPriceRange() throws Exception {
+        expectQueries(1, 0, 0,
+                get("/products/price-range").param("minPrice", "1").param("maxPrice", "1000"),
+                status().isOk());
+    }
+
+    @Test
+    void getLowStockProducts() throws Exception {
+        expectQueries(1, 0, 0, get("/products/low-stock").param("threshold", "1000"), status().isOk());
+    }
+
+    // ---- users ----
+
+    @Test
+    void getAllUsers() throws Exception {
+        expectQueries(1, 0, 0, get("/users"), status().isOk());
+    }
+
+    @Test
+    void getUserById() throws Exception {
+        expectQueries(1, 0, 0, get("/users/1"), status().isOk());
+    }
+
+    @Test
+    void getUsersByIds() throws Exception {
+        expectQueries(1, 0, 0, get("/users/batch").param("ids", "2,1,99"), status().isOk());
+    }
+
+    @Test
+    void getUserByIdNotModified() throws Exception {
+        String etag = currentETag("/users/1");
+        expectQueries(1, 0, 0, get("/users/1").header(HttpHeaders.IF_NONE_MATCH, etag), status().isNotModified());
+    }
+
+    @Test
+    void getUserByUsername() throws Exception {
+        expectQueries(1, 0, 0, get("/users/username/johndoe"), status().isOk());
+    }
+
+    @Test
+    void createUser() throws Exception {
+        String body = "{\"username\":\"newuser\",\"email\":\"new.user@example.com\",\"fullName\":\"New User\"}";
+        expectQueries(3, 1, 0,
+                post("/users").contentType(MediaType.APPLICATION_JSON).content(body),
+                status().isCreated());
+    }
+
+    @Test
+    void updateUser() throws Exception {
+        String body = "{\"username\":\"johndoe\",\"email\":\"john.doe@example.com\",\"fullName\":\"Johnny Doe\","
+                + "\"status\":\"ACTIVE\"}";
+        expectQueries(2, 0, 1,
+                put("/users/1").contentType(MediaType.APPLICATION_JSON).content(body),
+                status().isOk());
+    }
+
+    @Test
+    void deleteUser() throws Exception {
+        // user and their orders are marked deleted, open orders cancelled and restocked, in one statement
+        expectQueries(1, 0, 0, delete("/users/2"), status().isOk());
+    }
+
+    @Test
+    void searchUsers() throws Exception {
+        expectQueries(1, 0, 0, get("/users/search").param("name", "doe"), status().isOk());
+    }
+
+    private String currentETag(String path) throws Exception {
+        return mockMvc.perform(get(path))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    }
+
+    private List<String> orderRows() {
+        return jdbcTemplate.query("SELECT id, status, version FROM orders ORDER BY id",
+                (rs, row) -> rs.getLong("id") + " " + rs.getString("status") + " v" + rs.getLong("version"));
+    }
+
+    private List<String> productRows() {
+        return jdbcTemplate.query("SELECT id, stock_quantity, version FROM products ORDER BY id",
+                (rs, row) -> rs.getLong("id") + " stock " + rs.getInt("stock_quantity") + " v" + rs.getLong("version"));
+    }
+
+    private List<String> orderEvents() {
+        return jdbcTemplate.query("SELECT order_id, event_type, status FROM order_events ORDER BY id",
+                (rs, row) -> rs.getLong("order_id") + " " + rs.getString("event_type") + " " + rs.getString("status"));
+    }
+
+    private void expectQueries(long maxStatements, long maxInserts, long maxUpdates,
+                               RequestBuilder request, ResultMatcher expectedStatus) throws Exception {
+        statistics.clear();
+
+        long statements = statementCounter.count(() -> mockMvc.perform(request).andExpect(expectedStatus));
+
+        assertThat(statements)
+                .as("SQL statements").isLessThanOrEqualTo(maxStatements);
+        assertThat(statistics.getEntityInsertCount())
+                .as("entity inserts").isLessThanOrEqualTo(maxInserts);
+        assertThat(statistics.getEntityUpdateCount())
+                .as("entity updates").isLessThanOrEqualTo(maxUpdates);
+    }
+
+    @TestConfiguration
+    static class StatementCounterConfiguration {
+
+        @Bean
+        static StatementCounter statementCounter() {
+            return new StatementCounter();
+        }
+    }
+
+    @FunctionalInterface
+    interface Action {
+        void run() throws Exception;
+    }
+
+    /**
+     * Wraps the data source so that, while {@link #count} runs, every statement executed on the
+     * calling thread is counted; a batch counts once. Scheduled jobs running meanwhile on other
+     * threads are not.
+     */
+    static class StatementCounter implements BeanPostProcessor {
+        private final AtomicLong executed = new AtomicLong();
+        private volatile Thread countingThread;
+
+        long count(Action action) throws Exception {
+            executed.set(0);
+            countingThread = Thread.currentThread();
+            try {
+                action.run();
+            } finally {
+                countingThread = null;
+            }
+            return executed.get();
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (!(bean instanceof DataSource dataSource) || bean instanceof DelegatingDataSource) {
+                return bean;
+            }
+            return new DelegatingDataSource(dataSource) {
+                @Override
+                public Connection getConnection() throws SQLException {
+                    return countingConnection(super.getConnection());
+                }
+
+                @Override
+                public Connection getConnection(String username, String password) throws SQLException {
+                    return countingConnection(super.getConnection(username, password));
+                }
+            };
+        }
+
+        private Connection countingConnection(Connection connection) {
+            return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> {
+                        Object result = invoke(connection, method, args);
+                        return switch (method.getName()) {
+                            case "createStatement" -> countingStatement(result, Statement.class);
+                            case "prepareStatement" -> countingStatement(result, PreparedStatement.class);
+                            case "prepareCall" -> countingStatement(result, CallableStatement.class);
+                            default -> result;
+                        };
+                    });
+        }
+
+        private Object countingStatement(Object statement, Class<? extends Statement> type) {
+            return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{type},
+                    (proxy, method, args) -> {
+                        if (method.getName().startsWith("execute") && Thread.currentThread() == countingThread) {
+                            executed.incrementAndGet();
+                        }
+                        return invoke(statement, method, args);
+                    });
+        }
+
+        private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
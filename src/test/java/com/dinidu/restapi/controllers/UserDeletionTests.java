@@ -0,0 +1,99 @@
+package com.dinidu.restapi.controllers;
+
+import com.dinidu.restapi.events.UsersChangedEvent;
+import com.dinidu.restapi.services.OrderHistoryCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * {@code DELETE /users/{id}} against the dataset in {@code db/query-count-seed.sql}: user 1 owns
+ * a PENDING and a CONFIRMED order, which must be cancelled and restocked, and a DELIVERED one,
+ * which is only hidden.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Sql("/db/query-count-seed.sql")
+class UserDeletionTests {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private OrderHistoryCache orderHistoryCache;
+
+    @BeforeEach
+    void clearHistories() {
+        // the context, and with it the cache, outlives the reseeded rows
+        orderHistoryCache.onUsersChanged(UsersChangedEvent.unspecified());
+    }
+
+    @Test
+    void cancelsAndRestocksOpenOrdersBeforeHidingThem() throws Exception {
+        mockMvc.perform(delete("/users/1")).andExpect(status().isOk());
+
+        // order 1 held 1 x product 1 and 2 x product 2, order 2 held 1 x product 1
+        assertThat(stock(1L)).isEqualTo(102);
+        assertThat(stock(2L)).isEqualTo(102);
+        assertThat(stock(3L)).isEqualTo(5);
+
+        List<Map<String, Object>> orders = jdbcTemplate.queryForList(
+                "SELECT id, status, version, deleted_at, updated_at FROM orders ORDER BY id");
+        assertThat(orders).extracting(row -> row.get("status"))
+                .containsExactly("CANCELLED", "CANCELLED", "DELIVERED");
+        assertThat(orders).allSatisfy(row -> {
+            assertThat(row.get("deleted_at")).isNotNull();
+            assertThat(row.get("updated_at")).isEqualTo(row.get("deleted_at"));
+            assertThat(((Number) row.get("version")).longValue()).isEqualTo(1L);
+        });
+
+        assertThat(jdbcTemplate.queryForList(
+                "SELECT order_id FROM order_events WHERE event_type = 'CANCELLED' ORDER BY order_id", Long.class))
+                .containsExactly(1L, 2L);
+    }
+
+    @Test
+    void evictsTheCachedOrderHistory() throws Exception {
+        mockMvc.perform(get("/orders/user/1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.length()").value(3));
+
+        mockMvc.perform(delete("/users/1")).andExpect(status().isOk());
+
+        mockMvc.perform(get("/orders/user/1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.length()").value(0));
+    }
+
+    @Test
+    void leavesOtherUsersAlone() throws Exception {
+        mockMvc.perform(delete("/users/2")).andExpect(status().isOk());
+
+        assertThat(stock(1L)).isEqualTo(100);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM orders WHERE deleted_at IS NOT NULL", Long.class)).isZero();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM order_events", Long.class)).isZero();
+    }
+
+    private int stock(Long productId) {
+        return jdbcTemplate.queryForObject("SELECT stock_quantity FROM products WHERE id = ?", Integer.class, productId);
+    }
+}
@@ -0,0 +1,102 @@
+package com.dinidu.restapi.repository;
+
+import com.dinidu.restapi.dtos.OrderEventDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Commit order of the event feed with two transactions interleaved on their own connections:
+ * the one that inserts first, and so gets the lower id, commits last.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Sql("/db/query-count-seed.sql")
+class OrderEventFeedTests {
+    private static final String INSERT_EVENT = """
+            INSERT INTO order_events (order_id, order_number, user_id, event_type, status, total_amount)
+            VALUES (?, ?, 1, 'CREATED', 'PENDING', 10.00) RETURNING id
+            """;
+
+    @Autowired
+    private OrderEventFeedRepository orderEventFeedRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    void eventCommittedLaterWithALowerIdIsStillReturned() throws SQLException {
+        try (Connection slow = dataSource.getConnection(); Connection fast = dataSource.getConnection()) {
+            slow.setAutoCommit(false);
+            fast.setAutoCommit(false);
+
+            long slowId = insertEvent(slow, 1L, "ORD-SEED-1");
+            long fastId = insertEvent(fast, 2L, "ORD-SEED-2");
+            fast.commit();
+            assertThat(slowId).isLessThan(fastId);
+
+            // a consumer reading now must not get past the event still in flight
+            assertThat(orderEventFeedRepository.findFeed(0, 100)).isEmpty();
+            assertThat(orderEventFeedRepository.findHorizon().heldBackEvents()).isEqualTo(1);
+
+            slow.commit();
+
+            assertThat(orderEventFeedRepository.findFeed(0, 100)).extracting(OrderEventDTO::getId)
+                    .containsExactly(slowId, fastId);
+            assertThat(orderEventFeedRepository.findFeed(slowId, 100)).extracting(OrderEventDTO::getId)
+                    .containsExactly(fastId);
+            assertThat(orderEventFeedRepository.findHorizon().heldBackEvents()).isZero();
+        }
+    }
+
+    @Test
+    void feedFollowsTransactionOrderRatherThanIds() throws SQLException {
+        try (Connection older = dataSource.getConnection(); Connection newer = dataSource.getConnection()) {
+            older.setAutoCommit(false);
+            newer.setAutoCommit(false);
+
+            // the older transaction takes its id first but inserts its event last
+            assignTransactionId(older);
+            long newerId = insertEvent(newer, 2L, "ORD-SEED-2");
+            newer.commit();
+            long olderId = insertEvent(older, 1L, "ORD-SEED-1");
+            older.commit();
+            assertThat(newerId).isLessThan(olderId);
+
+            // a consumer that has read the older transaction's event still gets the lower id
+            assertThat(orderEventFeedRepository.findFeed(0, 100)).extracting(OrderEventDTO::getId)
+                    .containsExactly(olderId, newerId);
+            assertThat(orderEventFeedRepository.findFeed(olderId, 100)).extracting(OrderEventDTO::getId)
+                    .containsExactly(newerId);
+        }
+    }
+
+    private static long insertEvent(Connection connection, long orderId, String orderNumber) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(INSERT_EVENT)) {
+            statement.setLong(1, orderId);
+            statement.setString(2, orderNumber);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                resultSet.next();
+                return resultSet.getLong(1);
+            }
+        }
+    }
+
+    private static void assignTransactionId(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT pg_current_xact_id()");
+             ResultSet resultSet = statement.executeQuery()) {
+            resultSet.next();
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.dinidu.restapi.repository;
+
+import com.dinidu.restapi.services.OrderArchiveService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.util.TestPropertyValues;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.YearMonth;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * The application on a database migrated with {@code db/partitioning} as well, against the
+ * dataset in {@code db/query-count-seed.sql}. The database is created from scratch for this class
+ * next to the test database, since the migration cannot be undone.
+ */
+@SpringBootTest(properties = {
+        "spring.flyway.locations=classpath:db/migration,classpath:db/partitioning",
+        "app.orders.archive.enabled=true",
+        "app.orders.archive.partitions-ahead=5",
+        "app.orders.archive.retention=0s"})
+@ContextConfiguration(initializers = OrderPartitioningTests.PartitionedDatabase.class)
+@DirtiesContext
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Sql(statements = "TRUNCATE TABLE order_numbers, order_items_archive, orders_archive")
+@Sql("/db/query-count-seed.sql")
+class OrderPartitioningTests {
+    private static final String PARTITIONED_DATABASE = "order_management_partitioned_test";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private OrderArchiveService orderArchiveService;
+
+    @Test
+    void replacesTheTablesUnderTheirIndexNames() {
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT success FROM flyway_schema_history WHERE version = '5.1'", Boolean.class)).isTrue();
+        assertThat(jdbcTemplate.queryForList("SELECT indexname FROM pg_indexes WHERE tablename = 'orders'", String.class))
+                .contains("orders_pkey", "idx_orders_order_number", "idx_orders_user_created",
+                        "idx_orders_status_created", "idx_orders_created", "idx_orders_deleted", "idx_orders_archivable");
+        assertThat(jdbcTemplate.queryForList("SELECT indexname FROM pg_indexes WHERE tablename = 'order_items'",
+                String.class)).contains("order_items_pkey", "idx_order_items_order", "idx_order_items_product");
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM pg_class WHERE relname LIKE '%unpartitioned%'", Long.class)).isZero();
+    }
+
+    @Test
+    void keepsPartitionsCreatedAhead() {
+        // the migration creates three months ahead, the rest come from OrderArchiveService at startup
+        YearMonth last = YearMonth.now().plusMonths(5);
+
+        assertThat(partitionExists("orders", last)).isTrue();
+        assertThat(partitionExists("order_items", last)).isTrue();
+        assertThat(partitionExists("orders", last.plusMonths(1))).isFalse();
+    }
+
+    @Test
+    void archivedOrdersAreStillFoundById() throws Exception {
+        orderArchiveService.maintainPartitions();
+
+        // only the delivered order is finished
+        assertThat(jdbcTemplate.queryForList("SELECT id FROM orders ORDER BY id", Long.class)).containsExactly(1L, 2L);
+        assertThat(jdbcTemplate.queryForList("SELECT id FROM orders_archive", Long.class)).containsExactly(3L);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM order_items_archive WHERE order_id = 3", Long.class)).isEqualTo(1);
+
+        String etag = mockMvc.perform(get("/orders/3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.orderNumber").value("ORD-SEED-3"))
+                .andExpect(jsonPath("$.data.status").value("DELIVERED"))
+                .andExpect(jsonPath("$.data.userFullName").value("John Doe"))
+                .andExpect(jsonPath("$.data.orderItems.length()").value(1))
+                .andExpect(jsonPath("$.data.orderItems[0].productName").value("Widget B"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mockMvc.perform(get("/orders/3").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag));
+        mockMvc.perform(get("/orders/1")).andExpect(status().isOk());
+        mockMvc.perform(get("/orders/4")).andExpect(status().isNotFound());
+    }
+
+    private boolean partitionExists(String table, YearMonth month) {
+        String partition = String.format("%s_y%dm%02d", table, month.getYear(), month.getMonthValue());
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM pg_class WHERE relname = ?", Long.class, partition) > 0;
+    }
+
+    /**
+     * Recreates {@link #PARTITIONED_DATABASE} on the test database's server and points the
+     * application at it.
+     */
+    static class PartitionedDatabase implements ApplicationContextInitializer<ConfigurableApplicationContext> {
+        @Override
+        public void initialize(ConfigurableApplicationContext context) {
+            Environment environment = context.getEnvironment();
+            String url = environment.getRequiredProperty("spring.datasource.url");
+            JdbcTemplate server = new JdbcTemplate(new DriverManagerDataSource(url,
+                    environment.getProperty("spring.datasource.username"),
+                    environment.getProperty("spring.datasource.password")));
+            server.execute("DROP DATABASE IF EXISTS " + PARTITIONED_DATABASE + " WITH (FORCE)");
+            server.execute("CREATE DATABASE " + PARTITIONED_DATABASE);
+            TestPropertyValues.of("spring.datasource.url="
+                            + url.replaceFirst("/[^/?]+(\\?|$)", "/" + PARTITIONED_DATABASE + "$1"))
+                    .applyTo(context);
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package com.dinidu.restapi.repository;
+
+import com.dinidu.restapi.models.Order;
+import com.dinidu.restapi.models.Product;
+import com.dinidu.restapi.models.User;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs each repository query against the fixed dataset in {@code db/query-count-seed.sql},
+ * then explains every statement it issued, with the same bind values and sequential scans
+ * disabled. The planner only falls back to a sequential scan in that mode when no index can
+ * serve the query, so any left in the plan means a missing index. The unpaged catalog load is
+ * left out on purpose: it reads the whole table.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Sql("/db/query-count-seed.sql")
+@Transactional
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class QueryPlanTests {
+    private static final PageRequest NEWEST_FIRST = PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, "createdAt"));
+    private static final PageRequest CHEAPEST_FIRST = PageRequest.of(0, 10, Sort.by(Sort.Direction.ASC, "price"));
+    private static final LocalDateTime NOW = LocalDateTime.now();
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private OrderEventFeedRepository orderEventFeedRepository;
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Autowired
+    private StatementRecorder statementRecorder;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    Stream<Arguments> repositoryQueries() {
+        return Stream.of(
+                // ---- orders ----
+                query("orders.findProjectedById", () -> orderRepository.findProjectedById(1L)),
+                query("orders.findProjectedByIdIn", () -> orderRepository.findProjectedByIdIn(List.of(1L, 2L))),
+                query("orders.findProjectedByOrderNumber", () -> orderRepository.findProjectedByOrderNumber("ORD-SEED-1")),
+                query("orders.findETagViewById", () -> orderRepository.findETagViewById(1L)),
+                query("orders.findAllProjected", () -> orderRepository.findAllProjected(NEWEST_FIRST)),
+                query("orders.findByUserId", () -> orderRepository.findByUserId(1L, NEWEST_FIRST)),
+                query("orders.findByStatus", () -> orderRepository.findByStatus(Order.OrderStatus.PENDING, NEWEST_FIRST)),
+                query("orders.findItemRowsByOrderIdIn", () -> orderRepository.findItemRowsByOrderIdIn(List.of(1L, 2L))),
+                query("orders.findByDateRange", () -> orderRepository.findByDateRange(NOW.minusDays(1), NOW, NEWEST_FIRST)),
+                query("orders.findStatusesByIdIn", () -> orderRepository.findStatusesByIdIn(List.of(1L, 2L))),
+                query("orders.findByUserIdAndStatus",
+                        () -> orderRepository.findByUserIdAndStatus(1L, Order.OrderStatus.PENDING)),
+                query("orders.transitionStatusByIds",
+                        () -> orderRepository.transitionStatusByIds(List.of(1L, 2L), List.of("PENDING"), "CONFIRMED", NOW)),
+                query("orders.transitionStatusByFilter",
+                        () -> orderRepository.transitionStatusByFilter("PENDING", List.of("PENDING"), NOW, 100, "CONFIRMED", NOW)),
+                query("orders.cancelAndRestock",
+                        () -> orderRepository.cancelAndRestock(List.of(1L, 2L), List.of("PENDING", "CONFIRMED"), NOW)),
+                query("orders.purgeDeletedBatch", () -> orderRepository.purgeDeletedBatch(NOW, 100)),
+
+                // ---- products ----
+                query("products.findAllProjected", () -> productRepository.findAllProjected(NEWEST_FIRST)),
+                query("products.findProjectedByIdIn", () -> productRepository.findProjectedByIdIn(List.of(1L, 2L))),
+                query("products.findVersionById", () -> productRepository.findVersionById(1L)),
+                query("products.findByStatus",
+                        () -> productRepository.findByStatus(Product.ProductStatus.AVAILABLE, NEWEST_FIRST)),
+                query("products.findByNameContaining", () -> productRepository.findByNameContaining("Widget", NEWEST_FIRST)),
+                query("products.findByPriceRange",
+                        () -> productRepository.findByPriceRange(BigDecimal.ONE, BigDecimal.valueOf(50), CHEAPEST_FIRST)),
+                query("products.findByStockQuantityLessThan", () -> productRepository.findByStockQuantityLessThan(10)),
+                query("products.softDelete", () -> productRepository.softDelete(3L, NOW)),
+                query("products.purgeDeletedBatch", () -> productRepository.purgeDeletedBatch(NOW, 100)),
+
+                // ---- users ----
+                query("users.findByUsername", () -> userRepository.findByUsername("johndoe")),
+                query("users.findByEmail", () -> userRepository.findByEmail("john.doe@example.com")),
+                query("users.findVersionById", () -> userRepository.findVersionById(1L)),
+                query("users.findByStatus", () -> userRepository.findByStatus(User.UserStatus.ACTIVE, NEWEST_FIRST)),
+                query("users.findAllProjected", () -> userRepository.findAllProjected(NEWEST_FIRST)),
+                query("users.findProjectedByIdIn", () -> userRepository.findProjectedByIdIn(List.of(1L, 2L))),
+                query("users.findByNameContaining", () -> userRepository.findByNameContaining("doe", NEWEST_FIRST)),
+                query("users.existsByUsername", () -> userRepository.existsByUsername("johndoe")),
+                query("users.softDelete", () -> userRepository.softDelete(2L, List.of("PENDING", "CONFIRMED"), NOW)),
+                query("users.purgeDeletedBatch", () -> userRepository.purgeDeletedBatch(NOW, 100)),
+
+                // ---- outbox and idempotency keys ----
+                query("orderEvents.findFeed", () -> orderEventFeedRepository.findFeed(0, 100)),
+                query("idempotencyKeys.insertIfAbsent",
+                        () -> idempotencyRecordRepository.insertIfAbsent("plan-1", "hash", "{}", NOW, NOW.plusDays(1))),
+                query("idempotencyKeys.deleteExpiredBatch", () -> idempotencyRecordRepository.deleteExpiredBatch(NOW, 100)));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("repositoryQueries")
+    void usesAnIndex(String name, Runnable query) throws Exception {
+        jdbcTemplate.execute("SET LOCAL enable_seqscan = off");
+
+        List<RecordedStatement> statements = statementRecorder.record(query);
+
+        assertThat(statements).as("statements issued by " + name).isNotEmpty();
+        for (RecordedStatement statement : statements) {
+            List<String> seqScans = new ArrayList<>();
+            collectSeqScans(explain(statement), seqScans);
+            assertThat(seqScans).as("sequentially scanned tables in: " + statement.sql()).isEmpty();
+        }
+    }
+
+    private static Arguments query(String name, Runnable query) {
+        return Arguments.of(name, query);
+    }
+
+    private JsonNode explain(RecordedStatement statement) throws Exception {
+        String plan = jdbcTemplate.execute((ConnectionCallback<String>) connection -> {
+            try (PreparedStatement explain = connection.prepareStatement("EXPLAIN (FORMAT JSON) " + statement.sql())) {
+                statement.bindTo(explain);
+                try (ResultSet resultSet = explain.executeQuery()) {
+                    resultSet.next();
+                    return resultSet.getString(1);
+                }
+            }
+        });
+        return objectMapper.readTree(plan);
+    }
+
+    private void collectSeqScans(JsonNode node, List<String> seqScans) {
+        if ("Seq Scan".equals(node.path("Node Type").asText())) {
+            seqScans.add(node.path("Relation Name").asText());
+        }
+        node.forEach(child -> collectSeqScans(child, seqScans));
+    }
+
+    @TestConfiguration
+    static class StatementRecorderConfiguration {
+
+        @Bean
+        static StatementRecorder statementRecorder() {
+            return new StatementRecorder();
+        }
+    }
+
+    /**
+     * Wraps the data source so that, while {@link #record} runs, every prepared statement is
+     * kept together with its bind calls for replaying under {@code EXPLAIN}.
+     */
+    static class StatementRecorder implements BeanPostProcessor {
+        private final List<RecordedStatement> recorded = new CopyOnWriteArrayList<>();
+        private volatile boolean recording;
+
+        List<RecordedStatement> record(Runnable action) {
+            recorded.clear();
+            recording = true;
+            try {
+                action.run();
+            } finally {
+                recording = false;
+            }
+            return List.copyOf(recorded);
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (!(bean instanceof DataSource dataSource) || bean instanceof DelegatingDataSource) {
+                return bean;
+            }
+            return new DelegatingDataSource(dataSource) {
+                @Override
+                public Connection getConnection() throws SQLException {
+                    return recordingConnection(super.getConnection());
+                }
+
+                @Override
+                public Connection getConnection(String username, String password) throws SQLException {
+                    return recordingConnection(super.getConnection(username, password));
+                }
+            };
+        }
+
+        private Connection recordingConnection(Connection connection) {
+            return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> {
+                        Object result = invoke(connection, method, args);
+                        if (recording && method.getName().equals("prepareStatement")) {
+                            RecordedStatement statement = new RecordedStatement((String) args[0], new ArrayList<>());
+                            recorded.add(statement);
+                            return recordingStatement((PreparedStatement) result, statement);
+                        }
+                        return result;
+                    });
+        }
+
+        private PreparedStatement recordingStatement(PreparedStatement preparedStatement, RecordedStatement statement) {
+            return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class},
+                    (proxy, method, args) -> {
+                        if (method.getName().startsWith("set") && args != null && args.length >= 2
+                                && args[0] instanceof Integer) {
+                            statement.bindings().add(new Binding(method, args));
+                        }
+                        return invoke(preparedStatement, method, args);
+                    });
+        }
+
+        private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    record RecordedStatement(String sql, List<Binding> bindings) {
+
+        void bindTo(PreparedStatement target) throws SQLException {
+            for (Binding binding : bindings) {
+                try {
+                    binding.method().invoke(target, binding.args());
+                } catch (IllegalAccessException | InvocationTargetException e) {
+                    throw new SQLException("Unable to replay " + binding.method().getName() + " on " + sql, e);
+                }
+            }
+        }
+    }
+
+    record Binding(Method method, Object[] args) {
+    }
+}
@@ -0,0 +1,120 @@
+package com.dinidu.restapi.repository;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.output.MigrateResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Upgrades a database that was created the way the application did before Flyway (the
+ * {@code db/data.sql} schema, no migration history) and checks that it ends up with the same
+ * tables, columns and indexes as a database migrated from scratch, which is what Hibernate
+ * validates against on startup.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class SchemaMigrationTests {
+    private static final String LEGACY_DATABASE = "order_management_pre_flyway_test";
+
+    private static final String COLUMNS = """
+            SELECT table_name || '.' || column_name || ' ' || data_type || ' ' || is_nullable
+            FROM information_schema.columns
+            WHERE table_schema = 'public'
+            ORDER BY 1
+            """;
+
+    private static final String INDEXES = """
+            SELECT tablename || '.' || indexname FROM pg_indexes WHERE schemaname = 'public' ORDER BY 1
+            """;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${spring.datasource.url}")
+    private String url;
+
+    @Value("${spring.datasource.username}")
+    private String username;
+
+    @Value("${spring.datasource.password}")
+    private String password;
+
+    private DriverManagerDataSource legacyDataSource;
+
+    @BeforeEach
+    void createLegacyDatabase() {
+        dropLegacyDatabase();
+        jdbcTemplate.execute("CREATE DATABASE " + LEGACY_DATABASE);
+        legacyDataSource = new DriverManagerDataSource(
+                url.replaceFirst("/[^/?]+(\\?|$)", "/" + LEGACY_DATABASE + "$1"), username, password);
+        new ResourceDatabasePopulator(new ClassPathResource("db/pre-flyway-schema.sql")).execute(legacyDataSource);
+    }
+
+    @AfterEach
+    void dropLegacyDatabase() {
+        jdbcTemplate.execute("DROP DATABASE IF EXISTS " + LEGACY_DATABASE + " WITH (FORCE)");
+    }
+
+    @Test
+    void upgradesAPreFlywayDatabaseToTheMigratedSchema() {
+        MigrateResult result = flyway().migrate();
+
+        assertThat(result.success).isTrue();
+        JdbcTemplate legacy = new JdbcTemplate(legacyDataSource);
+        assertThat(legacy.queryForObject("SELECT type FROM flyway_schema_history WHERE version = '1'", String.class))
+                .isEqualTo("BASELINE");
+        assertThat(legacy.queryForList(COLUMNS, String.class))
+                .containsExactlyElementsOf(jdbcTemplate.queryForList(COLUMNS, String.class));
+        assertThat(legacy.queryForList(INDEXES, String.class))
+                .containsExactlyElementsOf(jdbcTemplate.queryForList(INDEXES, String.class));
+    }
+
+    @Test
+    void keepsExistingRows() {
+        flyway().migrate();
+
+        JdbcTemplate legacy = new JdbcTemplate(legacyDataSource);
+        assertThat(legacy.queryForObject("SELECT version FROM orders WHERE order_number = 'ORD-123456789'", Long.class))
+                .isZero();
+        assertThat(legacy.queryForObject("""
+                SELECT count(*) FROM order_items i JOIN orders o ON o.id = i.order_id
+                WHERE i.created_at = o.created_at
+                """, Long.class)).isEqualTo(1);
+    }
+
+    @Test
+    void migrationsAddingSeriesObjectsAreSafeToRerun() {
+        flyway().migrate();
+        JdbcTemplate legacy = new JdbcTemplate(legacyDataSource);
+        List<String> migrated = legacy.queryForList(COLUMNS, String.class);
+
+        // As if the objects had already been created by ddl-auto=update before the upgrade
+        legacy.update("DELETE FROM flyway_schema_history WHERE version <> '1'");
+        MigrateResult rerun = flyway().migrate();
+
+        assertThat(rerun.success).isTrue();
+        assertThat(legacy.queryForList(COLUMNS, String.class)).containsExactlyElementsOf(migrated);
+    }
+
+    private Flyway flyway() {
+        return Flyway.configure()
+                .dataSource(legacyDataSource)
+                .locations("classpath:db/migration")
+                .baselineOnMigrate(true)
+                .baselineVersion("1")
+                .load();
+    }
+}
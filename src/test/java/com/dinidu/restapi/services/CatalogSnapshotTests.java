@@ -0,0 +1,89 @@
+package com.dinidu.restapi.services;
+
+import com.dinidu.restapi.dtos.ProductDTO;
+import com.dinidu.restapi.models.Product;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The presorted orderings of {@link CatalogSnapshot} and how changes patch them. Products are
+ * passed in {@code name, id} order, as the database returns them.
+ */
+class CatalogSnapshotTests {
+    private static final LocalDateTime T0 = LocalDateTime.of(2026, 1, 1, 0, 0);
+
+    private final CatalogSnapshot snapshot = CatalogSnapshot.of(List.of(
+            product(3, "Anvil", "5.00", 3),
+            product(1, "Bolt", "1.00", 1),
+            product(4, "Bolt", "1.00", 4),
+            product(2, "Crate", "9.00", 2)), Instant.now());
+
+    @Test
+    void servesEveryPresortedOrderingWithIdsBreakingTies() {
+        assertThat(ids(snapshot.all(sorted(Sort.Direction.DESC, "createdAt")))).containsExactly(4L, 3L, 2L, 1L);
+        assertThat(ids(snapshot.all(sorted(Sort.Direction.ASC, "createdAt")))).containsExactly(1L, 2L, 3L, 4L);
+        assertThat(ids(snapshot.all(sorted(Sort.Direction.ASC, "price")))).containsExactly(1L, 4L, 3L, 2L);
+        assertThat(ids(snapshot.all(sorted(Sort.Direction.DESC, "price")))).containsExactly(2L, 3L, 1L, 4L);
+        assertThat(ids(snapshot.all(sorted(Sort.Direction.ASC, "name")))).containsExactly(3L, 1L, 4L, 2L);
+        assertThat(ids(snapshot.all(sorted(Sort.Direction.DESC, "name")))).containsExactly(2L, 1L, 4L, 3L);
+    }
+
+    @Test
+    void filtersThePresortedOrderings() {
+        assertThat(ids(snapshot.search("Bo", sorted(Sort.Direction.DESC, "name")))).containsExactly(1L, 4L);
+        assertThat(ids(snapshot.byPriceRange(new BigDecimal("1.00"), new BigDecimal("5.00"),
+                sorted(Sort.Direction.DESC, "createdAt")))).containsExactly(4L, 3L, 1L);
+        assertThat(snapshot.byStatus(Product.ProductStatus.AVAILABLE, PageRequest.of(1, 3,
+                Sort.by(Sort.Direction.ASC, "name"))).getContent()).extracting(ProductDTO::getId).containsExactly(2L);
+    }
+
+    @Test
+    void patchesOrderingsWhenNamesStay() {
+        CatalogSnapshot patched = snapshot.withChanges(List.of(1L, 2L), List.of(product(1, "Bolt", "7.00", 1)));
+
+        assertThat(ids(patched.all(sorted(Sort.Direction.ASC, "price")))).containsExactly(4L, 3L, 1L);
+        assertThat(ids(patched.all(sorted(Sort.Direction.ASC, "name")))).containsExactly(3L, 1L, 4L);
+        assertThat(patched.all(sorted(Sort.Direction.ASC, "name")).getContent().get(1).getPrice())
+                .isEqualByComparingTo("7.00");
+    }
+
+    @Test
+    void dropsTheNameOrderingOnRenames() {
+        CatalogSnapshot renamed = snapshot.withChanges(List.of(3L), List.of(product(3, "Zinc", "5.00", 3)));
+        CatalogSnapshot added = snapshot.withChanges(List.of(5L), List.of(product(5, "Axe", "2.00", 5)));
+
+        assertThat(renamed.canSort(Sort.by("name"))).isFalse();
+        assertThat(added.canSort(Sort.by("name"))).isFalse();
+        assertThat(ids(added.all(sorted(Sort.Direction.ASC, "price")))).containsExactly(1L, 4L, 5L, 3L, 2L);
+    }
+
+    private static Pageable sorted(Sort.Direction direction, String property) {
+        return PageRequest.of(0, 10, Sort.by(direction, property));
+    }
+
+    private static List<Long> ids(Page<ProductDTO> page) {
+        return page.getContent().stream().map(ProductDTO::getId).toList();
+    }
+
+    private static ProductDTO product(long id, String name, String price, int minutesAfterT0) {
+        return ProductDTO.builder()
+                .id(id)
+                .name(name)
+                .description(name + " description")
+                .price(new BigDecimal(price))
+                .stockQuantity(10)
+                .status(Product.ProductStatus.AVAILABLE)
+                .createdAt(T0.plusMinutes(minutesAfterT0))
+                .build();
+    }
+}
@@ -0,0 +1,122 @@
+package com.dinidu.restapi.services;
+
+import com.dinidu.restapi.config.OptimisticLockRetryProperties;
+import com.dinidu.restapi.config.Workload;
+import com.dinidu.restapi.config.WorkloadBulkheads;
+import com.dinidu.restapi.config.WorkloadPoolProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Retries of {@link OptimisticLockRetrier} against a single order-write slot and a transaction
+ * manager that only counts transactions.
+ */
+class OptimisticLockRetrierTests {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger transactions = new AtomicInteger();
+    private final WorkloadBulkheads bulkheads = new WorkloadBulkheads(workloadProperties(), meterRegistry);
+    private final OptimisticLockRetrier retrier = new OptimisticLockRetrier(
+            countingTransactionManager(), bulkheads, retryProperties(), meterRegistry);
+
+    @Test
+    void retriesConflictsInFreshTransactions() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = retrier.execute("test", Workload.Type.ORDER_WRITES, () -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new OptimisticLockingFailureException("conflict");
+            }
+            return "done";
+        });
+
+        assertThat(result).isEqualTo("done");
+        assertThat(transactions).hasValue(3);
+        assertThat(meterRegistry.get("optimistic.lock.retries").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void givesUpAfterMaxAttemptsWithoutKeepingThePermit() {
+        assertThatThrownBy(() -> retrier.execute("test", Workload.Type.ORDER_WRITES, () -> {
+            throw new OptimisticLockingFailureException("conflict");
+        })).isInstanceOf(OptimisticLockingFailureException.class);
+
+        assertThat(transactions).hasValue(3);
+        assertThat(meterRegistry.get("workload.bulkhead.active").tag("workload", "order-writes").gauge().value())
+                .isZero();
+    }
+
+    @Test
+    void backoffLetsOtherCallersIntoTheWorkload() throws Exception {
+        List<String> events = new CopyOnWriteArrayList<>();
+        Thread otherCaller = new Thread(() -> {
+            try (WorkloadBulkheads.Permit permit = bulkheads.enter(Workload.Type.ORDER_WRITES)) {
+                events.add("other caller");
+            }
+        });
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = retrier.execute("test", Workload.Type.ORDER_WRITES, () -> {
+            if (attempts.incrementAndGet() == 1) {
+                events.add("attempt 1");
+                // the only slot is taken, so the other caller queues for it
+                otherCaller.start();
+                awaitWaiting(otherCaller);
+                throw new OptimisticLockingFailureException("conflict");
+            }
+            events.add("attempt 2");
+            return "done";
+        });
+        otherCaller.join();
+
+        assertThat(result).isEqualTo("done");
+        assertThat(events).containsExactly("attempt 1", "other caller", "attempt 2");
+    }
+
+    private static void awaitWaiting(Thread thread) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (thread.getState() != Thread.State.TIMED_WAITING) {
+            if (System.nanoTime() > deadline) {
+                throw new IllegalStateException(thread.getName() + " never started waiting");
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    private PlatformTransactionManager countingTransactionManager() {
+        return (PlatformTransactionManager) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{PlatformTransactionManager.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("getTransaction")) {
+                        transactions.incrementAndGet();
+                        return new SimpleTransactionStatus();
+                    }
+                    return null;
+                });
+    }
+
+    private static WorkloadPoolProperties workloadProperties() {
+        WorkloadPoolProperties properties = new WorkloadPoolProperties();
+        properties.setEnabled(true);
+        properties.setOrderWrites(new WorkloadPoolProperties.Pool(1, Duration.ofSeconds(1), 1, Duration.ofSeconds(5)));
+        return properties;
+    }
+
+    private static OptimisticLockRetryProperties retryProperties() {
+        OptimisticLockRetryProperties properties = new OptimisticLockRetryProperties();
+        properties.setMaxAttempts(3);
+        properties.setInitialBackoff(Duration.ofMillis(5));
+        properties.setMaxBackoff(Duration.ofMillis(20));
+        return properties;
+    }
+}
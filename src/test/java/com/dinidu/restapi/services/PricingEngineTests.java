@@ -0,0 +1,226 @@
+package com.dinidu.restapi.services;
+
+import com.dinidu.restapi.config.PricingProperties;
+import com.dinidu.restapi.exceptions.PriceOverflowException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.BeanInitializationException;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Currency;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Discount rules, rounding and the limits of {@link PricingEngine}. Amounts are in cents (USD)
+ * unless a test says otherwise; the half-way cases are chosen so that HALF_EVEN would give a
+ * different result.
+ */
+class PricingEngineTests {
+
+    @Test
+    void withoutRulesTheTotalIsTheGross() {
+        PriceCalculation calculation = price(new PricingProperties(), line(1999, 3));
+
+        assertThat(calculation.gross()).isEqualTo(5997);
+        assertThat(calculation.lineTotal(0)).isEqualTo(5997);
+        assertThat(calculation.discount()).isZero();
+        assertThat(calculation.tax()).isZero();
+        assertThat(calculation.total()).isEqualTo(5997);
+    }
+
+    @Test
+    void percentageLineDiscountRoundsHalfUpPerLine() {
+        PricingProperties properties = new PricingProperties();
+        properties.setLineRules(List.of(percentage("10")));
+
+        // 10% of 59.85 is 5.985
+        PriceCalculation calculation = price(properties, line(1995, 3));
+
+        assertThat(calculation.lineTotal(0)).isEqualTo(5985 - 599);
+        assertThat(BigDecimal.valueOf(calculation.lineTotal(0), 2))
+                .isEqualByComparingTo(new BigDecimal("59.85").subtract(
+                        new BigDecimal("59.85").multiply(new BigDecimal("0.10")).setScale(2, RoundingMode.HALF_UP)));
+    }
+
+    @Test
+    void linesAreRoundedBeforeTheyAreSummed() {
+        PricingProperties properties = new PricingProperties();
+        properties.setLineRules(List.of(percentage("10")));
+
+        // 10.05 each: 1.005 off rounds to 1.01 per line, where 2.01 off the sum would give 18.09
+        PriceCalculation calculation = price(properties, line(1005, 1), line(1005, 1));
+
+        assertThat(calculation.lineTotal(0)).isEqualTo(904);
+        assertThat(calculation.lineTotal(1)).isEqualTo(904);
+        assertThat(calculation.total()).isEqualTo(1808);
+        assertThat(calculation.discount()).isEqualTo(202);
+    }
+
+    @Test
+    void percentageOrderDiscountRoundsHalfUpOnTheSubtotal() {
+        PricingProperties properties = new PricingProperties();
+        properties.setOrderRules(List.of(percentage("5")));
+
+        // 5% of 10.10 is 0.505
+        PriceCalculation calculation = price(properties, line(1010, 1));
+
+        assertThat(calculation.discount()).isEqualTo(51);
+        assertThat(calculation.total()).isEqualTo(959);
+    }
+
+    @Test
+    void fixedOrderDiscountAppliesFromItsMinimumSubtotal() {
+        PricingProperties properties = new PricingProperties();
+        properties.setOrderRules(List.of(new PricingProperties.Rule(
+                PricingProperties.Type.FIXED, new BigDecimal("5.00"), new BigDecimal("50.00"), List.of())));
+
+        assertThat(price(properties, line(1999, 3)).total()).isEqualTo(5997 - 500);
+        assertThat(price(properties, line(1999, 2)).total()).isEqualTo(3998);
+    }
+
+    @Test
+    void fixedDiscountNeverGoesBelowZero() {
+        PricingProperties properties = new PricingProperties();
+        properties.setLineRules(List.of(new PricingProperties.Rule(
+                PricingProperties.Type.FIXED, new BigDecimal("100.00"), BigDecimal.ZERO, List.of())));
+
+        PriceCalculation calculation = price(properties, line(1999, 1));
+
+        assertThat(calculation.lineTotal(0)).isZero();
+        assertThat(calculation.discount()).isEqualTo(1999);
+        assertThat(calculation.total()).isZero();
+    }
+
+    @Test
+    void tieredLineDiscountUsesTheHighestTierReached() {
+        PricingProperties properties = new PricingProperties();
+        properties.setLineRules(List.of(new PricingProperties.Rule(PricingProperties.Type.TIERED, null, BigDecimal.ZERO,
+                List.of(new PricingProperties.Tier(new BigDecimal("50"), new BigDecimal("10")),
+                        new PricingProperties.Tier(new BigDecimal("10"), new BigDecimal("5"))))));
+
+        assertThat(price(properties, line(1000, 9)).total()).isEqualTo(9000);
+        assertThat(price(properties, line(1000, 10)).total()).isEqualTo(9500);
+        assertThat(price(properties, line(1000, 49)).total()).isEqualTo(46550);
+        assertThat(price(properties, line(1000, 50)).total()).isEqualTo(45000);
+    }
+
+    @Test
+    void rulesStackInOrderEachOnWhatThePreviousLeft() {
+        PricingProperties properties = new PricingProperties();
+        properties.setLineRules(List.of(percentage("10"), new PricingProperties.Rule(
+                PricingProperties.Type.FIXED, new BigDecimal("1.00"), BigDecimal.ZERO, List.of())));
+        properties.setOrderRules(List.of(percentage("5")));
+
+        // 20.00 - 10% = 18.00, - 1.00 = 17.00, - 5% = 16.15
+        PriceCalculation calculation = price(properties, line(1000, 2));
+
+        assertThat(calculation.lineTotal(0)).isEqualTo(1700);
+        assertThat(calculation.discount()).isEqualTo(385);
+        assertThat(calculation.total()).isEqualTo(1615);
+    }
+
+    @Test
+    void taxIsChargedHalfUpOnTheDiscountedTotal() {
+        PricingProperties properties = new PricingProperties();
+        properties.setTaxRate(new BigDecimal("8.25"));
+
+        // 8.25% of 10.00 is 0.825
+        PriceCalculation undiscounted = price(properties, line(1000, 1));
+        assertThat(undiscounted.tax()).isEqualTo(83);
+        assertThat(undiscounted.total()).isEqualTo(1083);
+
+        properties.setOrderRules(List.of(percentage("10")));
+        PriceCalculation discounted = price(properties, line(1000, 1));
+        assertThat(discounted.tax()).isEqualTo(74);
+        assertThat(discounted.total()).isEqualTo(974);
+    }
+
+    @Test
+    void convertsAmountsHalfUpToMinorUnitsAndBack() {
+        PricingEngine engine = new PricingEngine(new PricingProperties());
+
+        assertThat(engine.toMinorUnits(new BigDecimal("19.995"))).isEqualTo(2000);
+        assertThat(engine.toMinorUnits(new BigDecimal("19.985"))).isEqualTo(1999);
+        assertThat(engine.toAmount(1999)).isEqualTo(new BigDecimal("19.99"));
+    }
+
+    @Test
+    void rejectsAmountsThatDoNotFitTheAmountColumns() {
+        PricingEngine engine = new PricingEngine(new PricingProperties());
+
+        assertThat(engine.toAmount(9_999_999_999L)).isEqualTo(new BigDecimal("99999999.99"));
+        assertThatThrownBy(() -> engine.toAmount(10_000_000_000L)).isInstanceOf(PriceOverflowException.class);
+        assertThatThrownBy(() -> engine.toAmount(-10_000_000_000L)).isInstanceOf(PriceOverflowException.class);
+    }
+
+    @Test
+    void amountLimitFollowsTheCurrencyScale() {
+        PricingProperties properties = new PricingProperties();
+        properties.setCurrency(Currency.getInstance("JPY"));
+        PricingEngine engine = new PricingEngine(properties);
+
+        assertThat(engine.toAmount(99_999_999L)).isEqualTo(new BigDecimal("99999999"));
+        assertThatThrownBy(() -> engine.toAmount(100_000_000L)).isInstanceOf(PriceOverflowException.class);
+    }
+
+    @Test
+    void overflowingLineAmountsThrow() {
+        PricingEngine engine = new PricingEngine(new PricingProperties());
+        PriceCalculation calculation = new PriceCalculation();
+        calculation.addLine(Long.MAX_VALUE / 2, 3);
+
+        assertThatThrownBy(() -> engine.price(calculation)).isInstanceOf(PriceOverflowException.class);
+    }
+
+    @Test
+    void overflowingTotalsThrow() {
+        PricingEngine engine = new PricingEngine(new PricingProperties());
+        PriceCalculation calculation = new PriceCalculation();
+        calculation.addLine(Long.MAX_VALUE / 2, 1);
+        calculation.addLine(Long.MAX_VALUE / 2 + 2, 1);
+
+        assertThatThrownBy(() -> engine.price(calculation)).isInstanceOf(PriceOverflowException.class);
+        assertThatThrownBy(() -> engine.toMinorUnits(new BigDecimal("1e20")))
+                .isInstanceOf(PriceOverflowException.class);
+    }
+
+    @Test
+    void rejectsInvalidRulesWhenCompilingThem() {
+        PricingProperties percentOver100 = new PricingProperties();
+        percentOver100.setLineRules(List.of(percentage("101")));
+        PricingProperties negativeTax = new PricingProperties();
+        negativeTax.setTaxRate(new BigDecimal("-1"));
+        PricingProperties oversizedFixed = new PricingProperties();
+        oversizedFixed.setOrderRules(List.of(new PricingProperties.Rule(PricingProperties.Type.FIXED,
+                new BigDecimal("1e20"), BigDecimal.ZERO, List.of())));
+
+        assertThatThrownBy(() -> new PricingEngine(percentOver100))
+                .isInstanceOf(BeanInitializationException.class)
+                .hasMessageContaining("discount percent");
+        assertThatThrownBy(() -> new PricingEngine(negativeTax))
+                .isInstanceOf(BeanInitializationException.class)
+                .hasMessageContaining("tax rate");
+        assertThatThrownBy(() -> new PricingEngine(oversizedFixed)).isInstanceOf(BeanInitializationException.class);
+    }
+
+    private static PricingProperties.Rule percentage(String percent) {
+        return new PricingProperties.Rule(PricingProperties.Type.PERCENTAGE, new BigDecimal(percent), BigDecimal.ZERO,
+                List.of());
+    }
+
+    private static long[] line(long unitPrice, int quantity) {
+        return new long[]{unitPrice, quantity};
+    }
+
+    private static PriceCalculation price(PricingProperties properties, long[]... lines) {
+        PriceCalculation calculation = new PriceCalculation();
+        for (long[] line : lines) {
+            calculation.addLine(line[0], (int) line[1]);
+        }
+        new PricingEngine(properties).price(calculation);
+        return calculation;
+    }
+}
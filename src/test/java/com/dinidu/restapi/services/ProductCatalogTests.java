@@ -0,0 +1,139 @@
+package com.dinidu.restapi.services;
+
+import com.dinidu.restapi.config.ProductCatalogProperties;
+import com.dinidu.restapi.config.ProductPageCacheProperties;
+import com.dinidu.restapi.dtos.ApiResponse;
+import com.dinidu.restapi.dtos.ProductDTO;
+import com.dinidu.restapi.events.ProductChangedEvent;
+import com.dinidu.restapi.models.Product;
+import com.dinidu.restapi.repository.ProductRepository;
+import com.dinidu.restapi.web.ProductPageCache;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * How {@link ProductCatalog} serves its snapshot while committed changes wait to be applied, over
+ * a repository stub holding two products.
+ */
+class ProductCatalogTests {
+    private static final Pageable FIRST_PAGE = PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, "createdAt"));
+
+    private final Map<Long, ProductDTO> rows = new ConcurrentHashMap<>(Map.of(
+            1L, product(1, "10.00"),
+            2L, product(2, "25.50")));
+
+    @Test
+    void servesTheSnapshotWhileChangesAreWithinTheLag() {
+        ProductCatalog catalog = new ProductCatalog(repository(), properties(Duration.ofHours(1)));
+        catalog.reload();
+
+        rows.put(1L, product(1, "12.00"));
+        catalog.onProductChanged(ProductChangedEvent.updated(List.of(1L)));
+
+        assertThat(catalog.hasUnappliedChanges()).isTrue();
+        assertThat(price(catalog, 1L)).isEqualByComparingTo("10.00");
+
+        catalog.applyPendingChanges();
+
+        assertThat(catalog.hasUnappliedChanges()).isFalse();
+        assertThat(price(catalog, 1L)).isEqualByComparingTo("12.00");
+    }
+
+    @Test
+    void goesToTheDatabaseOnceChangesExceedTheLag() {
+        ProductCatalog catalog = new ProductCatalog(repository(), properties(Duration.ZERO));
+        catalog.reload();
+
+        catalog.onProductChanged(ProductChangedEvent.updated(List.of(1L)));
+
+        assertThat(catalog.current()).isEmpty();
+
+        catalog.applyPendingChanges();
+
+        assertThat(catalog.current()).isPresent();
+    }
+
+    @Test
+    void pageCacheKeepsNoPagesReadWhileChangesAreUnapplied() {
+        ProductCatalog catalog = new ProductCatalog(repository(), properties(Duration.ofHours(1)));
+        ProductPageCache pageCache = pageCache(catalog);
+        catalog.reload();
+
+        // the order the listeners run in after a commit
+        ProductChangedEvent change = ProductChangedEvent.updated(List.of(1L));
+        catalog.onProductChanged(change);
+        pageCache.onProductChanged(change);
+
+        pageCache.put(FIRST_PAGE, pageCache.generation(), firstPage(catalog));
+        assertThat(pageCache.get(FIRST_PAGE)).isEmpty();
+
+        catalog.applyPendingChanges();
+
+        pageCache.put(FIRST_PAGE, pageCache.generation(), firstPage(catalog));
+        assertThat(pageCache.get(FIRST_PAGE)).isPresent();
+    }
+
+    private static BigDecimal price(ProductCatalog catalog, Long id) {
+        return catalog.current().flatMap(snapshot -> snapshot.findById(id)).orElseThrow().getPrice();
+    }
+
+    private static ApiResponse<List<ProductDTO>> firstPage(ProductCatalog catalog) {
+        return ApiResponse.success(catalog.current().orElseThrow().all(FIRST_PAGE).getContent());
+    }
+
+    private static ProductPageCache pageCache(ProductCatalog catalog) {
+        ProductPageCacheProperties properties = new ProductPageCacheProperties();
+        properties.setEnabled(true);
+        return new ProductPageCache(properties, new ObjectMapper().findAndRegisterModules(), new SimpleMeterRegistry(),
+                catalog);
+    }
+
+    private ProductRepository repository() {
+        return (ProductRepository) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{ProductRepository.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "findAllProjectedByName" -> rows.values().stream()
+                            .sorted(Comparator.comparing(ProductDTO::getName))
+                            .toList();
+                    case "findProjectedByIdIn" -> ((Collection<?>) args[0]).stream()
+                            .map(rows::get)
+                            .filter(Objects::nonNull)
+                            .toList();
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private static ProductCatalogProperties properties(Duration maxChangeLag) {
+        ProductCatalogProperties properties = new ProductCatalogProperties();
+        properties.setEnabled(true);
+        properties.setMaxChangeLag(maxChangeLag);
+        return properties;
+    }
+
+    private static ProductDTO product(long id, String price) {
+        return ProductDTO.builder()
+                .id(id)
+                .name("Widget " + id)
+                .price(new BigDecimal(price))
+                .stockQuantity(10)
+                .status(Product.ProductStatus.AVAILABLE)
+                .createdAt(LocalDateTime.of(2026, 1, 1, 0, 0).plusMinutes(id))
+                .build();
+    }
+}
@@ -0,0 +1,157 @@
+package com.dinidu.restapi.services;
+
+import com.dinidu.restapi.config.RequestCoalescingProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Concurrent identical loads through {@link RequestCoalescer}. The loader blocks until every
+ * caller has joined the flight, so the callers are known to overlap.
+ */
+class RequestCoalescerTests {
+    private static final int CALLERS = 8;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final RequestCoalescer coalescer = new RequestCoalescer(properties(), transactionManager(), meterRegistry);
+    private final ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+
+    @AfterEach
+    void stopCallers() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void concurrentLoadsOfTheSameKeyShareOneLoad() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<Future<Object>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            results.add(executor.submit(() -> coalescer.load("product.by-id", 1L, () -> {
+                loads.incrementAndGet();
+                await(release);
+                return new Object();
+            })));
+        }
+        awaitAllWaiting();
+        release.countDown();
+
+        Object first = results.get(0).get(5, TimeUnit.SECONDS);
+        for (Future<Object> result : results) {
+            assertThat(result.get(5, TimeUnit.SECONDS)).isSameAs(first);
+        }
+        assertThat(loads).hasValue(1);
+        assertThat(coalesced("leader")).isEqualTo(1);
+        assertThat(coalesced("coalesced")).isEqualTo(CALLERS - 1);
+    }
+
+    @Test
+    void waitersShareTheLoadersFailure() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<Future<Object>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            results.add(executor.submit(() -> coalescer.<Object>load("product.by-id", 1L, () -> {
+                loads.incrementAndGet();
+                await(release);
+                throw new IllegalStateException("database down");
+            })));
+        }
+        awaitAllWaiting();
+        release.countDown();
+
+        for (Future<Object> result : results) {
+            assertThatThrownBy(() -> result.get(5, TimeUnit.SECONDS)).hasRootCauseMessage("database down");
+        }
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void differentKeysAndLaterCallsLoadSeparately() {
+        AtomicInteger loads = new AtomicInteger();
+
+        coalescer.load("product.by-id", 1L, loads::incrementAndGet);
+        coalescer.load("product.by-id", 2L, loads::incrementAndGet);
+        coalescer.load("order.by-order-number", 1L, loads::incrementAndGet);
+        coalescer.load("product.by-id", 1L, loads::incrementAndGet);
+
+        assertThat(loads).hasValue(4);
+        assertThat(coalesced("coalesced")).isZero();
+    }
+
+    /**
+     * Waits until one caller is inside the loader and the others are waiting on its flight.
+     */
+    private void awaitAllWaiting() throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (coalesced("leader") < 1 || waitingThreads() < CALLERS) {
+            if (System.nanoTime() > deadline) {
+                throw new IllegalStateException("Callers did not join the flight");
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    private long waitingThreads() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getState() == Thread.State.WAITING
+                        || thread.getState() == Thread.State.TIMED_WAITING)
+                .filter(thread -> isInCoalescer(thread.getStackTrace()))
+                .count();
+    }
+
+    private static boolean isInCoalescer(StackTraceElement[] stackTrace) {
+        for (StackTraceElement frame : stackTrace) {
+            if (frame.getClassName().equals(RequestCoalescer.class.getName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private double coalesced(String role) {
+        return meterRegistry.find("requests.coalescing").tag("role", role).counters().stream()
+                .mapToDouble(Counter::count)
+                .sum();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static RequestCoalescingProperties properties() {
+        RequestCoalescingProperties properties = new RequestCoalescingProperties();
+        properties.setMaxWait(Duration.ofSeconds(10));
+        return properties;
+    }
+
+    private static PlatformTransactionManager transactionManager() {
+        return (PlatformTransactionManager) Proxy.newProxyInstance(RequestCoalescerTests.class.getClassLoader(),
+                new Class<?>[]{PlatformTransactionManager.class},
+                (proxy, method, args) -> method.getName().equals("getTransaction") ? new SimpleTransactionStatus() : null);
+    }
+}
@@ -0,0 +1,60 @@
+-- Schema and sample rows exactly as db/data.sql created them before the schema moved to Flyway.
+-- SchemaMigrationTests builds a database from this and upgrades it.
+CREATE TABLE users (
+                       id BIGSERIAL PRIMARY KEY,
+                       username VARCHAR(50) NOT NULL UNIQUE,
+                       email VARCHAR(255) NOT NULL UNIQUE,
+                       full_name VARCHAR(100) NOT NULL,
+                       status VARCHAR(20) NOT NULL DEFAULT 'ACTIVE',
+                       created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+                       updated_at TIMESTAMP,
+                       CONSTRAINT valid_status CHECK (status IN ('ACTIVE', 'INACTIVE', 'SUSPENDED'))
+);
+
+CREATE TABLE products (
+                          id BIGSERIAL PRIMARY KEY,
+                          name VARCHAR(100) NOT NULL,
+                          description VARCHAR(500),
+                          price DECIMAL(10,2) NOT NULL CHECK (price > 0),
+                          stock_quantity INTEGER NOT NULL DEFAULT 0,
+                          status VARCHAR(20) NOT NULL DEFAULT 'AVAILABLE',
+                          created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+                          updated_at TIMESTAMP,
+                          CONSTRAINT valid_product_status CHECK (status IN ('AVAILABLE', 'OUT_OF_STOCK', 'DISCONTINUED'))
+);
+
+CREATE TABLE orders (
+                        id BIGSERIAL PRIMARY KEY,
+                        order_number VARCHAR(50) NOT NULL UNIQUE,
+                        user_id BIGINT NOT NULL,
+                        total_amount DECIMAL(10,2) NOT NULL DEFAULT 0.00,
+                        status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+                        created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+                        updated_at TIMESTAMP,
+                        CONSTRAINT fk_user FOREIGN KEY (user_id) REFERENCES users(id),
+                        CONSTRAINT valid_order_status CHECK (status IN ('PENDING', 'CONFIRMED', 'SHIPPED', 'DELIVERED', 'CANCELLED'))
+);
+
+CREATE TABLE order_items (
+                             id BIGSERIAL PRIMARY KEY,
+                             order_id BIGINT NOT NULL,
+                             product_id BIGINT NOT NULL,
+                             quantity INTEGER NOT NULL CHECK (quantity >= 1),
+                             unit_price DECIMAL(10,2) NOT NULL CHECK (unit_price > 0),
+                             subtotal DECIMAL(10,2) NOT NULL,
+                             CONSTRAINT fk_order FOREIGN KEY (order_id) REFERENCES orders(id),
+                             CONSTRAINT fk_product FOREIGN KEY (product_id) REFERENCES products(id)
+);
+
+-- Inserting dummy data
+INSERT INTO users (username, email, full_name, status, created_at, updated_at)
+VALUES ('johndoe', 'john.doe@example.com', 'John Doe', 'ACTIVE', CURRENT_TIMESTAMP, CURRENT_TIMESTAMP);
+
+INSERT INTO products (name, description, price, stock_quantity, status, created_at, updated_at)
+VALUES ('Sample Product', 'This is a sample product description', 29.99, 100, 'AVAILABLE', CURRENT_TIMESTAMP, CURRENT_TIMESTAMP);
+
+INSERT INTO orders (order_number, user_id, total_amount, status, created_at, updated_at)
+VALUES ('ORD-123456789', 1, 59.98, 'PENDING', CURRENT_TIMESTAMP, CURRENT_TIMESTAMP);
+
+INSERT INTO order_items (order_id, product_id, quantity, unit_price, subtotal)
+VALUES (1, 1, 2, 29.99, 59.98);
\ No newline at end of file
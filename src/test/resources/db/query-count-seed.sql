@@ -0,0 +1,22 @@
+-- Fixed dataset for QueryCountRegressionTests: ids are deterministic after RESTART IDENTITY.
+TRUNCATE TABLE order_events, idempotency_keys, order_items, orders, products, users RESTART IDENTITY CASCADE;
+
+INSERT INTO users (username, email, full_name, status, created_at, updated_at)
+VALUES ('johndoe', 'john.doe@example.com', 'John Doe', 'ACTIVE', CURRENT_TIMESTAMP, CURRENT_TIMESTAMP),
+       ('janedoe', 'jane.doe@example.com', 'Jane Doe', 'ACTIVE', CURRENT_TIMESTAMP, CURRENT_TIMESTAMP);
+
+INSERT INTO products (name, description, price, stock_quantity, status, created_at, updated_at)
+VALUES ('Widget A', 'First widget', 10.00, 100, 'AVAILABLE', CURRENT_TIMESTAMP, CURRENT_TIMESTAMP),
+       ('Widget B', 'Second widget', 25.50, 100, 'AVAILABLE', CURRENT_TIMESTAMP, CURRENT_TIMESTAMP),
+       ('Gadget C', 'Unused gadget', 99.99, 5, 'AVAILABLE', CURRENT_TIMESTAMP, CURRENT_TIMESTAMP);
+
+INSERT INTO orders (order_number, user_id, total_amount, status, created_at, updated_at)
+VALUES ('ORD-SEED-1', 1, 61.00, 'PENDING', CURRENT_TIMESTAMP, CURRENT_TIMESTAMP),
+       ('ORD-SEED-2', 1, 10.00, 'CONFIRMED', CURRENT_TIMESTAMP, CURRENT_TIMESTAMP),
+       ('ORD-SEED-3', 1, 25.50, 'DELIVERED', CURRENT_TIMESTAMP, CURRENT_TIMESTAMP);
+
+INSERT INTO order_items (order_id, product_id, quantity, unit_price, subtotal, created_at)
+VALUES (1, 1, 1, 10.00, 10.00, CURRENT_TIMESTAMP),
+       (1, 2, 2, 25.50, 51.00, CURRENT_TIMESTAMP),
+       (2, 1, 1, 10.00, 10.00, CURRENT_TIMESTAMP),
+       (3, 2, 1, 25.50, 25.50, CURRENT_TIMESTAMP);